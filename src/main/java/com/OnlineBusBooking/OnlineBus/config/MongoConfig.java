@@ -0,0 +1,35 @@
+package com.OnlineBusBooking.OnlineBus.config;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.convert.converter.Converter;
+import org.springframework.data.convert.ReadingConverter;
+import org.springframework.data.mongodb.core.convert.MongoCustomConversions;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.List;
+
+@Configuration
+public class MongoConfig {
+
+    @Bean
+    public MongoCustomConversions mongoCustomConversions() {
+        return new MongoCustomConversions(List.of(new IsoStringToLocalDateConverter()));
+    }
+
+    // Bookings written before travelDate became a date hold it as "yyyy-MM-dd"; read those until they are migrated.
+    // A value that is not a date reads as null (it is quarantined by BookingDateMigration) instead of failing the query
+    @ReadingConverter
+    static class IsoStringToLocalDateConverter implements Converter<String, LocalDate> {
+        @Override
+        public LocalDate convert(String source) {
+            if (source.isBlank()) return null;
+            try {
+                return LocalDate.parse(source.trim());
+            } catch (DateTimeParseException e) {
+                return null;
+            }
+        }
+    }
+}
@@ -1,6 +1,8 @@
 
 package com.OnlineBusBooking.OnlineBus.controller;
 
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -18,19 +20,22 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseBody;
 import org.springframework.web.servlet.ModelAndView;
 
 import com.OnlineBusBooking.OnlineBus.model.Booking;
 import com.OnlineBusBooking.OnlineBus.model.Bus;
-import com.OnlineBusBooking.OnlineBus.model.Route;
-import com.OnlineBusBooking.OnlineBus.model.TripSchedule;
 import com.OnlineBusBooking.OnlineBus.model.User;
+import com.OnlineBusBooking.OnlineBus.model.WaitlistEntry;
 import com.OnlineBusBooking.OnlineBus.repository.BookingRepository;
 import com.OnlineBusBooking.OnlineBus.repository.BusRepository;
-import com.OnlineBusBooking.OnlineBus.repository.RouteRepository;
-import com.OnlineBusBooking.OnlineBus.repository.TripScheduleRepository;
 import com.OnlineBusBooking.OnlineBus.repository.UserRepository;
+import com.OnlineBusBooking.OnlineBus.service.AgentStatsService;
+import com.OnlineBusBooking.OnlineBus.service.BookingLedgerService;
+import com.OnlineBusBooking.OnlineBus.service.BookingRollupService;
+import com.OnlineBusBooking.OnlineBus.service.BusSearchService;
+import com.OnlineBusBooking.OnlineBus.service.WaitlistService;
 
 import jakarta.servlet.http.HttpSession;
 
@@ -47,6 +52,9 @@ public class AgentController {
     @Autowired
     private PasswordEncoder passwordEncoder;
 
+    @Autowired
+    private BusSearchService busSearchService;
+
     // ✅ Agent Dashboard
     @GetMapping("/dashboard")
     public String showAgentDashboard(HttpSession session, Model model) {
@@ -106,6 +114,8 @@ public class AgentController {
         updatedBus.setHasLowerDeck(true);
 
         busRepository.save(updatedBus);
+        busSearchService.busChanged(id);
+        agentStatsService.busSaved(updatedBus);
         return new ModelAndView("redirect:/agent/dashboard");
     }
 
@@ -146,13 +156,13 @@ public class AgentController {
         List<Bus> buses = busRepository.findByOperatorId(email);
         List<String> busIds = buses.stream().map(Bus::getId).toList();
         List<Booking> bookings = bookingRepository.findByBusIdIn(busIds);
+        Map<String, String> busNames = new HashMap<>();
+        buses.forEach(bus -> busNames.put(bus.getId(), bus.getBusName()));
 
         List<Map<String, Object>> enriched = new ArrayList<>();
 
         for (Booking booking : bookings) {
-            Optional<Bus> busOpt = busRepository.findById(booking.getBusId());
-
-            String busName = busOpt.map(Bus::getBusName).orElse("Unknown Bus");
+            String busName = busNames.getOrDefault(booking.getBusId(), "Unknown Bus");
             String routeFrom = booking.getPassengerFrom();
             String routeTo = booking.getPassengerTo();
 
@@ -174,30 +184,13 @@ public class AgentController {
         return ResponseEntity.ok(enriched);
     }
     @Autowired
-    private RouteRepository routeRepository;
-    @Autowired
-    private TripScheduleRepository tripScheduleRepository;
+    private AgentStatsService agentStatsService;
+
+    // ✅ Dashboard totals, read from the incrementally maintained counters
     @GetMapping("/api/stats/{agentEmail:.+}")
     @ResponseBody
     public Map<String, Object> getAgentStats(@PathVariable String agentEmail) {
-        Map<String, Object> stats = new HashMap<>();
-
-        List<Bus> buses = busRepository.findByOperatorId(agentEmail);
-        List<String> busIds = buses.stream().map(Bus::getId).toList();
-
-        List<Route> routes = routeRepository.findByBusIdIn(busIds);
-        List<TripSchedule> schedules = tripScheduleRepository.findByBusIdIn(busIds);
-        List<Booking> bookings = bookingRepository.findByBusIdIn(busIds);
-
-        double totalRevenue = bookings.stream().mapToDouble(Booking::getFare).sum();
-
-        stats.put("totalBuses", buses.size());
-        stats.put("totalRoutes", routes.size());
-        stats.put("totalSchedules", schedules.size());
-        stats.put("totalBookings", bookings.size());
-        stats.put("totalRevenue", Math.round(totalRevenue));
-
-        return stats;
+        return agentStatsService.stats(agentEmail);
     }
 
     // ✅ Session-based fallback: when frontend does not send email in path
@@ -236,5 +229,112 @@ public class AgentController {
         return getBookingsByAgentFromSession(session);
     }
 
+    @Autowired
+    private BookingLedgerService bookingLedgerService;
 
+    // ✅ Paged booking ledger for the logged-in agent; pass nextCursor back as `cursor` for the next page
+    @GetMapping("/api/bookings/ledger")
+    @ResponseBody
+    public ResponseEntity<?> getBookingLedger(HttpSession session,
+                                              @RequestParam(required = false) String busId,
+                                              @RequestParam(required = false) String status,
+                                              @RequestParam(required = false) String from,
+                                              @RequestParam(required = false) String to,
+                                              @RequestParam(defaultValue = "50") int limit,
+                                              @RequestParam(required = false) String cursor) {
+        String email = (String) session.getAttribute("email");
+        if (email == null || email.isBlank()) {
+            return ResponseEntity.status(401).body("❌ Not logged in.");
+        }
+        try {
+            BookingLedgerService.Filter filter = new BookingLedgerService.Filter(busId, status,
+                    from == null || from.isBlank() ? null : LocalDate.parse(from),
+                    to == null || to.isBlank() ? null : LocalDate.parse(to),
+                    limit, cursor);
+            return ResponseEntity.ok(bookingLedgerService.page(email, filter));
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            return ResponseEntity.badRequest().body("❌ " + e.getMessage());
+        }
+    }
+
+    @Autowired
+    private BookingRollupService bookingRollupService;
+
+    // ✅ Sales time series (granularity hour/day/week) for the agent's buses, or one of them
+    @GetMapping("/api/analytics/sales")
+    @ResponseBody
+    public ResponseEntity<?> getSalesSeries(HttpSession session,
+                                            @RequestParam(defaultValue = "day") String granularity,
+                                            @RequestParam(required = false) String busId,
+                                            @RequestParam(required = false) String from,
+                                            @RequestParam(required = false) String to) {
+        String email = (String) session.getAttribute("email");
+        if (email == null || email.isBlank()) {
+            return ResponseEntity.status(401).body("❌ Not logged in.");
+        }
+        try {
+            LocalDate end = to == null || to.isBlank() ? LocalDate.now() : LocalDate.parse(to);
+            LocalDate start = from == null || from.isBlank() ? end.minusDays("hour".equalsIgnoreCase(granularity) ? 1 : 29) : LocalDate.parse(from);
+            List<String> busIds = busRepository.findByOperatorId(email).stream().map(Bus::getId)
+                    .filter(id -> busId == null || busId.isBlank() || id.equals(busId)).toList();
+            return ResponseEntity.ok(bookingRollupService.sales(busIds, granularity, start, end));
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            return ResponseEntity.badRequest().body("❌ " + e.getMessage());
+        }
+    }
+
+    // ✅ Load factor per trip of the agent's buses, by travel date
+    @GetMapping("/api/analytics/trips")
+    @ResponseBody
+    public ResponseEntity<?> getTripLoad(HttpSession session,
+                                         @RequestParam(required = false) String from,
+                                         @RequestParam(required = false) String to) {
+        String email = (String) session.getAttribute("email");
+        if (email == null || email.isBlank()) {
+            return ResponseEntity.status(401).body("❌ Not logged in.");
+        }
+        try {
+            LocalDate end = to == null || to.isBlank() ? LocalDate.now() : LocalDate.parse(to);
+            LocalDate start = from == null || from.isBlank() ? end.minusDays(29) : LocalDate.parse(from);
+            return ResponseEntity.ok(bookingRollupService.tripLoad(busRepository.findByOperatorId(email), start, end));
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            return ResponseEntity.badRequest().body("❌ " + e.getMessage());
+        }
+    }
+
+    // ✅ Per bus/route totals and average load factor, by travel date
+    @GetMapping("/api/analytics/routes")
+    @ResponseBody
+    public ResponseEntity<?> getRoutePerformance(HttpSession session,
+                                                 @RequestParam(required = false) String from,
+                                                 @RequestParam(required = false) String to) {
+        String email = (String) session.getAttribute("email");
+        if (email == null || email.isBlank()) {
+            return ResponseEntity.status(401).body("❌ Not logged in.");
+        }
+        try {
+            LocalDate end = to == null || to.isBlank() ? LocalDate.now() : LocalDate.parse(to);
+            LocalDate start = from == null || from.isBlank() ? end.minusDays(29) : LocalDate.parse(from);
+            return ResponseEntity.ok(bookingRollupService.routePerformance(busRepository.findByOperatorId(email), start, end));
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            return ResponseEntity.badRequest().body("❌ " + e.getMessage());
+        }
+    }
+
+    @Autowired
+    private WaitlistService waitlistService;
+
+    // ✅ Waitlist a customer on one of the agent's buses, with a priority (used when waitlist.ordering=priority)
+    @PostMapping("/api/waitlist")
+    @ResponseBody
+    public ResponseEntity<?> addToWaitlist(@RequestBody WaitlistEntry request, HttpSession session) {
+        String email = (String) session.getAttribute("email");
+        Optional<Bus> bus = request.getBusId() == null ? Optional.empty() : busRepository.findById(request.getBusId());
+        if (email == null || bus.isEmpty() || !email.equals(bus.get().getOperatorId())) {
+            return ResponseEntity.status(403).body("❌ Not your bus.");
+        }
+        WaitlistService.JoinResult result = waitlistService.join(request);
+        if (result.error() != null) return ResponseEntity.badRequest().body(result.error());
+        return ResponseEntity.ok(result.entry());
+    }
 }
@@ -1,16 +1,21 @@
 package com.OnlineBusBooking.OnlineBus.controller;
 
 import com.OnlineBusBooking.OnlineBus.model.Bus;
-import com.OnlineBusBooking.OnlineBus.model.Route;
 import com.OnlineBusBooking.OnlineBus.service.BusService;
-import com.OnlineBusBooking.OnlineBus.service.RouteService;
+import com.OnlineBusBooking.OnlineBus.service.BusSearchService;
 import jakarta.servlet.http.HttpSession;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 
 @Controller
@@ -20,6 +25,9 @@ public class BusController {
     @Autowired
     private BusService busService;
 
+    @Autowired
+    private BusSearchService busSearchService;
+
     // ✅ Edit Bus Page (Used by Thymeleaf view)
     @GetMapping("/edit/{id}")
     public String showEditBusForm(@PathVariable String id, Model model) {
@@ -49,6 +57,7 @@ public class BusController {
         updatedBus.setHasLowerDeck(true);
 
         busService.saveBus(updatedBus);
+        busSearchService.busChanged(id);
         return "redirect:/agent-dashboard";
     }
 
@@ -85,22 +94,24 @@ public class BusController {
     public List<Bus> getBusesByOperatorId(@PathVariable String operatorId) {
         return busService.getBusesByOperator(operatorId);
     }
-    @Autowired
-    private RouteService routeService;
-
     @GetMapping("/api/search")
     @ResponseBody
     public List<Bus> searchBuses(@RequestParam String from, @RequestParam String to, @RequestParam String date) {
-        // Step 1: Get matching routes
-        List<Route> routes = routeService.findByFromAndTo(from, to);
-
-        // Step 2: Extract busIds
-        List<String> busIds = routes.stream()
-                .map(Route::getBusId)
+        // Same engine as /user/api/search-buses: intermediate stops and the travel date both count
+        List<String> busIds = busSearchService.search(from, to, LocalDate.parse(date)).results().stream()
+                .map(row -> (String) row.get("busId"))
+                .distinct()
                 .toList();
+        if (busIds.isEmpty()) return List.of();
 
-        // Step 3: Get buses by IDs
-        return busService.getBusesByIds(busIds);
+        Map<String, Bus> busesById = new HashMap<>();
+        busService.getBusesByIds(busIds).forEach(bus -> busesById.put(bus.getId(), bus));
+        return busIds.stream().map(busesById::get).filter(Objects::nonNull).toList();
     }
 
+    // ✅ A malformed date or time in a request parameter or body is the caller's mistake: 400, not 500
+    @ExceptionHandler(DateTimeParseException.class)
+    public ResponseEntity<String> invalidDate(DateTimeParseException e) {
+        return ResponseEntity.badRequest().body("❌ Invalid date or time: " + e.getParsedString());
+    }
 }
@@ -0,0 +1,110 @@
+package com.OnlineBusBooking.OnlineBus.controller;
+
+import com.OnlineBusBooking.OnlineBus.model.Bus;
+import com.OnlineBusBooking.OnlineBus.repository.BusRepository;
+import com.OnlineBusBooking.OnlineBus.service.CsvExportService;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpSession;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.async.WebAsyncTask;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// ✅ CSV downloads: agents get their own buses (/agent/**), admins everything (/admin/**)
+@RestController
+public class ExportController {
+
+    private static final MediaType TEXT_CSV = MediaType.parseMediaType("text/csv;charset=UTF-8");
+
+    @Autowired
+    private CsvExportService csvExportService;
+
+    @Autowired
+    private BusRepository busRepository;
+
+    // Only downloads get this long; other async requests keep Spring MVC's default
+    @Value("${export.timeout-minutes:30}")
+    private long timeoutMinutes;
+
+    @GetMapping("/agent/api/export/bookings.csv")
+    public WebAsyncTask<Void> agentBookings(HttpSession session, HttpServletResponse response,
+                                            @RequestParam(required = false) String from, @RequestParam(required = false) String to) {
+        List<String> busIds = operatorBusIds(session);
+        return csv(response, "bookings", from, to, (start, end, out) -> csvExportService.bookings(busIds, start, end, out));
+    }
+
+    @GetMapping("/agent/api/export/schedules.csv")
+    public WebAsyncTask<Void> agentSchedules(HttpSession session, HttpServletResponse response,
+                                             @RequestParam(required = false) String from, @RequestParam(required = false) String to) {
+        List<String> busIds = operatorBusIds(session);
+        return csv(response, "schedules", from, to, (start, end, out) -> csvExportService.schedules(busIds, start, end, out));
+    }
+
+    @GetMapping("/admin/api/export/bookings.csv")
+    public WebAsyncTask<Void> adminBookings(HttpServletResponse response, @RequestParam(required = false) String from,
+                                            @RequestParam(required = false) String to) {
+        return csv(response, "bookings", from, to, (start, end, out) -> csvExportService.bookings(null, start, end, out));
+    }
+
+    @GetMapping("/admin/api/export/schedules.csv")
+    public WebAsyncTask<Void> adminSchedules(HttpServletResponse response, @RequestParam(required = false) String from,
+                                             @RequestParam(required = false) String to) {
+        return csv(response, "schedules", from, to, (start, end, out) -> csvExportService.schedules(null, start, end, out));
+    }
+
+    // Payment records carry no bus, so only admins can export them
+    @GetMapping("/admin/api/export/payments.csv")
+    public WebAsyncTask<Void> adminPayments(HttpServletResponse response, @RequestParam(required = false) String from,
+                                            @RequestParam(required = false) String to) {
+        return csv(response, "payments", from, to, (start, end, out) -> csvExportService.payments(start, end, out));
+    }
+
+    // ✅ A malformed from/to is the caller's mistake: 400, not 500
+    @ExceptionHandler(DateTimeParseException.class)
+    public ResponseEntity<String> invalidDate(DateTimeParseException e) {
+        return ResponseEntity.badRequest().body("❌ Invalid date or time: " + e.getParsedString());
+    }
+
+    @ExceptionHandler(ResponseStatusException.class)
+    public ResponseEntity<String> rejected(ResponseStatusException e) {
+        return ResponseEntity.status(e.getStatusCode()).body(e.getReason());
+    }
+
+    private interface Export {
+        void write(LocalDate from, LocalDate to, OutputStream out) throws IOException;
+    }
+
+    // Dates are checked before anything is written; the download itself runs as an async task with its own timeout
+    private WebAsyncTask<Void> csv(HttpServletResponse response, String name, String from, String to, Export export) {
+        LocalDate start = from == null || from.isBlank() ? null : LocalDate.parse(from);
+        LocalDate end = to == null || to.isBlank() ? null : LocalDate.parse(to);
+        String filename = name + (start == null ? "" : "_" + start) + (end == null ? "" : "_to_" + end) + ".csv";
+        response.setContentType(TEXT_CSV.toString());
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + filename + "\"");
+        return new WebAsyncTask<>(TimeUnit.MINUTES.toMillis(timeoutMinutes), () -> {
+            export.write(start, end, response.getOutputStream());
+            return null;
+        });
+    }
+
+    private List<String> operatorBusIds(HttpSession session) {
+        String email = (String) session.getAttribute("email");
+        if (email == null || email.isBlank()) throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "❌ Not logged in.");
+        return busRepository.findByOperatorId(email).stream().map(Bus::getId).toList();
+    }
+}
@@ -2,15 +2,18 @@ package com.OnlineBusBooking.OnlineBus.controller;
 
 import com.OnlineBusBooking.OnlineBus.model.PaymentRecord;
 import com.OnlineBusBooking.OnlineBus.repository.PaymentRepository;
+import com.OnlineBusBooking.OnlineBus.service.IdempotencyStore;
 import com.OnlineBusBooking.OnlineBus.service.RazorpayService;
 import com.razorpay.Order;
 import com.razorpay.RazorpayClient;
 import org.json.JSONObject;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.security.Principal;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
@@ -24,6 +27,8 @@ public class PaymentController {
     private RazorpayService razorpayService;
     @Autowired
     private PaymentRepository paymentRepository;
+    @Autowired
+    private IdempotencyStore idempotencyStore;
 
     @PostMapping("/create-order")
     public ResponseEntity<String> createOrder(@RequestParam int amount, @RequestParam String currency) {
@@ -44,19 +49,25 @@ public class PaymentController {
         }
     }
     @PostMapping("/save-success")
-    public ResponseEntity<String> savePayment(@RequestBody Map<String, Object> data) {
-        try {
-            PaymentRecord record = new PaymentRecord();
-            record.setOrderId((String) data.get("orderId"));
-            record.setPaymentId((String) data.get("paymentId"));
-            record.setReceipt((String) data.get("receipt"));
-            record.setAmount((int) data.get("amount"));
-            record.setStatus((String) data.get("status"));
-            paymentRepository.save(record);
-            return ResponseEntity.ok("✅ Payment saved to MongoDB.");
-        } catch (Exception e) {
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("❌ Error saving payment.");
-        }
+    public ResponseEntity<String> savePayment(@RequestBody Map<String, Object> data,
+                                              @RequestHeader(value = IdempotencyStore.HEADER, required = false) String idempotencyKey,
+                                              Principal principal) {
+        return idempotencyStore.execute("save-success", idempotencyKey, principal, data, () -> {
+            try {
+                PaymentRecord record = new PaymentRecord();
+                record.setOrderId((String) data.get("orderId"));
+                record.setPaymentId((String) data.get("paymentId"));
+                record.setReceipt((String) data.get("receipt"));
+                record.setAmount((int) data.get("amount"));
+                record.setStatus((String) data.get("status"));
+                paymentRepository.save(record);
+                return ResponseEntity.ok("✅ Payment saved to MongoDB.");
+            } catch (DuplicateKeyException e) {
+                return ResponseEntity.status(HttpStatus.CONFLICT).body("❌ Payment already recorded.");
+            } catch (Exception e) {
+                return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("❌ Error saving payment.");
+            }
+        });
     }
 
 
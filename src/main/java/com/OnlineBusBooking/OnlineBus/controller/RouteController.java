@@ -2,6 +2,9 @@ package com.OnlineBusBooking.OnlineBus.controller;
 
 import com.OnlineBusBooking.OnlineBus.model.Route;
 import com.OnlineBusBooking.OnlineBus.repository.RouteRepository;
+import com.OnlineBusBooking.OnlineBus.service.AgentStatsService;
+import com.OnlineBusBooking.OnlineBus.service.BusSearchService;
+import com.OnlineBusBooking.OnlineBus.service.RouteStopIndex;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.bind.annotation.*;
 
@@ -15,10 +18,22 @@ public class RouteController {
     @Autowired
     private RouteRepository routeRepository;
 
+    @Autowired
+    private RouteStopIndex routeStopIndex;
+
+    @Autowired
+    private BusSearchService busSearchService;
+
+    @Autowired
+    private AgentStatsService agentStatsService;
+
     // ✅ Add a new route
     @PostMapping("/add")
     public Route addRoute(@RequestBody Route route) {
-        return routeRepository.save(route);
+        Route saved = routeRepository.save(route);
+        busSearchService.routeSaved(saved);
+        agentStatsService.routeChanged(null, saved);
+        return saved;
     }
 
     // ✅ Get routes by bus ID
@@ -27,6 +42,12 @@ public class RouteController {
         return routeRepository.findByBusId(busId);
     }
 
+    // ✅ Autocomplete stop names from every route's from/to/stops
+    @GetMapping("/stops/suggest")
+    public List<String> suggestStops(@RequestParam String q, @RequestParam(defaultValue = "10") int limit) {
+        return routeStopIndex.suggestStops(q, Math.min(Math.max(limit, 1), 50));
+    }
+
     // ✅ Update route
     @PutMapping("/update/{id}")
     public Route updateRoute(@PathVariable String id, @RequestBody Route updatedRoute) {
@@ -37,7 +58,10 @@ public class RouteController {
             route.setTo(updatedRoute.getTo());
             route.setStops(updatedRoute.getStops());
             route.setTimings(updatedRoute.getTimings());
-            return routeRepository.save(route);
+            // busId is kept, so the operator's route count is unchanged
+            Route saved = routeRepository.save(route);
+            busSearchService.routeSaved(saved);
+            return saved;
         }
         return null;
     }
@@ -45,6 +69,11 @@ public class RouteController {
     // ✅ Delete route
     @DeleteMapping("/delete/{id}")
     public void deleteRoute(@PathVariable String id) {
+        Optional<Route> existing = routeRepository.findById(id);
         routeRepository.deleteById(id);
+        existing.ifPresent(route -> {
+            busSearchService.routeDeleted(route);
+            agentStatsService.routeChanged(route, null);
+        });
     }
 }
@@ -2,6 +2,10 @@ package com.OnlineBusBooking.OnlineBus.controller;
 
 import com.OnlineBusBooking.OnlineBus.model.SeatLayout;
 import com.OnlineBusBooking.OnlineBus.repository.SeatLayoutRepository;
+import com.OnlineBusBooking.OnlineBus.service.BusFareService;
+import com.OnlineBusBooking.OnlineBus.service.SearchResultCache;
+import com.OnlineBusBooking.OnlineBus.service.SeatInventory;
+import com.OnlineBusBooking.OnlineBus.service.SeatLayoutCache;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -15,6 +19,18 @@ public class SeatLayoutController {
     @Autowired
     private SeatLayoutRepository seatLayoutRepository;
 
+    @Autowired
+    private BusFareService busFareService;
+
+    @Autowired
+    private SearchResultCache searchResultCache;
+
+    @Autowired
+    private SeatInventory seatInventory;
+
+    @Autowired
+    private SeatLayoutCache seatLayoutCache;
+
     // ✅ Save or update seat layout
     @PostMapping("/save")
     public ResponseEntity<?> saveLayout(@RequestBody SeatLayout layout) {
@@ -31,13 +47,17 @@ public class SeatLayoutController {
         existing.ifPresent(value -> layout.setId(value.getId()));
 
         SeatLayout saved = seatLayoutRepository.save(layout);
+        seatLayoutCache.put(saved);
+        busFareService.update(saved);
+        searchResultCache.invalidateBus(saved.getBusId());
+        seatInventory.invalidateBus(saved.getBusId());
         return ResponseEntity.ok(saved);
     }
 
     // ✅ Get layout by busId
     @GetMapping("/by-bus/{busId}")
     public ResponseEntity<?> getLayoutByBusId(@PathVariable String busId) {
-        Optional<SeatLayout> layoutOpt = seatLayoutRepository.findByBusId(busId);
+        Optional<SeatLayout> layoutOpt = seatLayoutCache.get(busId).map(SeatLayoutCache.IndexedLayout::layout);
         return layoutOpt.<ResponseEntity<?>>map(ResponseEntity::ok)
                 .orElseGet(() -> ResponseEntity.status(404).body("❌ No seat layout found for busId: " + busId));
     }
@@ -50,6 +70,10 @@ public class SeatLayoutController {
             return ResponseEntity.status(404).body("❌ No seat layout to delete for busId: " + busId);
         }
         seatLayoutRepository.deleteById(layoutOpt.get().getId());
+        seatLayoutCache.invalidate(busId);
+        busFareService.remove(busId);
+        searchResultCache.invalidateBus(busId);
+        seatInventory.invalidateBus(busId);
         return ResponseEntity.ok("✅ Seat layout deleted for busId: " + busId);
     }
 }
@@ -1,22 +1,28 @@
 package com.OnlineBusBooking.OnlineBus.controller;
 
 import com.OnlineBusBooking.OnlineBus.model.SeatPricing;
+import com.OnlineBusBooking.OnlineBus.service.BusFareService;
 import com.OnlineBusBooking.OnlineBus.service.SeatPricingService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
+import java.util.Objects;
 
 @RestController
 @RequestMapping("/api/pricing")
 public class SeatPricingController {
     @Autowired
     private SeatPricingService service;
+    @Autowired
+    private BusFareService busFareService;
 
     @PostMapping("/add-bulk")
     public ResponseEntity<List<SeatPricing>> addBulk(@RequestBody List<SeatPricing> prices) {
-        return ResponseEntity.ok(service.saveAll(prices));
+        List<SeatPricing> saved = service.saveAll(prices);
+        busFareService.refresh(saved.stream().map(SeatPricing::getBusId).filter(Objects::nonNull).toList());
+        return ResponseEntity.ok(saved);
     }
 
     @GetMapping("/by-bus/{busId}")
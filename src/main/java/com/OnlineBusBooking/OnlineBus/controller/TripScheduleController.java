@@ -4,6 +4,7 @@ import com.OnlineBusBooking.OnlineBus.model.Route;
 import com.OnlineBusBooking.OnlineBus.model.TripSchedule;
 import com.OnlineBusBooking.OnlineBus.repository.RouteRepository;
 import com.OnlineBusBooking.OnlineBus.repository.TripScheduleRepository;
+import com.OnlineBusBooking.OnlineBus.service.TripScheduleService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -21,6 +22,9 @@ public class TripScheduleController {
     @Autowired
     private RouteRepository routeRepository;
 
+    @Autowired
+    private TripScheduleService tripScheduleService;
+
     // ✅ CREATE: Add new trip schedule
     @PostMapping("/add")
     public ResponseEntity<?> add(@RequestBody TripSchedule schedule) {
@@ -37,6 +41,7 @@ public class TripScheduleController {
         }
 
         TripSchedule saved = tripScheduleRepository.save(schedule);
+        tripScheduleService.scheduleChanged(null, saved);
         return ResponseEntity.ok(saved);
     }
 
@@ -69,6 +74,7 @@ public class TripScheduleController {
         }
 
         TripSchedule existing = existingOpt.get();
+        TripSchedule before = snapshot(existing);
         existing.setDate(updatedSchedule.getDate());
         existing.setDepartureTime(updatedSchedule.getDepartureTime());
         existing.setArrivalTime(updatedSchedule.getArrivalTime());
@@ -79,16 +85,32 @@ public class TripScheduleController {
         if (updatedSchedule.getBusId() != null)
             existing.setBusId(updatedSchedule.getBusId());
 
-        return ResponseEntity.ok(tripScheduleRepository.save(existing));
+        TripSchedule saved = tripScheduleRepository.save(existing);
+        tripScheduleService.scheduleChanged(before, saved);
+        return ResponseEntity.ok(saved);
     }
 
     // ✅ DELETE: Delete by ID
     @DeleteMapping("/delete/{id}")
     public ResponseEntity<String> delete(@PathVariable String id) {
-        if (!tripScheduleRepository.existsById(id)) {
+        Optional<TripSchedule> existingOpt = tripScheduleRepository.findById(id);
+        if (existingOpt.isEmpty()) {
             return ResponseEntity.notFound().build();
         }
         tripScheduleRepository.deleteById(id);
+        tripScheduleService.scheduleChanged(existingOpt.get(), null);
         return ResponseEntity.ok("✅ Deleted schedule with ID: " + id);
     }
+
+    // Copy of the fields derived views are keyed on, taken before an in-place update
+    private static TripSchedule snapshot(TripSchedule schedule) {
+        TripSchedule copy = new TripSchedule();
+        copy.setId(schedule.getId());
+        copy.setBusId(schedule.getBusId());
+        copy.setRouteId(schedule.getRouteId());
+        copy.setDate(schedule.getDate());
+        copy.setDepartureTime(schedule.getDepartureTime());
+        copy.setArrivalTime(schedule.getArrivalTime());
+        return copy;
+    }
 }
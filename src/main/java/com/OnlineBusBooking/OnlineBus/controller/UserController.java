@@ -2,18 +2,45 @@ package com.OnlineBusBooking.OnlineBus.controller;
 
 import com.OnlineBusBooking.OnlineBus.model.*;
 import com.OnlineBusBooking.OnlineBus.repository.*;
+import com.OnlineBusBooking.OnlineBus.service.BookingService;
+import com.OnlineBusBooking.OnlineBus.service.BusSearchService;
+import com.OnlineBusBooking.OnlineBus.service.CheckoutService;
+import com.OnlineBusBooking.OnlineBus.service.ConnectionSearchService;
 import com.OnlineBusBooking.OnlineBus.service.EmailService;
+import com.OnlineBusBooking.OnlineBus.service.FareCalendarService;
+import com.OnlineBusBooking.OnlineBus.service.IdempotencyStore;
+import com.OnlineBusBooking.OnlineBus.service.JoinLoaders;
+import com.OnlineBusBooking.OnlineBus.service.SeatEventHub;
+import com.OnlineBusBooking.OnlineBus.service.SeatHoldService;
+import com.OnlineBusBooking.OnlineBus.service.SeatInventory;
+import com.OnlineBusBooking.OnlineBus.service.TripSnapshotService;
+import com.OnlineBusBooking.OnlineBus.service.WaitlistService;
+import com.OnlineBusBooking.OnlineBus.util.BatchLoader;
+import com.OnlineBusBooking.OnlineBus.util.SearchResultPager;
 import com.OnlineBusBooking.OnlineBus.util.TicketPDFGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.servlet.http.HttpSession;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.security.Principal;
 import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.format.DateTimeParseException;
 import java.util.*;
+import java.util.function.Predicate;
 
 @Controller
 @RequestMapping("/user")
@@ -27,6 +54,21 @@ public class UserController {
     @Autowired private EmailService emailService;
     @Autowired private SeatLayoutRepository seatLayoutRepository;
     @Autowired private AgentRepository agentRepository; // added
+    @Autowired private BusSearchService busSearchService;
+    @Autowired private BookingService bookingService;
+    @Autowired private CheckoutService checkoutService;
+    @Autowired private IdempotencyStore idempotencyStore;
+    @Autowired private SeatInventory seatInventory;
+    @Autowired private SeatHoldService seatHoldService;
+    @Autowired private TripSnapshotService tripSnapshotService;
+    @Autowired private SeatEventHub seatEventHub;
+    @Autowired private WaitlistService waitlistService;
+    @Autowired private JoinLoaders joinLoaders;
+    @Autowired private ConnectionSearchService connectionSearchService;
+    @Autowired private FareCalendarService fareCalendarService;
+    @Autowired private ObjectMapper objectMapper;
+
+    private static final int STREAM_BATCH_ROUTES = 25;
 
     @GetMapping("/dashboard")
     public String showUserDashboard(HttpSession session, Principal principal, Model model) {
@@ -45,79 +87,93 @@ public class UserController {
     @GetMapping("/api/search-buses")
     @ResponseBody
     public List<Map<String, Object>> searchBuses(@RequestParam String from, @RequestParam String to, @RequestParam String date) {
-        LocalDate travelDate = LocalDate.parse(date);
-        List<Route> allRoutes = routeRepository.findAll();
-        List<Map<String, Object>> results = new ArrayList<>();
-        String fromLower = from.toLowerCase();
-        String toLower = to.toLowerCase();
-        for (Route route : allRoutes) {
-            boolean validRoute = false;
-            List<String> fullPath = new ArrayList<>(List.of(route.getFrom().toLowerCase()));
-            if (route.getStops() != null) fullPath.addAll(route.getStops().stream().map(String::toLowerCase).toList());
-            fullPath.add(route.getTo().toLowerCase());
-            if (fullPath.contains(fromLower) && fullPath.contains(toLower)) {
-                int fromIndex = fullPath.indexOf(fromLower);
-                int toIndex = fullPath.indexOf(toLower);
-                if (fromIndex < toIndex) {
-                    validRoute = true;
-                }
-            }
-            if (validRoute) {
-                List<TripSchedule> schedules = tripScheduleRepository.findByRouteIdAndDate(route.getId(), travelDate);
-                for (TripSchedule schedule : schedules) {
-                    busRepository.findById(schedule.getBusId()).ifPresent(bus -> {
-                        Map<String, Object> result = new HashMap<>();
-                        result.put("id", bus.getId());
-                        result.put("busId", bus.getId());
-                        result.put("busName", bus.getBusName());
-                        result.put("busNumber", bus.getBusNumber());
-                        result.put("busType", bus.getBusType());
-                        result.put("departureTime", schedule.getDepartureTime());
-                        result.put("arrivalTime", schedule.getArrivalTime());
-                        double estimatedFare = calculateEstimatedFare(bus.getId(), fromLower, toLower, fullPath);
-                        result.put("estimatedFare", estimatedFare);
-                        results.add(result);
-                    });
-                }
-            }
-        }
-        return results;
+        return busSearchService.search(from, to, LocalDate.parse(date)).results();
     }
 
-    private double calculateEstimatedFare(String busId, String from, String to, List<String> fullPath) {
+    // ✅ Filtered, sorted page of search results; pass nextCursor back as `cursor` for the next page
+    @GetMapping("/api/search-buses/page")
+    @ResponseBody
+    public ResponseEntity<?> searchBusesPage(@RequestParam String from, @RequestParam String to, @RequestParam String date,
+                                             @RequestParam(required = false) String busType,
+                                             @RequestParam(required = false) String departAfter,
+                                             @RequestParam(required = false) String departBefore,
+                                             @RequestParam(required = false) Double maxFare,
+                                             @RequestParam(defaultValue = "departure") String sort,
+                                             @RequestParam(defaultValue = "20") int limit,
+                                             @RequestParam(required = false) String cursor) {
         try {
-            int fromIdx = fullPath.indexOf(from);
-            int toIdx = fullPath.lastIndexOf(to);
-            if (fromIdx == -1 || toIdx == -1 || fromIdx >= toIdx) {
-                return 0.0;
-            }
-            Optional<SeatLayout> layoutOpt = seatLayoutRepository.findByBusId(busId);
-            if (layoutOpt.isEmpty()) {
-                return 0.0;
-            }
-            SeatLayout layout = layoutOpt.get();
-            double minFare = Double.MAX_VALUE;
-            for (SeatLayout.Seat seat : layout.getSeats()) {
-                double basePrice = seat.getPrice();
-                double newFare = 0;
-                if (fromIdx >= 0 && toIdx > fromIdx) {
-                    int totalSegments = fullPath.size() - 1;
-                    if (totalSegments > 0) {
-                        int traveledSegments = toIdx - fromIdx;
-                        double ratio = (double) traveledSegments / totalSegments;
-                        double calculatedFare = basePrice * ratio;
-                        calculatedFare = Math.round(calculatedFare * 100.0) / 100.0;
-                        newFare = Math.max(50.0, calculatedFare);
+            SearchResultPager.Criteria criteria = criteria(busType, departAfter, departBefore, maxFare, sort, limit, cursor);
+            return ResponseEntity.ok(SearchResultPager.page(searchBuses(from, to, date), criteria));
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            return ResponseEntity.badRequest().body("❌ " + e.getMessage());
+        }
+    }
+
+    // ✅ NDJSON: one result per line, flushed route batch by route batch as they are found
+    @GetMapping(value = "/api/search-buses/stream", produces = "application/x-ndjson")
+    public ResponseEntity<StreamingResponseBody> searchBusesStream(@RequestParam String from, @RequestParam String to, @RequestParam String date,
+                                                                   @RequestParam(required = false) String busType,
+                                                                   @RequestParam(required = false) String departAfter,
+                                                                   @RequestParam(required = false) String departBefore,
+                                                                   @RequestParam(required = false) Double maxFare) {
+        LocalDate travelDate = LocalDate.parse(date);
+        Predicate<Map<String, Object>> filter = SearchResultPager.filter(
+                criteria(busType, departAfter, departBefore, maxFare, null, SearchResultPager.MAX_LIMIT, null));
+
+        StreamingResponseBody body = out -> {
+            try {
+                busSearchService.stream(from, to, travelDate, STREAM_BATCH_ROUTES, batch -> {
+                    try {
+                        for (Map<String, Object> row : batch) {
+                            if (filter.test(row)) writeLine(out, row);
+                        }
+                        out.flush();
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
                     }
-                }
-                if (newFare > 0) {
-                    minFare = Math.min(minFare, newFare);
-                }
+                });
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
             }
-            return Double.isFinite(minFare) ? minFare : 0.0;
-        } catch (Exception e) {
-            return 0.0;
+        };
+        return ResponseEntity.ok().contentType(MediaType.parseMediaType("application/x-ndjson")).body(body);
+    }
+
+    private void writeLine(OutputStream out, Map<String, Object> row) throws IOException {
+        out.write(objectMapper.writeValueAsBytes(row));
+        out.write('\n');
+    }
+
+    private static SearchResultPager.Criteria criteria(String busType, String departAfter, String departBefore,
+                                                       Double maxFare, String sort, int limit, String cursor) {
+        return new SearchResultPager.Criteria(busType,
+                departAfter == null || departAfter.isBlank() ? null : LocalTime.parse(departAfter),
+                departBefore == null || departBefore.isBlank() ? null : LocalTime.parse(departBefore),
+                maxFare, sort, limit, cursor);
+    }
+
+    // ✅ Journeys with up to two transfers between routes
+    @GetMapping("/api/search-connections")
+    @ResponseBody
+    public Map<String, Object> searchConnections(@RequestParam String from, @RequestParam String to, @RequestParam String date,
+                                                 @RequestParam(defaultValue = "00:00") String after,
+                                                 @RequestParam(defaultValue = "2") int maxTransfers,
+                                                 @RequestParam(defaultValue = "15") int minConnectionMinutes) {
+        return connectionSearchService.search(from, to, LocalDate.parse(date), LocalTime.parse(after),
+                maxTransfers, minConnectionMinutes);
+    }
+
+    // ✅ Cheapest fare and trip count per day, at most 92 days
+    @GetMapping("/api/fare-calendar")
+    @ResponseBody
+    public ResponseEntity<?> getFareCalendar(@RequestParam String from, @RequestParam String to,
+                                             @RequestParam String start, @RequestParam(required = false) String end) {
+        LocalDate startDate = LocalDate.parse(start);
+        LocalDate endDate = end == null ? startDate.plusMonths(1).minusDays(1) : LocalDate.parse(end);
+        if (endDate.isBefore(startDate) || endDate.isAfter(startDate.plusDays(91))) {
+            return ResponseEntity.badRequest().body("❌ Invalid date range (max 92 days).");
         }
+        return ResponseEntity.ok(fareCalendarService.calendar(from, to, startDate, endDate));
     }
 
     @GetMapping("/api/route/stops/{busId}")
@@ -135,24 +191,87 @@ public class UserController {
                 .orElse(Collections.emptyList());
     }
 
+    // ✅ Seats taken on any segment of from → to (whole route when omitted): {booked, held}
     @GetMapping("/api/booked-seats")
     @ResponseBody
-    public List<String> getBookedSeats(@RequestParam String busId, @RequestParam String date) {
-        return bookingRepository.findByBusIdAndTravelDate(busId, date).stream()
-                .map(Booking::getSeatNumber)
-                .toList();
+    public Map<String, List<String>> getBookedSeats(@RequestParam String busId, @RequestParam String date,
+                                                    @RequestParam(required = false) String from,
+                                                    @RequestParam(required = false) String to) {
+        LocalDate travelDate = LocalDate.parse(date);
+        Map<String, List<String>> seats = new HashMap<>();
+        seats.put("booked", seatInventory.occupiedSeats(busId, travelDate, from, to));
+        seats.put("held", seatInventory.heldSeats(busId, travelDate, from, to));
+        return seats;
+    }
+
+    // ✅ Layout, occupancy, stops and fares for the seat screen in one call; 304 while the trip is unchanged
+    @GetMapping("/api/trip-snapshot")
+    @ResponseBody
+    public ResponseEntity<TripSnapshotService.TripSnapshot> getTripSnapshot(@RequestParam String busId, @RequestParam String date,
+                                                                           @RequestParam(required = false) String from,
+                                                                           @RequestParam(required = false) String to,
+                                                                           WebRequest request) {
+        LocalDate travelDate = LocalDate.parse(date);
+        String etag = tripSnapshotService.etag(busId, travelDate);
+        if (request.checkNotModified(etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).cacheControl(CacheControl.noCache()).build();
+        }
+        TripSnapshotService.TripSnapshot snapshot = tripSnapshotService.snapshot(busId, travelDate, from, to);
+        return ResponseEntity.ok()
+                .eTag(tripSnapshotService.etag(snapshot.version()))
+                .cacheControl(CacheControl.noCache())
+                .body(snapshot);
+    }
+
+    // ✅ Live seat changes for an open seat map (Server-Sent Events, "seats" events carrying a SeatDelta)
+    @GetMapping(value = "/api/seat-events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @ResponseBody
+    public SseEmitter streamSeatEvents(@RequestParam String busId, @RequestParam String date,
+                                       @RequestParam(required = false) String from,
+                                       @RequestParam(required = false) String to) {
+        return seatEventHub.subscribe(busId, LocalDate.parse(date), from, to);
+    }
+
+    // ✅ Hold the party's seats while payment is in progress
+    @PostMapping("/api/seat-holds")
+    @ResponseBody
+    public ResponseEntity<Map<String, Object>> holdSeats(@RequestBody List<Booking> seats, Principal principal) {
+        SeatHoldService.HoldResult result = seatHoldService.hold(seats, principal.getName());
+        Map<String, Object> body = new HashMap<>();
+        if (!result.conflictingSeats().isEmpty()) {
+            body.put("message", "❌ Seats already booked or held: " + String.join(", ", result.conflictingSeats()));
+            body.put("conflictingSeats", result.conflictingSeats());
+            return ResponseEntity.status(409).body(body);
+        }
+        if (result.error() != null) {
+            body.put("message", result.error());
+            return ResponseEntity.badRequest().body(body);
+        }
+        body.put("holdId", result.hold().id());
+        body.put("expiresAt", result.hold().expiresAt());
+        return ResponseEntity.ok(body);
+    }
+
+    @DeleteMapping("/api/seat-holds/{holdId}")
+    @ResponseBody
+    public ResponseEntity<String> releaseHold(@PathVariable String holdId, Principal principal) {
+        return seatHoldService.release(holdId, principal.getName())
+                ? ResponseEntity.ok("✅ Hold released.")
+                : ResponseEntity.status(404).body("❌ Hold not found or already expired.");
     }
 
     @GetMapping("/api/bookings/by-user/{email}")
     @ResponseBody
     public List<Map<String, Object>> getBookingsByUser(@PathVariable String email) {
         List<Booking> bookings = bookingRepository.findByCustomerEmail(email);
+        // One findAllById for every bus on the history instead of a lookup per booking
+        BatchLoader<String, Bus> buses = joinLoaders.buses().prime(bookings.stream().map(Booking::getBusId).toList());
         List<Map<String, Object>> enriched = new ArrayList<>();
         for (Booking booking : bookings) {
             Map<String, Object> entry = new HashMap<>();
             entry.put("id", booking.getId());
             entry.put("busId", booking.getBusId());
-            entry.put("busName", busRepository.findById(booking.getBusId()).map(Bus::getBusName).orElse("Unknown Bus"));
+            entry.put("busName", buses.get(booking.getBusId()).map(Bus::getBusName).orElse("Unknown Bus"));
             entry.put("routeFrom", booking.getPassengerFrom());
             entry.put("routeTo", booking.getPassengerTo());
             entry.put("travelDate", booking.getTravelDate());
@@ -169,76 +288,132 @@ public class UserController {
 
     @PostMapping("/api/bookings/book")
     @ResponseBody
-    public ResponseEntity<String> bookTicket(@RequestBody Booking booking) {
-        if (bookingRepository.existsByBusIdAndTravelDateAndSeatNumber(
-                booking.getBusId(), booking.getTravelDate(), booking.getSeatNumber())) {
-            return ResponseEntity.status(409).body("❌ Seat already booked.");
-        }
+    public ResponseEntity<String> bookTicket(@RequestBody Booking booking,
+                                             @RequestHeader(value = IdempotencyStore.HEADER, required = false) String idempotencyKey,
+                                             Principal principal) {
+        return idempotencyStore.execute("book", idempotencyKey, principal, booking, () -> {
+            BookingService.PartyResult result = bookingService.bookParty(List.of(booking));
+            if (!result.conflictingSeats().isEmpty()) {
+                return ResponseEntity.status(409).body("❌ Seat already booked.");
+            }
+            if (result.error() != null) {
+                return ResponseEntity.badRequest().body(result.error());
+            }
+            return ResponseEntity.ok("✅ Booking confirmed. ₹" + booking.getFare());
+        });
+    }
 
-        // Validate bus/route exist
-        Optional<Bus> busOpt = busRepository.findById(booking.getBusId());
-        Optional<Route> routeOpt = routeRepository.findByBusId(booking.getBusId()).stream().findFirst();
-        if (busOpt.isEmpty() || routeOpt.isEmpty()) {
-            return ResponseEntity.badRequest().body("❌ Bus or Route not found.");
-        }
+    // ✅ Book a whole party at once: every seat is confirmed, or none is
+    @PostMapping("/api/bookings/book-party")
+    @ResponseBody
+    public ResponseEntity<Map<String, Object>> bookParty(@RequestBody List<Booking> bookings,
+                                                         @RequestParam(required = false) String holdId,
+                                                         @RequestHeader(value = IdempotencyStore.HEADER, required = false) String idempotencyKey,
+                                                         Principal principal) {
+        return idempotencyStore.execute("book-party", idempotencyKey, principal, bookings, () -> {
+            BookingService.PartyResult result = bookingService.bookParty(bookings, holdId, principal.getName());
+            Map<String, Object> body = new HashMap<>();
+            if (!result.conflictingSeats().isEmpty()) {
+                body.put("message", "❌ Seats already booked: " + String.join(", ", result.conflictingSeats()));
+                body.put("conflictingSeats", result.conflictingSeats());
+                return ResponseEntity.status(409).body(body);
+            }
+            if (result.error() != null) {
+                body.put("message", result.error());
+                return ResponseEntity.badRequest().body(body);
+            }
+            body.put("message", "✅ Booking confirmed for " + result.booked().size() + " seat(s).");
+            body.put("bookingIds", result.booked().stream().map(Booking::getId).toList());
+            body.put("totalFare", Math.round(result.booked().stream().mapToDouble(Booking::getFare).sum() * 100.0) / 100.0);
+            return ResponseEntity.ok(body);
+        });
+    }
 
-        // Validate seat exists and get its base price (for sanity bounds)
-        double seatPrice = seatLayoutRepository.findByBusId(booking.getBusId())
-                .flatMap(layout -> layout.getSeats().stream()
-                        .filter(s -> s.getNumber().equalsIgnoreCase(booking.getSeatNumber()))
-                        .findFirst())
-                .map(SeatLayout.Seat::getPrice)
-                .orElse(0);
-        if (seatPrice <= 0) {
-            return ResponseEntity.badRequest().body("❌ Seat not found in layout.");
-        }
+    // ✅ Whole checkout in one request: verify payment, book every passenger, email the tickets
+    @PostMapping("/api/checkout")
+    @ResponseBody
+    public ResponseEntity<Map<String, Object>> checkout(@RequestBody CheckoutService.Checkout request,
+                                                        @RequestHeader(value = IdempotencyStore.HEADER, required = false) String idempotencyKey,
+                                                        Principal principal) {
+        return idempotencyStore.execute("checkout", idempotencyKey, principal, request, () -> {
+            CheckoutService.CheckoutResult result = checkoutService.checkout(request, principal.getName());
+            Map<String, Object> body = new HashMap<>();
+            if (result.party() != null && !result.party().conflictingSeats().isEmpty()) {
+                body.put("message", "❌ Seats already booked: " + String.join(", ", result.party().conflictingSeats()));
+                body.put("conflictingSeats", result.party().conflictingSeats());
+                return ResponseEntity.status(409).body(body);
+            }
+            if (result.error() != null) {
+                body.put("message", result.error());
+                return ResponseEntity.badRequest().body(body);
+            }
+            body.put("message", result.emailed() ? "✅ Booking confirmed. 📧 Ticket emailed successfully." : "✅ Booking confirmed.");
+            body.put("bookingIds", result.bookingIds());
+            body.put("totalFare", result.totalFare());
+            body.put("emailed", result.emailed());
+            return ResponseEntity.ok(body);
+        });
+    }
 
-        // Use the fare sent by the client (already charged in Razorpay), with simple bounds
-        double clientFare = booking.getFare();
-        if (clientFare <= 0) {
-            return ResponseEntity.badRequest().body("❌ Invalid fare.");
-        }
-        clientFare = Math.max(50.0, clientFare);   // minimum fare
-        clientFare = Math.min(clientFare, seatPrice); // optional: cap to seat base price
+    @PostMapping("/api/finalize-booking")
+    @ResponseBody
+    public ResponseEntity<String> finalizeBooking(@RequestBody Map<String, Object> payload,
+                                                  @RequestHeader(value = IdempotencyStore.HEADER, required = false) String idempotencyKey,
+                                                  Principal principal) {
+        return idempotencyStore.execute("finalize-booking", idempotencyKey, principal, payload, () -> {
+            String email = (String) payload.get("email");
+            String busId = (String) payload.get("busId");
+            String travelDateStr = (String) payload.get("travelDate");
+            List<String> seatNumbers = (List<String>) payload.get("seatNumbers");
+            if (email == null || busId == null || travelDateStr == null || seatNumbers == null) {
+                return ResponseEntity.badRequest().body("Missing required fields.");
+            }
 
-        booking.setFare(Math.round(clientFare * 100.0) / 100.0);
-        booking.setStatus("CONFIRMED");
-        bookingRepository.save(booking);
+            List<Booking> bookings = bookingRepository.findByBusIdAndTravelDateAndSeatNumberIn(busId, LocalDate.parse(travelDateStr), seatNumbers).stream()
+                    .filter(b -> email.equals(b.getCustomerEmail()))
+                    .toList();
+            if (bookings.isEmpty()) {
+                return ResponseEntity.badRequest().body("No bookings or schedule found for finalization.");
+            }
+            return checkoutService.emailTickets(email, bookings)
+                    ? ResponseEntity.ok("📧 Ticket emailed successfully.")
+                    : ResponseEntity.status(500).body("❌ Failed to generate/send ticket.");
+        });
+    }
 
-        return ResponseEntity.ok("✅ Booking confirmed. ₹" + booking.getFare());
+    // ✅ Cancel one of the signed-in user's bookings
+    @PostMapping("/api/bookings/{bookingId}/cancel")
+    @ResponseBody
+    public ResponseEntity<String> cancelBooking(@PathVariable String bookingId, Principal principal) {
+        BookingService.CancelResult result = bookingService.cancel(bookingId, principal.getName());
+        if (result.error() != null) return ResponseEntity.badRequest().body(result.error());
+        return ResponseEntity.ok("✅ Booking cancelled for seat " + result.booking().getSeatNumber() + ".");
     }
 
-    @PostMapping("/api/finalize-booking")
+    // ✅ Join the waitlist for a sold-out seat type on a leg
+    @PostMapping("/api/waitlist")
     @ResponseBody
-    public ResponseEntity<String> finalizeBooking(@RequestBody Map<String, Object> payload) {
-        String email = (String) payload.get("email");
-        String busId = (String) payload.get("busId");
-        String travelDateStr = (String) payload.get("travelDate");
-        List<String> seatNumbers = (List<String>) payload.get("seatNumbers");
-        if (email == null || busId == null || travelDateStr == null || seatNumbers == null) {
-            return ResponseEntity.badRequest().body("Missing required fields.");
-        }
+    public ResponseEntity<?> joinWaitlist(@RequestBody WaitlistEntry request, Principal principal) {
+        request.setCustomerEmail(principal.getName());
+        request.setPriority(0); // priority is set by operators, not by passengers
+        WaitlistService.JoinResult result = waitlistService.join(request);
+        if (result.error() != null) return ResponseEntity.badRequest().body(result.error());
+        return ResponseEntity.ok(result.entry());
+    }
 
-        List<Booking> bookings = bookingRepository.findByCustomerEmail(email).stream()
-                .filter(b -> b.getBusId().equals(busId)
-                        && b.getTravelDate().equals(travelDateStr)
-                        && seatNumbers.contains(b.getSeatNumber()))
-                .toList();
+    // ✅ The signed-in user's waitlist entries, including seats currently offered to them
+    @GetMapping("/api/waitlist")
+    @ResponseBody
+    public List<WaitlistEntry> getMyWaitlist(Principal principal) {
+        return waitlistService.entriesFor(principal.getName());
+    }
 
-        Optional<Bus> busOpt = busRepository.findById(busId);
-        Optional<TripSchedule> scheduleOpt = tripScheduleRepository.findByBusIdAndDate(busId, LocalDate.parse(travelDateStr)).stream().findFirst();
-        if (bookings.isEmpty() || busOpt.isEmpty() || scheduleOpt.isEmpty()) {
-            return ResponseEntity.badRequest().body("No bookings or schedule found for finalization.");
-        }
-        try {
-            Optional<Agent> agentOpt = agentRepository.findById(busOpt.get().getOperatorId());
-            byte[] pdf = TicketPDFGenerator.generateTicketPDF(bookings, busOpt.get(), scheduleOpt.get(), agentOpt.orElse(null));
-            emailService.sendTicket(email, pdf, "ticket.pdf", bookings, busOpt.get());
-            return ResponseEntity.ok("📧 Ticket emailed successfully.");
-        } catch (Exception e) {
-            e.printStackTrace();
-            return ResponseEntity.status(500).body("❌ Failed to generate/send ticket.");
-        }
+    @DeleteMapping("/api/waitlist/{entryId}")
+    @ResponseBody
+    public ResponseEntity<String> leaveWaitlist(@PathVariable String entryId, Principal principal) {
+        return waitlistService.cancel(entryId, principal.getName())
+                ? ResponseEntity.ok("✅ Removed from the waitlist.")
+                : ResponseEntity.status(404).body("❌ Waitlist entry not found.");
     }
 
     @GetMapping("/api/bookings/download-ticket/{bookingId}")
@@ -249,7 +424,7 @@ public class UserController {
         }
         Booking booking = bookingOpt.get();
         Optional<Bus> busOpt = busRepository.findById(booking.getBusId());
-        Optional<TripSchedule> scheduleOpt = tripScheduleRepository.findByBusIdAndDate(booking.getBusId(), LocalDate.parse(booking.getTravelDate())).stream().findFirst();
+        Optional<TripSchedule> scheduleOpt = tripScheduleRepository.findByBusIdAndDate(booking.getBusId(), booking.getTravelDate()).stream().findFirst();
         if (busOpt.isEmpty() || scheduleOpt.isEmpty()) {
             return ResponseEntity.badRequest().build();
         }
@@ -270,4 +445,10 @@ public class UserController {
     public String showPassengerDetailsPage() {
         return "passenger-details";
     }
-}
\ No newline at end of file
+
+    // ✅ A malformed date or time in a request parameter or body is the caller's mistake: 400, not 500
+    @ExceptionHandler(DateTimeParseException.class)
+    public ResponseEntity<String> invalidDate(DateTimeParseException e) {
+        return ResponseEntity.badRequest().body("❌ Invalid date or time: " + e.getParsedString());
+    }
+}
@@ -2,17 +2,31 @@ package com.OnlineBusBooking.OnlineBus.model;
 
 import lombok.Data;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
 import org.springframework.data.mongodb.core.mapping.Document;
 
+import java.time.LocalDate;
+import java.util.Date;
+
 @Data
 @Document(collection = "bookings")
+// Same seat boarding or alighting at the same stop always overlaps; partial overlaps are caught by SeatInventory
+@CompoundIndex(name = "bus_date_seat_from_unique", def = "{'busId': 1, 'travelDate': 1, 'seatNumber': 1, 'passengerFrom': 1}", unique = true)
+@CompoundIndex(name = "bus_date_seat_to_unique", def = "{'busId': 1, 'travelDate': 1, 'seatNumber': 1, 'passengerTo': 1}", unique = true)
+// (busId, travelDate) lookups use the prefix of the unique indexes above
+@CompoundIndex(name = "customer_date", def = "{'customerEmail': 1, 'travelDate': 1}")
+// Agent booking ledger (BookingLedgerService): newest first, keyset on (travelDate, _id). The unique indexes
+// above cover (busId, travelDate) but not the _id tie-break, so without bus_date_id every unfiltered ledger page
+// would sort all of the operator's bookings in memory; the status filter needs its own index for the same reason
+@CompoundIndex(name = "bus_date_id", def = "{'busId': 1, 'travelDate': -1, '_id': -1}")
+@CompoundIndex(name = "bus_status_date_id", def = "{'busId': 1, 'status': 1, 'travelDate': -1, '_id': -1}")
 public class Booking {
 
     @Id
     private String id;
 
     private String busId;
-    private String travelDate;
+    private LocalDate travelDate; // stored as a date; BookingDateMigration converts older ISO strings
     private String customerEmail;
 
     private String seatNumber;
@@ -28,5 +42,8 @@ public class Booking {
     private String passengerEmail;
     private String status;
 
+    private String razorpayOrderId;
+    private String razorpayPaymentId;
 
+    private Date cancelledAt; // set when moved to cancelled_bookings; BookingRollupService reads from it
 }
@@ -0,0 +1,23 @@
+package com.OnlineBusBooking.OnlineBus.model;
+
+import lombok.Data;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.util.Date;
+
+@Data
+@Document(collection = "idempotency_keys")
+public class IdempotencyRecord {
+
+    @Id
+    private String id;          // scope + ":" + principal + ":" + Idempotency-Key
+
+    private String fingerprint; // SHA-256 of the original request body's JSON
+    private int status;         // 0 while the first request is still running
+    private Object body;
+
+    @Indexed(expireAfter = "24h")
+    private Date createdAt = new Date();
+}
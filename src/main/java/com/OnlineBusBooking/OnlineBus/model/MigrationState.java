@@ -0,0 +1,21 @@
+package com.OnlineBusBooking.OnlineBus.model;
+
+import lombok.Data;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.util.Date;
+
+@Data
+@Document(collection = "migrations")
+public class MigrationState {
+
+    @Id
+    private String id;          // migration name
+
+    private String lastId;      // _id of the last document processed; the next batch starts after it
+    private long converted;
+    private long skipped;       // unparseable values or clashes with a newer booking, each copied to a quarantine collection
+    private boolean done;
+    private Date updatedAt;
+}
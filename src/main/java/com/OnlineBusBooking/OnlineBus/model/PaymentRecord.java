@@ -13,6 +13,7 @@ public class PaymentRecord {
     private String id;
 
     private String orderId;
+    // A Razorpay payment pays for one checkout only: unique index ensured by CheckoutService once no id is stored twice
     private String paymentId;
     private String receipt;
     private int amount;
@@ -0,0 +1,20 @@
+package com.OnlineBusBooking.OnlineBus.model;
+
+import lombok.Data;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.util.Date;
+
+@Data
+@Document(collection = "rollup_state")
+public class RollupState {
+
+    @Id
+    private String id;
+
+    private String highWaterMark; // booking _id up to which everything is rolled up
+    private Date cancelledHighWaterMark; // cancelled_bookings.cancelledAt up to which cancellations are rolled up
+    private long runs;
+    private Date updatedAt;
+}
@@ -0,0 +1,27 @@
+package com.OnlineBusBooking.OnlineBus.model;
+
+import lombok.Data;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.util.Date;
+
+@Data
+@Document(collection = "sales_rollups")
+@CompoundIndex(name = "granularity_bus_bucket", def = "{'granularity': 1, 'busId': 1, 'bucketStart': 1}")
+public class SalesRollup {
+
+    public static final String HOUR = "HOUR";
+    public static final String DAY = "DAY";
+
+    @Id
+    private String id;          // busId|granularity|bucketStart
+
+    private String busId;
+    private String granularity; // HOUR or DAY, in rollup.zone
+    private Date bucketStart;   // bookings made from here until the next bucket
+    private long bookings;
+    private double revenue;
+    private Date rolledUpAt;    // run that last wrote it; older ones in a recomputed bucket are stale
+}
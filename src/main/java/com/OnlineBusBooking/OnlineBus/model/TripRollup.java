@@ -0,0 +1,25 @@
+package com.OnlineBusBooking.OnlineBus.model;
+
+import lombok.Data;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDate;
+import java.util.Date;
+
+@Data
+@Document(collection = "trip_rollups")
+@CompoundIndex(name = "bus_date", def = "{'busId': 1, 'travelDate': 1}", unique = true)
+public class TripRollup {
+
+    @Id
+    private String id;          // busId|travelDate
+
+    private String busId;
+    private LocalDate travelDate;
+    private long bookings;      // seat legs sold
+    private long seatsSold;     // distinct seats with at least one leg sold
+    private double revenue;
+    private Date rolledUpAt;
+}
@@ -2,6 +2,7 @@ package com.OnlineBusBooking.OnlineBus.model;
 
 import lombok.Data;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 import java.time.LocalDate;
 
@@ -12,6 +13,7 @@ public class TripSchedule {
     private String id;
     private String busId;
     private String routeId;
+    @Indexed // date lookups and the upcoming-trips load in FareCalendarService
     private LocalDate date;
     private String departureTime;
     private String arrivalTime;
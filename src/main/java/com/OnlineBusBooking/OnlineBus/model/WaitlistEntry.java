@@ -0,0 +1,43 @@
+package com.OnlineBusBooking.OnlineBus.model;
+
+import lombok.Data;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDate;
+import java.util.Date;
+
+@Data
+@Document(collection = "waitlist")
+public class WaitlistEntry {
+
+    public static final String WAITING = "WAITING";
+    public static final String OFFERED = "OFFERED";     // a seat is held for the passenger (see holdId)
+    public static final String BOOKED = "BOOKED";       // the offered seat was booked
+    public static final String EXPIRED = "EXPIRED";     // the offer lapsed (the seat went to the next entry), or the trip left
+    public static final String CANCELLED = "CANCELLED";
+
+    @Id
+    private String id;
+
+    private String busId;
+    private String busName;
+    private LocalDate travelDate;
+    private String seatType;
+    private String passengerFrom;
+    private String passengerTo;
+
+    private String customerEmail;
+    private String passengerName;
+    private int priority;       // higher goes first when waitlist.ordering=priority
+
+    @Indexed
+    private String status;
+
+    private String seatNumber;  // set when offered
+    private String holdId;      // pass to checkout to book the offered seat
+    private Date offeredUntil;
+
+    private Date createdAt = new Date();
+}
@@ -2,15 +2,38 @@ package com.OnlineBusBooking.OnlineBus.repository;
 
 import com.OnlineBusBooking.OnlineBus.model.Booking;
 import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.data.mongodb.repository.Query;
 
+import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
 
 public interface BookingRepository extends MongoRepository<Booking, String> {
     List<Booking> findByBusId(String busId);
     List<Booking> findByCustomerEmail(String email);
-    boolean existsByBusIdAndTravelDateAndSeatNumber(String busId, String travelDate, String seatNumber);
-    List<Booking> findByBusIdAndTravelDate(String busId, String travelDate);
+    boolean existsByBusIdAndTravelDateAndSeatNumber(String busId, LocalDate travelDate, String seatNumber);
     List<Booking> findByBusIdIn(List<String> busIds);
 
+    // Trip lookups match both the stored date and the ISO string of documents BookingDateMigration has not reached yet
+    @Query("{ 'busId': ?0, 'travelDate': { $in: [?1, ?2] } }")
+    List<Booking> findByBusIdAndTravelDate(String busId, LocalDate travelDate, String legacyTravelDate);
 
+    default List<Booking> findByBusIdAndTravelDate(String busId, LocalDate travelDate) {
+        return findByBusIdAndTravelDate(busId, travelDate, travelDate.toString());
+    }
+
+    // Seat and leg only, for loading the seat inventory
+    @Query(value = "{ 'busId': ?0, 'travelDate': { $in: [?1, ?2] } }", fields = "{ 'seatNumber': 1, 'passengerFrom': 1, 'passengerTo': 1 }")
+    List<Booking> findSeatLegsByBusIdAndTravelDate(String busId, LocalDate travelDate, String legacyTravelDate);
+
+    default List<Booking> findSeatLegsByBusIdAndTravelDate(String busId, LocalDate travelDate) {
+        return findSeatLegsByBusIdAndTravelDate(busId, travelDate, travelDate.toString());
+    }
+
+    @Query("{ 'busId': ?0, 'travelDate': { $in: [?1, ?2] }, 'seatNumber': { $in: ?3 } }")
+    List<Booking> findByBusIdAndTravelDateAndSeatNumberIn(String busId, LocalDate travelDate, String legacyTravelDate, Collection<String> seatNumbers);
+
+    default List<Booking> findByBusIdAndTravelDateAndSeatNumberIn(String busId, LocalDate travelDate, Collection<String> seatNumbers) {
+        return findByBusIdAndTravelDateAndSeatNumberIn(busId, travelDate, travelDate.toString(), seatNumbers);
+    }
 }
@@ -0,0 +1,7 @@
+package com.OnlineBusBooking.OnlineBus.repository;
+
+import com.OnlineBusBooking.OnlineBus.model.IdempotencyRecord;
+import org.springframework.data.mongodb.repository.MongoRepository;
+
+public interface IdempotencyRecordRepository extends MongoRepository<IdempotencyRecord, String> {
+}
@@ -0,0 +1,7 @@
+package com.OnlineBusBooking.OnlineBus.repository;
+
+import com.OnlineBusBooking.OnlineBus.model.MigrationState;
+import org.springframework.data.mongodb.repository.MongoRepository;
+
+public interface MigrationStateRepository extends MongoRepository<MigrationState, String> {
+}
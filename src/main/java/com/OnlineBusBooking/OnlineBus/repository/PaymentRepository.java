@@ -7,4 +7,6 @@ import com.OnlineBusBooking.OnlineBus.model.PaymentRecord;
 import org.springframework.data.mongodb.repository.MongoRepository;
 
 public interface PaymentRepository extends MongoRepository<PaymentRecord, String> {
+
+    boolean existsByPaymentId(String paymentId);
 }
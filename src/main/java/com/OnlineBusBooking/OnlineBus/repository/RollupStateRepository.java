@@ -0,0 +1,7 @@
+package com.OnlineBusBooking.OnlineBus.repository;
+
+import com.OnlineBusBooking.OnlineBus.model.RollupState;
+import org.springframework.data.mongodb.repository.MongoRepository;
+
+public interface RollupStateRepository extends MongoRepository<RollupState, String> {
+}
@@ -4,11 +4,15 @@ import com.OnlineBusBooking.OnlineBus.model.TripSchedule;
 import org.springframework.data.mongodb.repository.MongoRepository;
 
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
 
 public interface TripScheduleRepository extends MongoRepository<TripSchedule, String> {
     List<TripSchedule> findByBusId(String busId);
     List<TripSchedule> findByBusIdIn(List<String> busIds);
     List<TripSchedule> findByRouteIdAndDate(String routeId, LocalDate date);
+    List<TripSchedule> findByRouteIdInAndDate(Collection<String> routeIds, LocalDate date);
     List<TripSchedule> findByBusIdAndDate(String busId, LocalDate date);// ✅ ADDED
+    List<TripSchedule> findByDate(LocalDate date);
+    List<TripSchedule> findByDateGreaterThanEqual(LocalDate date);
 }
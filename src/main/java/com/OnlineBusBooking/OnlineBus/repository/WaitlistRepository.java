@@ -0,0 +1,11 @@
+package com.OnlineBusBooking.OnlineBus.repository;
+
+import com.OnlineBusBooking.OnlineBus.model.WaitlistEntry;
+import org.springframework.data.mongodb.repository.MongoRepository;
+
+import java.util.List;
+
+public interface WaitlistRepository extends MongoRepository<WaitlistEntry, String> {
+    List<WaitlistEntry> findByStatusOrderByCreatedAtAsc(String status);
+    List<WaitlistEntry> findByCustomerEmail(String customerEmail);
+}
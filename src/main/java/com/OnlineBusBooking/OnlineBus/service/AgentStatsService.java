@@ -0,0 +1,182 @@
+package com.OnlineBusBooking.OnlineBus.service;
+
+import com.OnlineBusBooking.OnlineBus.model.Booking;
+import com.OnlineBusBooking.OnlineBus.model.Bus;
+import com.OnlineBusBooking.OnlineBus.model.Route;
+import com.OnlineBusBooking.OnlineBus.model.TripSchedule;
+import com.OnlineBusBooking.OnlineBus.repository.BusRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Service;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Dashboard totals per operator (buses, routes, schedules, bookings, revenue), kept in
+ * {@link LongAdder}/{@link DoubleAdder} cells so reading them is O(1). An operator's cells are
+ * counted once from Mongo (counts and one `$group`, no documents loaded) on first read, then
+ * moved by the bus, route, schedule and booking write paths. A background pass recounts every
+ * loaded operator every `agent-stats.reconcile-minutes`, correcting writes made by other
+ * instances or raced with a recount.
+ */
+@Service
+public class AgentStatsService {
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private BusRepository busRepository;
+
+    @Value("${agent-stats.reconcile-minutes:10}")
+    private long reconcileMinutes;
+
+    // operator email → counters, only for operators whose stats have been read
+    private final Map<String, Counters> operators = new ConcurrentHashMap<>();
+    // busId → operator email, to attribute route/schedule/booking writes
+    private final Map<String, String> busOwners = new ConcurrentHashMap<>();
+    private ScheduledExecutorService reconciler;
+
+    private static final class Counters {
+        final LongAdder buses = new LongAdder();
+        final LongAdder routes = new LongAdder();
+        final LongAdder schedules = new LongAdder();
+        final LongAdder bookings = new LongAdder();
+        final DoubleAdder revenue = new DoubleAdder();
+    }
+
+    @PostConstruct
+    public void init() {
+        reconciler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "agent-stats-reconcile");
+            thread.setDaemon(true);
+            return thread;
+        });
+        reconciler.scheduleWithFixedDelay(this::reconcile, reconcileMinutes, reconcileMinutes, TimeUnit.MINUTES);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (reconciler != null) reconciler.shutdownNow();
+    }
+
+    // ✅ totalBuses/totalRoutes/totalSchedules/totalBookings/totalRevenue for one operator
+    public Map<String, Object> stats(String operatorEmail) {
+        Counters counters = operators.get(operatorEmail);
+        if (counters == null) {
+            Counters counted = count(operatorEmail);
+            counters = operators.putIfAbsent(operatorEmail, counted);
+            if (counters == null) counters = counted;
+        }
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("totalBuses", counters.buses.sum());
+        stats.put("totalRoutes", counters.routes.sum());
+        stats.put("totalSchedules", counters.schedules.sum());
+        stats.put("totalBookings", counters.bookings.sum());
+        stats.put("totalRevenue", Math.round(counters.revenue.sum()));
+        return stats;
+    }
+
+    // ✅ Bus created or updated; an ownership change drops both operators' cells to be recounted
+    public void busSaved(Bus bus) {
+        if (bus == null || bus.getId() == null) return;
+        String owner = bus.getOperatorId();
+        String previous = owner == null ? busOwners.remove(bus.getId()) : busOwners.put(bus.getId(), owner);
+        if (Objects.equals(previous, owner)) return;
+        if (previous != null) {
+            operators.remove(previous);
+            if (owner != null) operators.remove(owner);
+        } else {
+            Counters counters = operators.get(owner);
+            if (counters != null) counters.buses.increment();
+        }
+    }
+
+    // ✅ Route write (before/after may be null); a route moved to another bus moves between their operators
+    public void routeChanged(Route before, Route after) {
+        Counters removed = before == null ? null : forBus(before.getBusId());
+        if (removed != null) removed.routes.decrement();
+        Counters added = after == null ? null : forBus(after.getBusId());
+        if (added != null) added.routes.increment();
+    }
+
+    // ✅ Schedule write (before/after may be null), mirroring TripScheduleService.scheduleChanged
+    public void scheduleChanged(TripSchedule before, TripSchedule after) {
+        Counters removed = before == null ? null : forBus(before.getBusId());
+        if (removed != null) removed.schedules.decrement();
+        Counters added = after == null ? null : forBus(after.getBusId());
+        if (added != null) added.schedules.increment();
+    }
+
+    public void bookingsAdded(Collection<Booking> bookings) {
+        for (Booking booking : bookings) {
+            Counters counters = forBus(booking.getBusId());
+            if (counters == null) continue;
+            counters.bookings.increment();
+            counters.revenue.add(booking.getFare());
+        }
+    }
+
+    public void bookingRemoved(Booking booking) {
+        Counters counters = booking == null ? null : forBus(booking.getBusId());
+        if (counters == null) return;
+        counters.bookings.decrement();
+        counters.revenue.add(-booking.getFare());
+    }
+
+    // Recounts every loaded operator from Mongo and swaps the fresh cells in
+    void reconcile() {
+        for (String operatorEmail : operators.keySet()) {
+            try {
+                operators.replace(operatorEmail, count(operatorEmail));
+            } catch (RuntimeException e) {
+                e.printStackTrace(); // keep the incremental values until the next pass
+            }
+        }
+    }
+
+    private Counters forBus(String busId) {
+        String owner = busId == null ? null : busOwners.get(busId);
+        return owner == null ? null : operators.get(owner);
+    }
+
+    private Counters count(String operatorEmail) {
+        List<Bus> buses = busRepository.findByOperatorId(operatorEmail);
+        List<String> busIds = buses.stream().map(Bus::getId).toList();
+        busIds.forEach(busId -> busOwners.put(busId, operatorEmail));
+
+        Counters counters = new Counters();
+        counters.buses.add(buses.size());
+        if (busIds.isEmpty()) return counters;
+        Query byBus = Query.query(Criteria.where("busId").in(busIds));
+        counters.routes.add(mongoTemplate.count(byBus, Route.class));
+        counters.schedules.add(mongoTemplate.count(byBus, TripSchedule.class));
+
+        Aggregation totals = Aggregation.newAggregation(
+                Aggregation.match(Criteria.where("busId").in(busIds)),
+                Aggregation.group().count().as("bookings").sum("fare").as("revenue"));
+        Document result = mongoTemplate.aggregate(totals, Booking.class, Document.class).getUniqueMappedResult();
+        if (result != null) {
+            counters.bookings.add(((Number) result.get("bookings")).longValue());
+            counters.revenue.add(((Number) result.get("revenue")).doubleValue());
+        }
+        return counters;
+    }
+}
@@ -0,0 +1,145 @@
+package com.OnlineBusBooking.OnlineBus.service;
+
+import com.OnlineBusBooking.OnlineBus.model.Booking;
+import com.OnlineBusBooking.OnlineBus.model.MigrationState;
+import com.OnlineBusBooking.OnlineBus.repository.MigrationStateRepository;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.bulk.BulkWriteResult;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.data.mongodb.core.schema.JsonSchemaObject;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Converts `bookings.travelDate` from the old ISO string to a date, in the background after
+ * startup. Work is done in `_id` order in small batches with a pause between them, and the last
+ * `_id` is checkpointed in the `migrations` collection, so a restart resumes where it stopped.
+ * Each update only applies if the value is still the string that was read. A booking that
+ * cannot be converted (unparseable, or its date would collide with a booking made since) is
+ * copied to `booking_date_quarantine` with the reason, counted as skipped and reported when
+ * the migration finishes. Until it finishes, BookingRepository's trip queries match both forms.
+ */
+@Service
+public class BookingDateMigration {
+
+    static final String ID = "booking-travel-date";
+
+    // Bookings left with a string travelDate, one document per booking `_id`, for manual repair
+    static final String QUARANTINE = "booking_date_quarantine";
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private MigrationStateRepository migrationStateRepository;
+
+    @Value("${migration.booking-date.enabled:true}")
+    private boolean enabled;
+
+    @Value("${migration.booking-date.batch-size:500}")
+    private int batchSize;
+
+    @Value("${migration.booking-date.pause-ms:200}")
+    private long pauseMillis;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!enabled) return;
+        Thread thread = new Thread(this::run, "booking-date-migration");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private void run() {
+        try {
+            while (migrateBatch()) {
+                Thread.sleep(pauseMillis);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException e) {
+            e.printStackTrace(); // picked up again from the checkpoint on the next start
+        }
+    }
+
+    // ✅ Converts one batch after the checkpoint; false once there is nothing left
+    boolean migrateBatch() {
+        MigrationState state = migrationStateRepository.findById(ID).orElseGet(() -> {
+            MigrationState fresh = new MigrationState();
+            fresh.setId(ID);
+            return fresh;
+        });
+        if (state.isDone()) return false;
+
+        Criteria criteria = Criteria.where("travelDate").type(JsonSchemaObject.Type.STRING);
+        if (state.getLastId() != null) criteria = criteria.and("_id").gt(new ObjectId(state.getLastId()));
+        Query query = new Query(criteria).with(Sort.by("_id")).limit(batchSize);
+        query.fields().include("_id", "travelDate");
+        String collection = mongoTemplate.getCollectionName(Booking.class);
+        List<Document> batch = mongoTemplate.find(query, Document.class, collection);
+
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, collection);
+        List<Document> queued = new ArrayList<>();
+        for (Document doc : batch) {
+            String legacy = doc.getString("travelDate");
+            Object date; // stored exactly as the mapping layer writes a LocalDate
+            try {
+                date = mongoTemplate.getConverter().convertToMongoType(LocalDate.parse(legacy.trim()));
+            } catch (DateTimeParseException e) {
+                quarantine(state, doc, "unparseable travelDate");
+                continue;
+            }
+            bulk.updateOne(Query.query(Criteria.where("_id").is(doc.get("_id")).and("travelDate").is(legacy)),
+                    Update.update("travelDate", date));
+            queued.add(doc);
+        }
+        if (!queued.isEmpty()) {
+            try {
+                BulkWriteResult result = bulk.execute();
+                state.setConverted(state.getConverted() + result.getModifiedCount());
+            } catch (BulkOperationException e) {
+                // e.g. the converted key now collides with a booking made since; that one stays a string
+                state.setConverted(state.getConverted() + e.getResult().getModifiedCount());
+                for (BulkWriteError error : e.getErrors()) {
+                    quarantine(state, queued.get(error.getIndex()), "update failed (" + error.getCode() + "): " + error.getMessage());
+                }
+            }
+        }
+
+        if (!batch.isEmpty()) state.setLastId(batch.get(batch.size() - 1).getObjectId("_id").toHexString());
+        state.setDone(batch.size() < batchSize);
+        state.setUpdatedAt(new Date());
+        migrationStateRepository.save(state);
+        if (state.isDone() && state.getSkipped() > 0) {
+            System.out.println("⚠️ Booking date migration finished with " + state.getSkipped()
+                    + " booking(s) left unconverted; see the " + QUARANTINE + " collection.");
+        }
+        return !state.isDone();
+    }
+
+    private void quarantine(MigrationState state, Document booking, String reason) {
+        Document entry = new Document("_id", booking.get("_id"))
+                .append("travelDate", booking.get("travelDate"))
+                .append("reason", reason)
+                .append("quarantinedAt", new Date());
+        mongoTemplate.save(entry, QUARANTINE);
+        state.setSkipped(state.getSkipped() + 1);
+    }
+}
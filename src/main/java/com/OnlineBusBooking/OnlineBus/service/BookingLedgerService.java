@@ -0,0 +1,132 @@
+package com.OnlineBusBooking.OnlineBus.service;
+
+import com.OnlineBusBooking.OnlineBus.model.Booking;
+import com.OnlineBusBooking.OnlineBus.model.Bus;
+import com.OnlineBusBooking.OnlineBus.repository.BusRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The operator's booking ledger, newest travel date first, one page at a time. Pages are
+ * keyset-paginated on (travelDate, _id) so deep pages cost the same as the first, only the
+ * ledger columns are read from Mongo, and bus names come from the operator's bus list that
+ * is already loaded to scope the query. The unfiltered ledger is served by the `bus_date_id`
+ * index on Booking and a status filter by `bus_status_date_id`; both end in (travelDate, _id)
+ * descending, so a page is an index range scan with no in-memory sort.
+ */
+@Service
+public class BookingLedgerService {
+
+    public static final int MAX_LIMIT = 200;
+
+    private static final String[] COLUMNS = {"busId", "travelDate", "seatNumber", "fare", "status", "passengerName",
+            "passengerMobile", "customerEmail", "passengerFrom", "passengerTo"};
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private BusRepository busRepository;
+
+    public record Filter(String busId, String status, LocalDate from, LocalDate to, int limit, String cursor) {
+
+        public Filter {
+            limit = Math.min(Math.max(limit, 1), MAX_LIMIT);
+            status = status == null || status.isBlank() ? null : status.trim().toUpperCase();
+            busId = busId == null || busId.isBlank() ? null : busId;
+        }
+    }
+
+    // ✅ {items, nextCursor}: one page of the operator's bookings; pass nextCursor back as `cursor`
+    public Map<String, Object> page(String operatorEmail, Filter filter) {
+        Map<String, String> busNames = new HashMap<>();
+        for (Bus bus : busRepository.findByOperatorId(operatorEmail)) busNames.put(bus.getId(), bus.getBusName());
+
+        List<String> busIds = filter.busId() == null ? new ArrayList<>(busNames.keySet())
+                : busNames.containsKey(filter.busId()) ? List.of(filter.busId()) : List.of();
+        Map<String, Object> page = new LinkedHashMap<>();
+        if (busIds.isEmpty()) {
+            page.put("items", List.of());
+            page.put("nextCursor", null);
+            return page;
+        }
+
+        Criteria criteria = Criteria.where("busId").in(busIds);
+        if (filter.status() != null) criteria = criteria.and("status").is(filter.status());
+        if (filter.from() != null || filter.to() != null) {
+            Criteria range = criteria.and("travelDate");
+            if (filter.from() != null) range.gte(filter.from());
+            if (filter.to() != null) range.lte(filter.to());
+        }
+        Cursor after = decodeCursor(filter.cursor());
+        Query query = new Query(criteria);
+        if (after != null) {
+            query.addCriteria(new Criteria().orOperator(
+                    Criteria.where("travelDate").lt(after.travelDate()),
+                    new Criteria().andOperator(Criteria.where("travelDate").is(after.travelDate()),
+                            Criteria.where("_id").lt(after.id()))));
+        }
+        query.with(Sort.by(Sort.Direction.DESC, "travelDate", "_id")).limit(filter.limit() + 1);
+        query.fields().include(COLUMNS);
+
+        List<Booking> bookings = mongoTemplate.find(query, Booking.class);
+        String nextCursor = null;
+        if (bookings.size() > filter.limit()) {
+            bookings = bookings.subList(0, filter.limit());
+            Booking last = bookings.get(bookings.size() - 1);
+            nextCursor = encodeCursor(last.getTravelDate(), last.getId());
+        }
+
+        List<Map<String, Object>> items = new ArrayList<>(bookings.size());
+        for (Booking booking : bookings) {
+            Map<String, Object> row = new HashMap<>();
+            row.put("id", booking.getId());
+            row.put("busId", booking.getBusId());
+            row.put("busName", busNames.getOrDefault(booking.getBusId(), "Unknown Bus"));
+            row.put("routeFrom", booking.getPassengerFrom());
+            row.put("routeTo", booking.getPassengerTo());
+            row.put("travelDate", booking.getTravelDate());
+            row.put("seatNumber", booking.getSeatNumber());
+            row.put("fare", booking.getFare());
+            row.put("status", booking.getStatus());
+            row.put("passengerName", booking.getPassengerName());
+            row.put("passengerMobile", booking.getPassengerMobile());
+            row.put("email", booking.getCustomerEmail());
+            items.add(row);
+        }
+        page.put("items", items);
+        page.put("nextCursor", nextCursor);
+        return page;
+    }
+
+    private record Cursor(LocalDate travelDate, String id) {}
+
+    private static String encodeCursor(LocalDate travelDate, String id) {
+        String raw = travelDate + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static Cursor decodeCursor(String cursor) {
+        if (cursor == null || cursor.isBlank()) return null;
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int bar = raw.indexOf('|');
+            return new Cursor(LocalDate.parse(raw.substring(0, bar)), raw.substring(bar + 1));
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid cursor", e);
+        }
+    }
+}
@@ -0,0 +1,404 @@
+package com.OnlineBusBooking.OnlineBus.service;
+
+import com.OnlineBusBooking.OnlineBus.model.Booking;
+import com.OnlineBusBooking.OnlineBus.model.Bus;
+import com.OnlineBusBooking.OnlineBus.model.RollupState;
+import com.OnlineBusBooking.OnlineBus.model.Route;
+import com.OnlineBusBooking.OnlineBus.model.SalesRollup;
+import com.OnlineBusBooking.OnlineBus.model.TripRollup;
+import com.OnlineBusBooking.OnlineBus.repository.RollupStateRepository;
+import com.OnlineBusBooking.OnlineBus.repository.RouteRepository;
+import jakarta.annotation.PreDestroy;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOperation;
+import org.springframework.data.mongodb.core.aggregation.TypedAggregation;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.time.DayOfWeek;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hourly/daily sales buckets per bus (by booking time, from the booking `_id` timestamp) and
+ * per-trip load (by travel date), rolled up with aggregation pipelines into `sales_rollups`
+ * and `trip_rollups`. Each run only looks at bookings after the high-water mark in
+ * `rollup_state`, finds the hours and trips they fall in, and recomputes just those buckets in
+ * full, so a run is idempotent and history is never rescanned. Cancellations are found the same
+ * way through a second high-water mark over `cancelled_bookings.cancelledAt`, so nothing is held
+ * in memory between runs and a restart loses nothing. Both marks trail "now" by
+ * `rollup.lag-seconds` so writes still in flight are not skipped. The analytics endpoints read
+ * only the rollup collections. Bucketing uses `$dateTrunc`, which needs MongoDB 5.0 or later.
+ */
+@Service
+public class BookingRollupService {
+
+    static final String ID = "booking-rollups";
+    private static final int CHUNK = 200;
+    private static final long MAX_HOURLY_DAYS = 7;
+    private static final long MAX_DAYS = 731;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private RollupStateRepository rollupStateRepository;
+
+    @Autowired
+    private RouteRepository routeRepository;
+
+    @Value("${rollup.enabled:true}")
+    private boolean enabled;
+
+    @Value("${rollup.interval-minutes:5}")
+    private long intervalMinutes;
+
+    @Value("${rollup.lag-seconds:60}")
+    private long lagSeconds;
+
+    @Value("${rollup.zone:Asia/Kolkata}")
+    private ZoneId zone;
+
+    private ScheduledExecutorService scheduler;
+
+    public record Point(String bucket, long bookings, double revenue) {}
+
+    record Trip(String busId, LocalDate travelDate) {}
+
+    record Touched(Date hour, String busId, LocalDate travelDate) {}
+
+    record Bucket(String busId, Date bucketStart, long bookings, double revenue) {}
+
+    record TripTotals(String busId, LocalDate travelDate, long bookings, long seatsSold, double revenue) {}
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!enabled) return;
+        mongoTemplate.indexOps(BookingService.CANCELLED_COLLECTION).ensureIndex(new Index("cancelledAt", Sort.Direction.ASC));
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "booking-rollups");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                rollUp();
+            } catch (RuntimeException e) {
+                e.printStackTrace(); // retried from the same high-water mark on the next run
+            }
+        }, 0, intervalMinutes, TimeUnit.MINUTES);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (scheduler != null) scheduler.shutdownNow();
+    }
+
+    // ✅ One incremental run: bookings and cancellations after their high-water marks
+    synchronized void rollUp() {
+        RollupState state = rollupStateRepository.findById(ID).orElseGet(() -> {
+            RollupState fresh = new RollupState();
+            fresh.setId(ID);
+            return fresh;
+        });
+        Instant until = Instant.now().minusSeconds(lagSeconds);
+        ObjectId from = state.getHighWaterMark() == null ? null : new ObjectId(state.getHighWaterMark());
+        ObjectId to = boundary(until);
+        Date cancelledFrom = state.getCancelledHighWaterMark();
+        Date cancelledTo = Date.from(until);
+        boolean booked = from == null || from.compareTo(to) < 0;
+
+        Set<Instant> hours = new TreeSet<>();
+        Set<Trip> trips = new HashSet<>();
+        if (booked) {
+            Criteria range = Criteria.where("_id").lt(to);
+            if (from != null) range = range.gte(from);
+            collectTouched(mongoTemplate.getCollectionName(Booking.class), range, hours, trips);
+        }
+        if (cancelledFrom == null || cancelledFrom.before(cancelledTo)) {
+            Criteria range = Criteria.where("cancelledAt").lt(cancelledTo);
+            if (cancelledFrom != null) range = range.gte(cancelledFrom);
+            collectTouched(BookingService.CANCELLED_COLLECTION, range, hours, trips);
+        }
+        Date stamp = new Date();
+        rollUpHours(hours, stamp);
+        Set<LocalDate> days = new TreeSet<>();
+        hours.forEach(hour -> days.add(LocalDate.ofInstant(hour, zone)));
+        rollUpDays(days, stamp);
+        rollUpTrips(trips);
+
+        // Marks only move after every bucket is written, so a failed run is simply repeated
+        if (booked) state.setHighWaterMark(to.toHexString());
+        if (cancelledFrom == null || cancelledFrom.before(cancelledTo)) state.setCancelledHighWaterMark(cancelledTo);
+        state.setRuns(state.getRuns() + 1);
+        state.setUpdatedAt(new Date());
+        rollupStateRepository.save(state);
+    }
+
+    // Distinct (booking hour, bus, travel date) of the matching documents; cancelled ones keep their booking _id
+    private void collectTouched(String collection, Criteria range, Set<Instant> hours, Set<Trip> trips) {
+        Aggregation aggregation = Aggregation.newAggregation(
+                Aggregation.match(range),
+                stage(new Document("$group", new Document("_id", new Document("hour", truncate(new Document("$toDate", "$_id"), "hour"))
+                        .append("busId", "$busId").append("travelDate", "$travelDate")))),
+                stage(new Document("$project", new Document("_id", 0).append("hour", "$_id.hour")
+                        .append("busId", "$_id.busId").append("travelDate", "$_id.travelDate"))));
+        for (Touched touched : mongoTemplate.aggregate(aggregation, collection, Touched.class)) {
+            hours.add(touched.hour().toInstant());
+            if (touched.busId() != null && touched.travelDate() != null) {
+                trips.add(new Trip(touched.busId(), touched.travelDate()));
+            }
+        }
+    }
+
+    // Every listed hour recomputed from its bookings; an _id range per hour keeps this on the _id index
+    private void rollUpHours(Collection<Instant> hours, Date stamp) {
+        for (List<Instant> chunk : chunks(hours)) {
+            List<Criteria> ranges = new ArrayList<>();
+            for (Instant hour : chunk) {
+                ranges.add(Criteria.where("_id").gte(boundary(hour)).lt(boundary(hour.plus(1, ChronoUnit.HOURS))));
+            }
+            TypedAggregation<?> aggregation = Aggregation.newAggregation(Booking.class,
+                    Aggregation.match(new Criteria().orOperator(ranges)),
+                    stage(new Document("$group", new Document("_id", new Document("busId", "$busId")
+                            .append("bucketStart", truncate(new Document("$toDate", "$_id"), "hour")))
+                            .append("bookings", new Document("$sum", 1))
+                            .append("revenue", new Document("$sum", "$fare")))),
+                    bucketProjection());
+            List<Bucket> buckets = mongoTemplate.aggregate(aggregation, Bucket.class).getMappedResults();
+            writeBuckets(SalesRollup.HOUR, buckets, chunk.stream().map(Date::from).toList(), stamp);
+        }
+    }
+
+    // Daily buckets are summed from the hourly ones, never from bookings
+    private void rollUpDays(Collection<LocalDate> days, Date stamp) {
+        for (List<LocalDate> chunk : chunks(days)) {
+            List<Criteria> ranges = new ArrayList<>();
+            List<Date> starts = new ArrayList<>();
+            for (LocalDate day : chunk) {
+                Date start = Date.from(day.atStartOfDay(zone).toInstant());
+                starts.add(start);
+                ranges.add(Criteria.where("bucketStart").gte(start).lt(Date.from(day.plusDays(1).atStartOfDay(zone).toInstant())));
+            }
+            TypedAggregation<?> aggregation = Aggregation.newAggregation(SalesRollup.class,
+                    Aggregation.match(Criteria.where("granularity").is(SalesRollup.HOUR).orOperator(ranges)),
+                    stage(new Document("$group", new Document("_id", new Document("busId", "$busId")
+                            .append("bucketStart", truncate("$bucketStart", "day")))
+                            .append("bookings", new Document("$sum", "$bookings"))
+                            .append("revenue", new Document("$sum", "$revenue")))),
+                    bucketProjection());
+            List<Bucket> buckets = mongoTemplate.aggregate(aggregation, Bucket.class).getMappedResults();
+            writeBuckets(SalesRollup.DAY, buckets, starts, stamp);
+        }
+    }
+
+    private void rollUpTrips(Collection<Trip> trips) {
+        for (List<Trip> chunk : chunks(trips)) {
+            List<Criteria> keys = new ArrayList<>();
+            chunk.forEach(trip -> keys.add(Criteria.where("busId").is(trip.busId()).and("travelDate").is(trip.travelDate())));
+            TypedAggregation<?> aggregation = Aggregation.newAggregation(Booking.class,
+                    Aggregation.match(new Criteria().orOperator(keys)),
+                    stage(new Document("$group", new Document("_id", new Document("busId", "$busId").append("travelDate", "$travelDate"))
+                            .append("bookings", new Document("$sum", 1))
+                            .append("seats", new Document("$addToSet", "$seatNumber"))
+                            .append("revenue", new Document("$sum", "$fare")))),
+                    stage(new Document("$project", new Document("_id", 0).append("busId", "$_id.busId")
+                            .append("travelDate", "$_id.travelDate").append("bookings", 1)
+                            .append("seatsSold", new Document("$size", "$seats")).append("revenue", 1))));
+
+            Date stamp = new Date();
+            Set<String> written = new HashSet<>();
+            BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, TripRollup.class);
+            for (TripTotals totals : mongoTemplate.aggregate(aggregation, TripTotals.class)) {
+                String id = totals.busId() + "|" + totals.travelDate();
+                written.add(id);
+                bulk.upsert(Query.query(Criteria.where("_id").is(id)), new Update()
+                        .set("busId", totals.busId()).set("travelDate", totals.travelDate())
+                        .set("bookings", totals.bookings()).set("seatsSold", totals.seatsSold())
+                        .set("revenue", totals.revenue()).set("rolledUpAt", stamp));
+            }
+            if (!written.isEmpty()) bulk.execute();
+
+            // Trips whose last booking was cancelled
+            List<String> emptied = chunk.stream().map(t -> t.busId() + "|" + t.travelDate()).filter(id -> !written.contains(id)).toList();
+            if (!emptied.isEmpty()) mongoTemplate.remove(Query.query(Criteria.where("_id").in(emptied)), TripRollup.class);
+        }
+    }
+
+    private void writeBuckets(String granularity, List<Bucket> buckets, List<Date> starts, Date stamp) {
+        if (!buckets.isEmpty()) {
+            BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, SalesRollup.class);
+            for (Bucket bucket : buckets) {
+                String id = bucket.busId() + "|" + granularity + "|" + bucket.bucketStart().toInstant();
+                bulk.upsert(Query.query(Criteria.where("_id").is(id)), new Update()
+                        .set("busId", bucket.busId()).set("granularity", granularity)
+                        .set("bucketStart", bucket.bucketStart()).set("bookings", bucket.bookings())
+                        .set("revenue", bucket.revenue()).set("rolledUpAt", stamp));
+            }
+            bulk.execute();
+        }
+        // Buses that no longer have bookings in a recomputed bucket
+        mongoTemplate.remove(Query.query(Criteria.where("granularity").is(granularity)
+                .and("bucketStart").in(starts).and("rolledUpAt").ne(stamp)), SalesRollup.class);
+    }
+
+    // ✅ Sales per hour, day or week (Monday-based) for the given buses, booking dates from..to inclusive
+    public List<Point> sales(Collection<String> busIds, String granularity, LocalDate from, LocalDate to) {
+        String unit = granularity == null ? "day" : granularity.toLowerCase();
+        if (!List.of("hour", "day", "week").contains(unit)) throw new IllegalArgumentException("granularity must be hour, day or week");
+        checkRange(from, to, "hour".equals(unit) ? MAX_HOURLY_DAYS : MAX_DAYS);
+        if (busIds.isEmpty()) return List.of();
+
+        Query query = Query.query(Criteria.where("granularity").is("hour".equals(unit) ? SalesRollup.HOUR : SalesRollup.DAY)
+                .and("busId").in(busIds)
+                .and("bucketStart").gte(Date.from(from.atStartOfDay(zone).toInstant()))
+                .lt(Date.from(to.plusDays(1).atStartOfDay(zone).toInstant())));
+        query.fields().include("bucketStart", "bookings", "revenue");
+
+        TreeMap<String, long[]> bookings = new TreeMap<>();
+        Map<String, Double> revenue = new HashMap<>();
+        for (SalesRollup rollup : mongoTemplate.find(query, SalesRollup.class)) {
+            String label = label(rollup.getBucketStart().toInstant(), unit);
+            bookings.computeIfAbsent(label, l -> new long[1])[0] += rollup.getBookings();
+            revenue.merge(label, rollup.getRevenue(), Double::sum);
+        }
+        List<Point> points = new ArrayList<>();
+        bookings.forEach((label, count) -> points.add(new Point(label, count[0], Math.round(revenue.get(label) * 100.0) / 100.0)));
+        return points;
+    }
+
+    // ✅ Load factor per trip (distinct seats sold / bus seats), travel dates from..to inclusive
+    public List<Map<String, Object>> tripLoad(List<Bus> buses, LocalDate from, LocalDate to) {
+        checkRange(from, to, MAX_DAYS);
+        Map<String, Bus> byId = new HashMap<>();
+        buses.forEach(bus -> byId.put(bus.getId(), bus));
+        List<Map<String, Object>> rows = new ArrayList<>();
+        for (TripRollup trip : trips(byId.keySet(), from, to)) {
+            Bus bus = byId.get(trip.getBusId());
+            Map<String, Object> row = new LinkedHashMap<>();
+            row.put("busId", trip.getBusId());
+            row.put("busName", bus.getBusName());
+            row.put("travelDate", trip.getTravelDate());
+            row.put("bookings", trip.getBookings());
+            row.put("seatsSold", trip.getSeatsSold());
+            row.put("totalSeats", bus.getTotalSeats());
+            row.put("loadFactor", loadFactor(trip.getSeatsSold(), bus.getTotalSeats()));
+            row.put("revenue", trip.getRevenue());
+            rows.add(row);
+        }
+        return rows;
+    }
+
+    // ✅ Per bus and its route: trips run, bookings, revenue and average load factor, travel dates from..to
+    public List<Map<String, Object>> routePerformance(List<Bus> buses, LocalDate from, LocalDate to) {
+        checkRange(from, to, MAX_DAYS);
+        Map<String, Bus> byId = new LinkedHashMap<>();
+        buses.forEach(bus -> byId.put(bus.getId(), bus));
+        Map<String, List<TripRollup>> tripsByBus = new HashMap<>();
+        for (TripRollup trip : trips(byId.keySet(), from, to)) {
+            tripsByBus.computeIfAbsent(trip.getBusId(), b -> new ArrayList<>()).add(trip);
+        }
+        Map<String, Route> routeByBus = new HashMap<>();
+        if (!byId.isEmpty()) {
+            routeRepository.findByBusIdIn(new ArrayList<>(byId.keySet())).forEach(route -> routeByBus.putIfAbsent(route.getBusId(), route));
+        }
+
+        List<Map<String, Object>> rows = new ArrayList<>();
+        byId.forEach((busId, bus) -> {
+            List<TripRollup> trips = tripsByBus.getOrDefault(busId, List.of());
+            Route route = routeByBus.get(busId);
+            double revenue = trips.stream().mapToDouble(TripRollup::getRevenue).sum();
+            double load = trips.stream().mapToDouble(t -> loadFactor(t.getSeatsSold(), bus.getTotalSeats())).average().orElse(0);
+            Map<String, Object> row = new LinkedHashMap<>();
+            row.put("busId", busId);
+            row.put("busName", bus.getBusName());
+            row.put("route", route == null ? "-" : route.getFrom() + " → " + route.getTo());
+            row.put("trips", trips.size());
+            row.put("bookings", trips.stream().mapToLong(TripRollup::getBookings).sum());
+            row.put("revenue", Math.round(revenue * 100.0) / 100.0);
+            row.put("avgLoadFactor", Math.round(load * 1000.0) / 1000.0);
+            rows.add(row);
+        });
+        return rows;
+    }
+
+    private List<TripRollup> trips(Collection<String> busIds, LocalDate from, LocalDate to) {
+        if (busIds.isEmpty()) return List.of();
+        Query query = Query.query(Criteria.where("busId").in(busIds).and("travelDate").gte(from).lte(to));
+        query.with(Sort.by("travelDate", "busId"));
+        return mongoTemplate.find(query, TripRollup.class);
+    }
+
+    private String label(Instant bucketStart, String unit) {
+        LocalDateTime local = LocalDateTime.ofInstant(bucketStart, zone);
+        return switch (unit) {
+            case "hour" -> local.truncatedTo(ChronoUnit.HOURS).toString();
+            case "week" -> local.toLocalDate().with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY)).toString();
+            default -> local.toLocalDate().toString();
+        };
+    }
+
+    private static double loadFactor(long seatsSold, int totalSeats) {
+        return totalSeats <= 0 ? 0 : Math.round(seatsSold * 1000.0 / totalSeats) / 1000.0;
+    }
+
+    private static void checkRange(LocalDate from, LocalDate to, long maxDays) {
+        if (from == null || to == null || to.isBefore(from)) throw new IllegalArgumentException("from must not be after to");
+        if (ChronoUnit.DAYS.between(from, to) >= maxDays) throw new IllegalArgumentException("range is limited to " + maxDays + " days");
+    }
+
+    // Smallest ObjectId at the given second, so [boundary(a), boundary(b)) is every _id created in [a, b)
+    private static ObjectId boundary(Instant instant) {
+        return new ObjectId(String.format("%08x", instant.getEpochSecond()) + "0000000000000000");
+    }
+
+    private Document truncate(Object date, String unit) {
+        return new Document("$dateTrunc", new Document("date", date).append("unit", unit).append("timezone", zone.getId()));
+    }
+
+    private static AggregationOperation bucketProjection() {
+        return stage(new Document("$project", new Document("_id", 0).append("busId", "$_id.busId")
+                .append("bucketStart", "$_id.bucketStart").append("bookings", 1).append("revenue", 1)));
+    }
+
+    private static AggregationOperation stage(Document stage) {
+        return context -> stage;
+    }
+
+    private static <T> List<List<T>> chunks(Collection<T> items) {
+        List<List<T>> chunks = new ArrayList<>();
+        List<T> all = new ArrayList<>(items);
+        for (int i = 0; i < all.size(); i += CHUNK) chunks.add(all.subList(i, Math.min(i + CHUNK, all.size())));
+        return chunks;
+    }
+}
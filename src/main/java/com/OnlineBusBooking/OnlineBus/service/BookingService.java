@@ -0,0 +1,218 @@
+package com.OnlineBusBooking.OnlineBus.service;
+
+import com.OnlineBusBooking.OnlineBus.model.Booking;
+import com.OnlineBusBooking.OnlineBus.model.Route;
+import com.OnlineBusBooking.OnlineBus.repository.BookingRepository;
+import com.OnlineBusBooking.OnlineBus.repository.BusRepository;
+import com.OnlineBusBooking.OnlineBus.repository.RouteRepository;
+import com.mongodb.bulk.BulkWriteError;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Seat reservation. A party's legs are first claimed in the segment-level {@link SeatInventory},
+ * then written with one bulk insert; the unique (seat, boarding stop) and (seat, alighting stop)
+ * indexes on {@link Booking} back up exact repeats. Partial overlaps are only caught by the
+ * inventory, so bookings are taken by a single instance, enforced by {@link InstanceLease}.
+ */
+@Service
+public class BookingService {
+
+    private static final int DUPLICATE_KEY = 11000;
+
+    // Cancelled bookings move here, so the unique seat indexes on `bookings` only cover live seats
+    public static final String CANCELLED_COLLECTION = "cancelled_bookings";
+
+    @Autowired
+    private BookingRepository bookingRepository;
+
+    @Autowired
+    private BusRepository busRepository;
+
+    @Autowired
+    private RouteRepository routeRepository;
+
+    @Autowired
+    private SeatLayoutCache seatLayoutCache;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private SeatInventory seatInventory;
+
+    @Autowired
+    private SeatHoldService seatHoldService;
+
+    @Autowired
+    private AgentStatsService agentStatsService;
+
+    @Autowired
+    private InstanceLease instanceLease;
+
+    public record PartyResult(List<Booking> booked, List<String> conflictingSeats, String error) {
+
+        public boolean ok() {
+            return error == null && conflictingSeats.isEmpty();
+        }
+
+        static PartyResult invalid(String error) {
+            return new PartyResult(List.of(), List.of(), error);
+        }
+
+        static PartyResult conflict(List<String> seats) {
+            return new PartyResult(List.of(), seats, null);
+        }
+    }
+
+    public record CancelResult(Booking booking, String error) {}
+
+    public record QuoteResult(double totalFare, String error) {}
+
+    // ✅ Validate and insert every seat of a party, or none of them
+    public PartyResult bookParty(List<Booking> bookings) {
+        return bookParty(bookings, null, null);
+    }
+
+    // ✅ Same, converting the legs of the owner's seat hold (if still active) that the party books; the rest are released
+    public PartyResult bookParty(List<Booking> bookings, String holdId, String owner) {
+        if (bookings == null || bookings.isEmpty()) return PartyResult.invalid("❌ No seats to book.");
+        if (!instanceLease.isHeld()) return PartyResult.invalid("❌ Booking is temporarily unavailable, please retry.");
+
+        Map<String, Optional<BusCheck>> busesById = new HashMap<>();
+        for (Booking booking : bookings) {
+            String error = prepare(booking, busesById);
+            if (error != null) return PartyResult.invalid(error);
+        }
+        // Overlapping legs, including two of the party on one seat, are rejected here in O(segments) per seat
+        List<Booking> heldLegs = seatHoldService.matchingLegs(holdId, owner, bookings);
+        List<String> taken = seatInventory.reserve(bookings, heldLegs);
+        if (!taken.isEmpty()) return PartyResult.conflict(taken);
+
+        // Ids are assigned up front so a partially applied insert can be undone
+        bookings.forEach(b -> b.setId(new ObjectId().toHexString()));
+        BulkOperations ops = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Booking.class);
+        ops.insert(bookings);
+        try {
+            ops.execute();
+        } catch (BulkOperationException e) {
+            Set<Integer> failed = new HashSet<>();
+            List<String> conflicts = new ArrayList<>();
+            boolean onlyDuplicates = true;
+            for (BulkWriteError error : e.getErrors()) {
+                failed.add(error.getIndex());
+                if (error.getCode() == DUPLICATE_KEY) conflicts.add(bookings.get(error.getIndex()).getSeatNumber());
+                else onlyDuplicates = false;
+            }
+            List<String> inserted = new ArrayList<>();
+            for (int i = 0; i < bookings.size(); i++) {
+                if (!failed.contains(i)) inserted.add(bookings.get(i).getId());
+            }
+            if (!inserted.isEmpty()) bookingRepository.deleteAllById(inserted);
+            bookings.forEach(b -> b.setId(null));
+            // Another instance booked these seats: reload the trips from the database
+            bookings.forEach(b -> seatInventory.invalidateTrip(b.getBusId(), b.getTravelDate()));
+            if (!onlyDuplicates) throw e;
+            return PartyResult.conflict(conflicts);
+        } catch (RuntimeException e) {
+            bookings.forEach(b -> b.setId(null));
+            seatInventory.release(bookings);
+            seatInventory.hold(heldLegs);
+            throw e;
+        }
+        seatHoldService.complete(holdId, heldLegs);
+        agentStatsService.bookingsAdded(bookings);
+        return new PartyResult(bookings, List.of(), null);
+    }
+
+    // Bus, route and pre-indexed layout of one bus, looked up once per party
+    private record BusCheck(Route route, Optional<SeatLayoutCache.IndexedLayout> layout) {}
+
+    // Checks bus/route/seat, spells the stops as the route does and sets the server-side fare; returns an error message or null
+    private String prepare(Booking booking, Map<String, Optional<BusCheck>> busesById) {
+        if (booking.getBusId() == null || booking.getTravelDate() == null || booking.getSeatNumber() == null) {
+            return "❌ busId, travelDate and seatNumber are required.";
+        }
+
+        // Validate bus/route exist once per bus; the layout comes pre-indexed from the cache
+        Optional<BusCheck> bus = busesById.computeIfAbsent(booking.getBusId(), busId -> {
+            List<Route> routes = routeRepository.findByBusId(busId);
+            if (busRepository.findById(busId).isEmpty() || routes.isEmpty()) return Optional.empty();
+            return Optional.of(new BusCheck(routes.get(0), seatLayoutCache.get(busId)));
+        });
+        if (bus.isEmpty()) {
+            return "❌ Bus or Route not found.";
+        }
+
+        // Validate seat exists and get its base price
+        SeatLayoutCache.SeatInfo seat = bus.get().layout().map(l -> l.seat(booking.getSeatNumber())).orElse(null);
+        double seatPrice = seat == null ? 0 : seat.price();
+        if (seatPrice <= 0) {
+            return "❌ Seat not found in layout.";
+        }
+
+        // One spelling per seat and stop (blank ends are the route terminals), so case or spacing
+        // variants cannot slip past the unique seat indexes
+        Route route = bus.get().route();
+        String from = RouteStopIndex.canonicalStop(route, booking.getPassengerFrom());
+        String to = RouteStopIndex.canonicalStop(route, booking.getPassengerTo());
+        booking.setSeatNumber(seat.number());
+        booking.setPassengerFrom(from != null ? from : RouteStopIndex.canonicalStop(route, route.getFrom()));
+        booking.setPassengerTo(to != null ? to : RouteStopIndex.canonicalStop(route, route.getTo()));
+        if (!seatInventory.isValidLeg(booking.getBusId(), booking.getTravelDate(), booking.getPassengerFrom(), booking.getPassengerTo())) {
+            return "❌ Boarding and dropping points are not on this route.";
+        }
+
+        // Priced here from the seat's base price and the leg, never from the fare the client sent
+        double fare = seatInventory.legFare(booking.getBusId(), booking.getTravelDate(),
+                booking.getPassengerFrom(), booking.getPassengerTo(), seatPrice);
+        booking.setFare(Math.round(fare * 100.0) / 100.0);
+        booking.setStatus("CONFIRMED");
+        return null;
+    }
+
+    // ✅ Validate the party and price every seat on the server, without claiming anything; error is null when bookable
+    public QuoteResult quote(List<Booking> bookings) {
+        if (bookings == null || bookings.isEmpty()) return new QuoteResult(0, "❌ No seats to book.");
+        Map<String, Optional<BusCheck>> busesById = new HashMap<>();
+        double total = 0;
+        for (Booking booking : bookings) {
+            String error = prepare(booking, busesById);
+            if (error != null) return new QuoteResult(0, error);
+            total += booking.getFare();
+        }
+        return new QuoteResult(Math.round(total * 100.0) / 100.0, null);
+    }
+
+    // ✅ Cancel the customer's own upcoming booking; its seat leg is freed for the waitlist and live seat maps
+    public CancelResult cancel(String bookingId, String customerEmail) {
+        Booking booking = bookingRepository.findById(bookingId).orElse(null);
+        if (booking == null || customerEmail == null || !customerEmail.equals(booking.getCustomerEmail())) {
+            return new CancelResult(null, "❌ Booking not found.");
+        }
+        if (booking.getTravelDate() != null && booking.getTravelDate().isBefore(LocalDate.now())) {
+            return new CancelResult(null, "❌ Past trips cannot be cancelled.");
+        }
+        booking.setStatus("CANCELLED");
+        booking.setCancelledAt(new Date());
+        mongoTemplate.save(booking, CANCELLED_COLLECTION);
+        bookingRepository.deleteById(bookingId);
+        seatInventory.release(List.of(booking));
+        agentStatsService.bookingRemoved(booking);
+        return new CancelResult(booking, null);
+    }
+}
@@ -0,0 +1,100 @@
+package com.OnlineBusBooking.OnlineBus.service;
+
+import com.OnlineBusBooking.OnlineBus.model.SeatLayout;
+import com.OnlineBusBooking.OnlineBus.repository.SeatLayoutRepository;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Per-bus min/max base price for each seat type, precomputed from the seat layout
+ * so that the search fare estimate never has to load a layout.
+ */
+@Service
+public class BusFareService {
+
+    public static final double MIN_FARE = 50.0;
+
+    @Autowired
+    private SeatLayoutRepository seatLayoutRepository;
+
+    private final Map<String, FareSummary> summaries = new ConcurrentHashMap<>();
+
+    public record PriceRange(int min, int max) {}
+
+    public record FareSummary(String busId, int minPrice, int maxPrice, Map<String, PriceRange> bySeatType) {}
+
+    // ✅ Build summaries for every layout once at startup
+    @PostConstruct
+    public void rebuild() {
+        summaries.clear();
+        seatLayoutRepository.findAll().forEach(this::update);
+    }
+
+    // ✅ Recompute a bus summary from a freshly saved layout
+    public void update(SeatLayout layout) {
+        if (layout == null || layout.getBusId() == null) return;
+        FareSummary summary = summarize(layout);
+        if (summary == null) summaries.remove(layout.getBusId());
+        else summaries.put(layout.getBusId(), summary);
+    }
+
+    // ✅ Reload summaries for buses whose pricing changed elsewhere
+    public void refresh(Collection<String> busIds) {
+        busIds.stream().distinct().forEach(busId -> seatLayoutRepository.findByBusId(busId)
+                .ifPresentOrElse(this::update, () -> summaries.remove(busId)));
+    }
+
+    public void remove(String busId) {
+        summaries.remove(busId);
+    }
+
+    public Optional<FareSummary> get(String busId) {
+        return Optional.ofNullable(summaries.get(busId));
+    }
+
+    // ✅ Cheapest fare for the from → to segment of a route path; 0.0 if unknown
+    public double estimateFare(String busId, String from, String to, List<String> fullPath) {
+        int fromIdx = fullPath.indexOf(from);
+        int toIdx = fullPath.lastIndexOf(to);
+        if (fromIdx == -1 || toIdx == -1 || fromIdx >= toIdx) {
+            return 0.0;
+        }
+        FareSummary summary = summaries.get(busId);
+        if (summary == null) {
+            return 0.0;
+        }
+        return segmentFare(summary.minPrice(), toIdx - fromIdx, fullPath.size() - 1);
+    }
+
+    // Proportional share of the base price, rounded to paise, never below the minimum fare
+    public static double segmentFare(double basePrice, int traveledSegments, int totalSegments) {
+        if (totalSegments <= 0 || traveledSegments <= 0) return 0.0;
+        double ratio = (double) traveledSegments / totalSegments;
+        double calculatedFare = Math.round(basePrice * ratio * 100.0) / 100.0;
+        return Math.max(MIN_FARE, calculatedFare);
+    }
+
+    private static FareSummary summarize(SeatLayout layout) {
+        if (layout.getSeats() == null || layout.getSeats().isEmpty()) return null;
+        int min = Integer.MAX_VALUE;
+        int max = Integer.MIN_VALUE;
+        Map<String, PriceRange> bySeatType = new HashMap<>();
+        for (SeatLayout.Seat seat : layout.getSeats()) {
+            int price = seat.getPrice();
+            min = Math.min(min, price);
+            max = Math.max(max, price);
+            String type = seat.getType() == null ? "unknown" : seat.getType().toLowerCase();
+            bySeatType.merge(type, new PriceRange(price, price),
+                    (a, b) -> new PriceRange(Math.min(a.min(), b.min()), Math.max(a.max(), b.max())));
+        }
+        return new FareSummary(layout.getBusId(), min, max, Map.copyOf(bySeatType));
+    }
+}
@@ -0,0 +1,145 @@
+package com.OnlineBusBooking.OnlineBus.service;
+
+import com.OnlineBusBooking.OnlineBus.model.Bus;
+import com.OnlineBusBooking.OnlineBus.model.Route;
+import com.OnlineBusBooking.OnlineBus.model.TripSchedule;
+import com.OnlineBusBooking.OnlineBus.repository.BusRepository;
+import com.OnlineBusBooking.OnlineBus.repository.TripScheduleRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * The one bus search pipeline behind /user/api/search-buses and /buses/api/search:
+ * route lookup through the {@link RouteIndex}, batched schedule and bus queries,
+ * O(1) fare estimates and the (from, to, date) result cache.
+ * Route and bus writes are funnelled through here so every derived view stays in step.
+ */
+@Service
+public class BusSearchService {
+
+    @Autowired
+    private RouteIndex routeIndex;
+
+    @Autowired
+    private TripScheduleRepository tripScheduleRepository;
+
+    @Autowired
+    private BusRepository busRepository;
+
+    @Autowired
+    private BusFareService busFareService;
+
+    @Autowired
+    private SearchResultCache searchResultCache;
+
+    @Autowired
+    private ConnectionSearchService connectionSearchService;
+
+    @Autowired
+    private SeatInventory seatInventory;
+
+    // ✅ Trips on `date` whose route visits `from` before `to` (intermediate stops included), cached
+    public SearchResultCache.CachedSearch search(String from, String to, LocalDate date) {
+        String fromLower = RouteStopIndex.normalize(from);
+        String toLower = RouteStopIndex.normalize(to);
+        return searchResultCache.getEntry(fromLower, toLower, date,
+                () -> runSearch(fromLower, toLower, date, Integer.MAX_VALUE, batch -> {}));
+    }
+
+    // ✅ Same results handed to `onBatch` as each group of `batchRoutes` routes is joined; fills the cache when done
+    public void stream(String from, String to, LocalDate date, int batchRoutes, Consumer<List<Map<String, Object>>> onBatch) {
+        String fromLower = RouteStopIndex.normalize(from);
+        String toLower = RouteStopIndex.normalize(to);
+        List<Map<String, Object>> cached = searchResultCache.getIfPresent(fromLower, toLower, date);
+        if (cached != null) {
+            onBatch.accept(cached);
+            return;
+        }
+        long generation = searchResultCache.generation();
+        searchResultCache.put(fromLower, toLower, date, runSearch(fromLower, toLower, date, batchRoutes, onBatch), generation);
+    }
+
+    // Matching routes are processed `batchRoutes` at a time: one schedule query and one bus query per batch, joined in memory
+    private SearchResultCache.CachedSearch runSearch(String fromLower, String toLower, LocalDate travelDate,
+                                                     int batchRoutes, Consumer<List<Map<String, Object>>> onBatch) {
+        List<Map<String, Object>> results = new ArrayList<>();
+        List<RouteIndex.Match> matches = routeIndex.findRoutes(fromLower, toLower);
+        Set<String> routeIds = new LinkedHashSet<>();
+        Set<String> busIds = new LinkedHashSet<>();
+
+        for (int start = 0; start < matches.size(); start += batchRoutes) {
+            List<RouteIndex.Match> chunk = matches.subList(start, (int) Math.min(matches.size(), (long) start + batchRoutes));
+            Map<String, List<String>> pathByRouteId = new LinkedHashMap<>();
+            chunk.forEach(m -> pathByRouteId.put(m.route().getId(), m.fullPath()));
+            routeIds.addAll(pathByRouteId.keySet());
+
+            Map<String, List<TripSchedule>> schedulesByRoute = new HashMap<>();
+            for (TripSchedule schedule : tripScheduleRepository.findByRouteIdInAndDate(pathByRouteId.keySet(), travelDate)) {
+                schedulesByRoute.computeIfAbsent(schedule.getRouteId(), k -> new ArrayList<>()).add(schedule);
+            }
+            Set<String> chunkBusIds = new LinkedHashSet<>();
+            schedulesByRoute.values().forEach(list -> list.forEach(s -> chunkBusIds.add(s.getBusId())));
+            if (chunkBusIds.isEmpty()) continue;
+            busIds.addAll(chunkBusIds);
+
+            Map<String, Bus> busesById = new HashMap<>();
+            busRepository.findAllById(chunkBusIds).forEach(bus -> busesById.put(bus.getId(), bus));
+
+            List<Map<String, Object>> batch = new ArrayList<>();
+            for (Map.Entry<String, List<String>> entry : pathByRouteId.entrySet()) {
+                List<String> fullPath = entry.getValue();
+                for (TripSchedule schedule : schedulesByRoute.getOrDefault(entry.getKey(), List.of())) {
+                    Bus bus = busesById.get(schedule.getBusId());
+                    if (bus == null) continue;
+                    Map<String, Object> result = new HashMap<>();
+                    result.put("id", bus.getId());
+                    result.put("busId", bus.getId());
+                    result.put("scheduleId", schedule.getId());
+                    result.put("busName", bus.getBusName());
+                    result.put("busNumber", bus.getBusNumber());
+                    result.put("busType", bus.getBusType());
+                    result.put("departureTime", schedule.getDepartureTime());
+                    result.put("arrivalTime", schedule.getArrivalTime());
+                    double estimatedFare = busFareService.estimateFare(bus.getId(), fromLower, toLower, fullPath);
+                    result.put("estimatedFare", estimatedFare);
+                    batch.add(Collections.unmodifiableMap(result)); // shared by every caller of the cached search
+                }
+            }
+            results.addAll(batch);
+            onBatch.accept(batch);
+        }
+        return new SearchResultCache.CachedSearch(List.copyOf(results), Set.copyOf(routeIds), Set.copyOf(busIds));
+    }
+
+    // ✅ Route saved: reindex and evict anything it affects
+    public void routeSaved(Route route) {
+        routeIndex.index(route);
+        searchResultCache.invalidateRoute(route.getId(), RouteStopIndex.fullPath(route));
+        connectionSearchService.invalidateAll();
+        seatInventory.invalidateBus(route.getBusId());
+    }
+
+    // ✅ Route deleted: only its bus's trips lose their stop order
+    public void routeDeleted(Route route) {
+        routeIndex.remove(route.getId());
+        searchResultCache.invalidateRoute(route.getId(), null);
+        connectionSearchService.invalidateAll();
+        seatInventory.invalidateBus(route.getBusId());
+    }
+
+    // ✅ Bus details edited: cached rows show its name/number/type
+    public void busChanged(String busId) {
+        searchResultCache.invalidateBus(busId);
+    }
+}
@@ -14,8 +14,13 @@ public class BusService {
     @Autowired
     private BusRepository busRepository;
 
+    @Autowired
+    private AgentStatsService agentStatsService;
+
     public Bus saveBus(Bus bus) {
-        return busRepository.save(bus);
+        Bus saved = busRepository.save(bus);
+        agentStatsService.busSaved(saved);
+        return saved;
     }
 
     public List<Bus> getBusesByOperator(String operatorId) {
@@ -0,0 +1,162 @@
+package com.OnlineBusBooking.OnlineBus.service;
+
+import com.OnlineBusBooking.OnlineBus.model.Agent;
+import com.OnlineBusBooking.OnlineBus.model.Booking;
+import com.OnlineBusBooking.OnlineBus.model.Bus;
+import com.OnlineBusBooking.OnlineBus.model.PaymentRecord;
+import com.OnlineBusBooking.OnlineBus.model.TripSchedule;
+import com.OnlineBusBooking.OnlineBus.repository.AgentRepository;
+import com.OnlineBusBooking.OnlineBus.repository.BusRepository;
+import com.OnlineBusBooking.OnlineBus.repository.PaymentRepository;
+import com.OnlineBusBooking.OnlineBus.repository.TripScheduleRepository;
+import com.OnlineBusBooking.OnlineBus.util.TicketPDFGenerator;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * One-request checkout: verify the Razorpay payment and that its order is for the server's
+ * price of the party, record the payment (once per paymentId), book the whole party in one
+ * batch and email the tickets from the bookings just written (no re-read).
+ * <p>
+ * Replays are stopped by a unique index on `payments.paymentId`. Payments finalized twice
+ * before it existed would make the index build fail, so it is ensured at startup only after
+ * checking for such duplicates; any found are reported and must be resolved by hand (they are
+ * money records, so nothing is deleted automatically), and the index follows on the next start.
+ */
+@Service
+public class CheckoutService {
+
+    @Autowired
+    private BookingService bookingService;
+
+    @Autowired
+    private RazorpayService razorpayService;
+
+    @Autowired
+    private PaymentRepository paymentRepository;
+
+    @Autowired
+    private BusRepository busRepository;
+
+    @Autowired
+    private TripScheduleRepository tripScheduleRepository;
+
+    @Autowired
+    private AgentRepository agentRepository;
+
+    @Autowired
+    private EmailService emailService;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    public record Checkout(String customerEmail, String holdId, String razorpayOrderId,
+                           String razorpayPaymentId, String razorpaySignature, List<Booking> passengers) {}
+
+    public record CheckoutResult(BookingService.PartyResult party, double totalFare, boolean emailed, String error) {
+
+        public List<String> bookingIds() {
+            return party == null ? List.of() : party.booked().stream().map(Booking::getId).toList();
+        }
+
+        static CheckoutResult invalid(String error) {
+            return new CheckoutResult(null, 0, false, error);
+        }
+    }
+
+    // ✅ Builds the unique paymentId index unless stored payments would violate it; returns the offending ids
+    @EventListener(ApplicationReadyEvent.class)
+    public List<String> ensurePaymentIdIndex() {
+        List<String> duplicates = mongoTemplate.aggregate(Aggregation.newAggregation(
+                        Aggregation.match(Criteria.where("paymentId").ne(null)),
+                        Aggregation.group("paymentId").count().as("count"),
+                        Aggregation.match(Criteria.where("count").gt(1)),
+                        Aggregation.limit(100)), PaymentRecord.class, Document.class)
+                .getMappedResults().stream().map(d -> d.getString("_id")).toList();
+        if (!duplicates.isEmpty()) {
+            System.out.println("❌ Unique paymentId index not created: these payments are recorded more than once " + duplicates);
+            return duplicates;
+        }
+        mongoTemplate.indexOps(PaymentRecord.class)
+                .ensureIndex(new Index("paymentId", Sort.Direction.ASC).named("paymentId").unique().sparse());
+        return duplicates;
+    }
+
+    // ✅ `owner` is the signed-in principal; only their own seat hold is converted
+    public CheckoutResult checkout(Checkout request, String owner) {
+        if (request.customerEmail() == null || request.passengers() == null || request.passengers().isEmpty()) {
+            return CheckoutResult.invalid("❌ Customer email and passengers are required.");
+        }
+        if (!razorpayService.verifyPayment(request.razorpayOrderId(), request.razorpayPaymentId(), request.razorpaySignature())) {
+            return CheckoutResult.invalid("❌ Payment could not be verified.");
+        }
+
+        if (paymentRepository.existsByPaymentId(request.razorpayPaymentId())) {
+            return CheckoutResult.invalid("❌ This payment has already been used.");
+        }
+
+        for (Booking booking : request.passengers()) {
+            booking.setCustomerEmail(request.customerEmail());
+            booking.setRazorpayOrderId(request.razorpayOrderId());
+            booking.setRazorpayPaymentId(request.razorpayPaymentId());
+        }
+        // The order must be for exactly what the server charges for these seats
+        BookingService.QuoteResult quote = bookingService.quote(request.passengers());
+        if (quote.error() != null) return CheckoutResult.invalid(quote.error());
+        long expectedPaise = Math.round(quote.totalFare() * 100);
+        Long orderPaise = razorpayService.orderAmount(request.razorpayOrderId());
+        if (orderPaise == null) return CheckoutResult.invalid("❌ Payment could not be verified.");
+        if (orderPaise != expectedPaise) return CheckoutResult.invalid("❌ Paid amount does not match the fare.");
+
+        // The payment is recorded before any seat is booked; the unique paymentId index stops a replay racing this one
+        PaymentRecord record = new PaymentRecord();
+        record.setOrderId(request.razorpayOrderId());
+        record.setPaymentId(request.razorpayPaymentId());
+        record.setAmount((int) expectedPaise);
+        record.setStatus("PENDING");
+        try {
+            record = paymentRepository.insert(record);
+        } catch (DuplicateKeyException e) {
+            return CheckoutResult.invalid("❌ This payment has already been used.");
+        }
+
+        BookingService.PartyResult party = bookingService.bookParty(request.passengers(), request.holdId(), owner);
+        // Paid but not booked: left as UNBOOKED for a refund
+        record.setStatus(party.ok() ? "SUCCESS" : "UNBOOKED");
+        paymentRepository.save(record);
+        if (!party.ok()) return new CheckoutResult(party, 0, false, party.error());
+
+        return new CheckoutResult(party, quote.totalFare(), emailTickets(request.customerEmail(), party.booked()), null);
+    }
+
+    // ✅ One PDF with every seat of the party, mailed to the customer; false when it could not be sent
+    public boolean emailTickets(String email, List<Booking> bookings) {
+        if (bookings.isEmpty()) return false;
+        Booking first = bookings.get(0);
+        Optional<Bus> busOpt = busRepository.findById(first.getBusId());
+        Optional<TripSchedule> scheduleOpt = tripScheduleRepository
+                .findByBusIdAndDate(first.getBusId(), first.getTravelDate()).stream().findFirst();
+        if (busOpt.isEmpty() || scheduleOpt.isEmpty()) return false;
+        try {
+            Optional<Agent> agentOpt = agentRepository.findById(busOpt.get().getOperatorId());
+            byte[] pdf = TicketPDFGenerator.generateTicketPDF(bookings, busOpt.get(), scheduleOpt.get(), agentOpt.orElse(null));
+            emailService.sendTicket(email, pdf, "ticket.pdf", bookings, busOpt.get());
+            return true;
+        } catch (Exception e) {
+            e.printStackTrace();
+            return false;
+        }
+    }
+}
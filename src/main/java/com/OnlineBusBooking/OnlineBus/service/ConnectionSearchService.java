@@ -0,0 +1,309 @@
+package com.OnlineBusBooking.OnlineBus.service;
+
+import com.OnlineBusBooking.OnlineBus.model.Bus;
+import com.OnlineBusBooking.OnlineBus.model.TripSchedule;
+import com.OnlineBusBooking.OnlineBus.repository.BusRepository;
+import com.OnlineBusBooking.OnlineBus.repository.TripScheduleRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Multi-leg journey search with a transfer-limited Connection Scan Algorithm (CSA).
+ * Each trip on a date is expanded into stop-to-stop connections (stop times are
+ * interpolated between the schedule's departure and arrival) and stored in flat
+ * arrays sorted by departure, so a query is one linear scan with early exit.
+ * Timetables are cached per date in a bounded Caffeine cache (`search.connections.max-dates`,
+ * `search.connections.ttl-minutes`), published as the "connectionTimetables" cache metrics.
+ */
+@Service
+public class ConnectionSearchService {
+
+    private static final int INF = Integer.MAX_VALUE;
+    private static final int MINUTES_PER_DAY = 24 * 60;
+
+    @Autowired
+    private TripScheduleRepository tripScheduleRepository;
+
+    @Autowired
+    private BusRepository busRepository;
+
+    @Autowired
+    private RouteStopIndex routeStopIndex;
+
+    @Autowired
+    private BusFareService busFareService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${search.connections.budget-ms:50}")
+    private long budgetMillis;
+
+    @Value("${search.connections.max-dates:60}")
+    private long maxDates;
+
+    @Value("${search.connections.ttl-minutes:30}")
+    private long ttlMinutes;
+
+    private Cache<LocalDate, Timetable> timetables;
+
+    @PostConstruct
+    public void init() {
+        timetables = Caffeine.newBuilder()
+                .maximumSize(maxDates)
+                .expireAfterWrite(Duration.ofMinutes(ttlMinutes))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, timetables, "connectionTimetables");
+    }
+
+    // ✅ Best itinerary per number of transfers (0..maxTransfers), each strictly faster than the one with fewer legs
+    public Map<String, Object> search(String from, String to, LocalDate date, LocalTime after,
+                                      int maxTransfers, int minConnectionMinutes) {
+        Timetable tt = timetables.get(date, this::build);
+        Map<String, Object> response = new LinkedHashMap<>();
+        List<Map<String, Object>> itineraries = new ArrayList<>();
+        response.put("itineraries", itineraries);
+        response.put("partial", false);
+
+        Integer origin = tt.stopIds.get(RouteStopIndex.normalize(from));
+        Integer target = tt.stopIds.get(RouteStopIndex.normalize(to));
+        if (origin == null || target == null || origin.equals(target)) return response;
+
+        int maxLegs = Math.max(1, Math.min(maxTransfers, 2) + 1);
+        Scan scan = scan(tt, origin, target, after.getHour() * 60 + after.getMinute(),
+                maxLegs, Math.max(0, minConnectionMinutes));
+        response.put("partial", scan.partial);
+
+        Map<String, Bus> buses = new HashMap<>();
+        int bestArrival = INF;
+        for (int k = 1; k <= maxLegs; k++) {
+            if (scan.arrival[k][target] >= bestArrival) continue;
+            bestArrival = scan.arrival[k][target];
+            List<int[]> legs = scan.legs(tt, k, origin, target);
+            itineraries.add(describe(tt, legs, buses));
+        }
+        return response;
+    }
+
+    // ✅ Drop cached timetables after schedule/route writes
+    public void invalidate(LocalDate date) {
+        if (date != null) timetables.invalidate(date);
+    }
+
+    public void invalidateAll() {
+        timetables.invalidateAll();
+    }
+
+    // ---------------------------------------------------------------- timetable
+
+    static final class Timetable {
+        final Map<String, Integer> stopIds = new HashMap<>();
+        final List<String> stopNames = new ArrayList<>();
+        final List<TripSchedule> trips = new ArrayList<>();
+        final List<List<String>> tripPaths = new ArrayList<>();
+        int[] dep, arr, fromStop, toStop, trip;
+
+        int stopId(String name) {
+            return stopIds.computeIfAbsent(name, n -> {
+                stopNames.add(n);
+                return stopNames.size() - 1;
+            });
+        }
+    }
+
+    private Timetable build(LocalDate date) {
+        Timetable tt = new Timetable();
+        List<int[]> connections = new ArrayList<>();
+        for (TripSchedule schedule : tripScheduleRepository.findByDate(date)) {
+            RouteStopIndex.IndexedRoute route = routeStopIndex.get(schedule.getRouteId());
+            int depart = parseMinutes(schedule.getDepartureTime());
+            int arrive = parseMinutes(schedule.getArrivalTime());
+            if (route == null || depart < 0 || arrive < 0) continue;
+            if (arrive < depart) arrive += MINUTES_PER_DAY; // overnight trip
+
+            List<String> path = route.fullPath();
+            int tripIdx = tt.trips.size();
+            tt.trips.add(schedule);
+            tt.tripPaths.add(path);
+            int segments = path.size() - 1;
+            for (int i = 0; i < segments; i++) {
+                int t0 = depart + (arrive - depart) * i / segments;
+                int t1 = depart + (arrive - depart) * (i + 1) / segments;
+                connections.add(new int[]{t0, t1, tt.stopId(path.get(i)), tt.stopId(path.get(i + 1)), tripIdx, i});
+            }
+        }
+        connections.sort((a, b) -> a[0] != b[0] ? Integer.compare(a[0], b[0]) : Integer.compare(a[1], b[1]));
+
+        int n = connections.size();
+        tt.dep = new int[n];
+        tt.arr = new int[n];
+        tt.fromStop = new int[n];
+        tt.toStop = new int[n];
+        tt.trip = new int[n];
+        for (int i = 0; i < n; i++) {
+            int[] c = connections.get(i);
+            tt.dep[i] = c[0];
+            tt.arr[i] = c[1];
+            tt.fromStop[i] = c[2];
+            tt.toStop[i] = c[3];
+            tt.trip[i] = c[4];
+        }
+        return tt;
+    }
+
+    // ---------------------------------------------------------------- scan
+
+    private final class Scan {
+        final int[][] arrival;      // [legs][stop] earliest arrival using that many legs
+        final int[][] boardedAt;    // [legs][trip] connection where the trip was boarded, -1 if not
+        final int[][] enterConn;    // [legs][stop] boarding connection of the label
+        final int[][] exitConn;     // [legs][stop] alighting connection of the label
+        boolean partial;
+
+        Scan(int legs, int stops, int trips) {
+            arrival = new int[legs + 1][stops];
+            enterConn = new int[legs + 1][stops];
+            exitConn = new int[legs + 1][stops];
+            boardedAt = new int[legs + 1][trips];
+            for (int k = 0; k <= legs; k++) {
+                Arrays.fill(arrival[k], INF);
+                Arrays.fill(boardedAt[k], -1);
+            }
+        }
+
+        // Each entry: {boardConnection, alightConnection}; legs in travel order
+        List<int[]> legs(Timetable tt, int k, int origin, int target) {
+            List<int[]> legs = new ArrayList<>();
+            int stop = target;
+            for (int r = k; r >= 1 && stop != origin; r--) {
+                legs.add(0, new int[]{enterConn[r][stop], exitConn[r][stop]});
+                stop = tt.fromStop[enterConn[r][stop]];
+            }
+            return legs;
+        }
+    }
+
+    private Scan scan(Timetable tt, int origin, int target, int startMinute, int maxLegs, int minTransfer) {
+        Scan s = new Scan(maxLegs, tt.stopNames.size(), tt.trips.size());
+        for (int k = 0; k <= maxLegs; k++) s.arrival[k][origin] = startMinute;
+
+        long deadline = System.nanoTime() + budgetMillis * 1_000_000L;
+        int first = lowerBound(tt.dep, startMinute);
+        for (int c = first; c < tt.dep.length; c++) {
+            if (tt.dep[c] >= s.arrival[maxLegs][target]) break;
+            if ((c & 1023) == 0 && System.nanoTime() > deadline) {
+                s.partial = true;
+                break;
+            }
+            int trip = tt.trip[c];
+            int from = tt.fromStop[c];
+            int to = tt.toStop[c];
+            for (int k = 1; k <= maxLegs; k++) {
+                if (s.boardedAt[k][trip] == -1) {
+                    int ready = s.arrival[k - 1][from];
+                    if (ready == INF) continue;
+                    int buffer = from == origin ? 0 : minTransfer;
+                    if ((long) ready + buffer > tt.dep[c]) continue;
+                    s.boardedAt[k][trip] = c;
+                }
+                if (tt.arr[c] < s.arrival[k][to]) {
+                    s.arrival[k][to] = tt.arr[c];
+                    s.enterConn[k][to] = s.boardedAt[k][trip];
+                    s.exitConn[k][to] = c;
+                }
+            }
+        }
+        return s;
+    }
+
+    private static int lowerBound(int[] sorted, int value) {
+        int lo = 0, hi = sorted.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (sorted[mid] < value) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
+    }
+
+    // ---------------------------------------------------------------- response
+
+    private Map<String, Object> describe(Timetable tt, List<int[]> legs, Map<String, Bus> buses) {
+        Set<String> missing = new LinkedHashSet<>();
+        for (int[] leg : legs) {
+            String busId = tt.trips.get(tt.trip[leg[0]]).getBusId();
+            if (!buses.containsKey(busId)) missing.add(busId);
+        }
+        if (!missing.isEmpty()) busRepository.findAllById(missing).forEach(b -> buses.put(b.getId(), b));
+
+        List<Map<String, Object>> legList = new ArrayList<>();
+        double totalFare = 0;
+        for (int[] leg : legs) {
+            int tripIdx = tt.trip[leg[0]];
+            TripSchedule schedule = tt.trips.get(tripIdx);
+            String fromName = tt.stopNames.get(tt.fromStop[leg[0]]);
+            String toName = tt.stopNames.get(tt.toStop[leg[1]]);
+            double fare = busFareService.estimateFare(schedule.getBusId(), fromName, toName, tt.tripPaths.get(tripIdx));
+            totalFare += fare;
+
+            Bus bus = buses.get(schedule.getBusId());
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("busId", schedule.getBusId());
+            entry.put("busName", bus != null ? bus.getBusName() : "Unknown Bus");
+            entry.put("busNumber", bus != null ? bus.getBusNumber() : null);
+            entry.put("busType", bus != null ? bus.getBusType() : null);
+            entry.put("scheduleId", schedule.getId());
+            entry.put("from", fromName);
+            entry.put("to", toName);
+            entry.put("departureTime", formatMinutes(tt.dep[leg[0]]));
+            entry.put("arrivalTime", formatMinutes(tt.arr[leg[1]]));
+            entry.put("estimatedFare", fare);
+            legList.add(entry);
+        }
+
+        int departure = tt.dep[legs.get(0)[0]];
+        int arrival = tt.arr[legs.get(legs.size() - 1)[1]];
+        Map<String, Object> itinerary = new LinkedHashMap<>();
+        itinerary.put("transfers", legs.size() - 1);
+        itinerary.put("departureTime", formatMinutes(departure));
+        itinerary.put("arrivalTime", formatMinutes(arrival));
+        itinerary.put("durationMinutes", arrival - departure);
+        itinerary.put("estimatedFare", Math.round(totalFare * 100.0) / 100.0);
+        itinerary.put("legs", legList);
+        return itinerary;
+    }
+
+    static int parseMinutes(String time) {
+        try {
+            LocalTime t = LocalTime.parse(time);
+            return t.getHour() * 60 + t.getMinute();
+        } catch (Exception e) {
+            return -1;
+        }
+    }
+
+    static String formatMinutes(int minutes) {
+        String hhmm = String.format("%02d:%02d", (minutes / 60) % 24, minutes % 60);
+        int days = minutes / MINUTES_PER_DAY;
+        return days > 0 ? hhmm + " (+" + days + ")" : hhmm;
+    }
+}
@@ -0,0 +1,112 @@
+package com.OnlineBusBooking.OnlineBus.service;
+
+import com.OnlineBusBooking.OnlineBus.model.Booking;
+import com.OnlineBusBooking.OnlineBus.model.Bus;
+import com.OnlineBusBooking.OnlineBus.model.PaymentRecord;
+import com.OnlineBusBooking.OnlineBus.model.TripSchedule;
+import com.OnlineBusBooking.OnlineBus.repository.BusRepository;
+import com.OnlineBusBooking.OnlineBus.util.CsvWriter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * CSV exports of bookings, trip schedules and payments, streamed from a Mongo cursor straight
+ * to the response: documents are read `export.cursor-batch` at a time in `_id` order and written
+ * as they arrive, so memory stays flat however many rows match, and a slow client simply holds
+ * the cursor back. `busIds` scopes an export to an operator's buses; null means every bus.
+ */
+@Service
+public class CsvExportService {
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private BusRepository busRepository;
+
+    @Value("${export.cursor-batch:500}")
+    private int cursorBatch;
+
+    @Value("${export.flush-rows:1000}")
+    private int flushRows;
+
+    // ✅ Bookings by travel date, from..to inclusive (either may be null)
+    public void bookings(Collection<String> busIds, LocalDate from, LocalDate to, OutputStream out) throws IOException {
+        Map<String, String> busNames = busNames(busIds);
+        export(out, query(busIds, "travelDate", from, to), Booking.class,
+                new String[]{"bookingId", "busId", "busName", "travelDate", "seatNumber", "seatType", "from", "to", "fare",
+                        "status", "passengerName", "passengerAge", "passengerMobile", "customerEmail", "razorpayOrderId", "razorpayPaymentId"},
+                b -> new Object[]{b.getId(), b.getBusId(), busNames.get(b.getBusId()), b.getTravelDate(), b.getSeatNumber(),
+                        b.getSeatType(), b.getPassengerFrom(), b.getPassengerTo(), b.getFare(), b.getStatus(), b.getPassengerName(),
+                        b.getPassengerAge(), b.getPassengerMobile(), b.getCustomerEmail(), b.getRazorpayOrderId(), b.getRazorpayPaymentId()});
+    }
+
+    // ✅ Trip schedules by trip date, from..to inclusive
+    public void schedules(Collection<String> busIds, LocalDate from, LocalDate to, OutputStream out) throws IOException {
+        Map<String, String> busNames = busNames(busIds);
+        export(out, query(busIds, "date", from, to), TripSchedule.class,
+                new String[]{"scheduleId", "busId", "busName", "routeId", "date", "departureTime", "arrivalTime"},
+                s -> new Object[]{s.getId(), s.getBusId(), busNames.get(s.getBusId()), s.getRouteId(), s.getDate(),
+                        s.getDepartureTime(), s.getArrivalTime()});
+    }
+
+    // ✅ Payment records by payment day, from..to inclusive
+    public void payments(LocalDate from, LocalDate to, OutputStream out) throws IOException {
+        Query query = new Query();
+        if (from != null || to != null) {
+            Criteria range = Criteria.where("timestamp");
+            if (from != null) range.gte(from.atStartOfDay());
+            if (to != null) range.lt(to.plusDays(1).atStartOfDay());
+            query.addCriteria(range);
+        }
+        export(out, query, PaymentRecord.class,
+                new String[]{"paymentRecordId", "orderId", "paymentId", "receipt", "amount", "status", "timestamp"},
+                p -> new Object[]{p.getId(), p.getOrderId(), p.getPaymentId(), p.getReceipt(), p.getAmount(), p.getStatus(), p.getTimestamp()});
+    }
+
+    private <T> void export(OutputStream out, Query query, Class<T> type, String[] header, Function<T, Object[]> row) throws IOException {
+        query.with(Sort.by("_id")).cursorBatchSize(cursorBatch);
+        CsvWriter csv = new CsvWriter(out, flushRows);
+        csv.row((Object[]) header);
+        try (Stream<T> documents = mongoTemplate.stream(query, type)) {
+            Iterator<T> it = documents.iterator();
+            while (it.hasNext()) csv.row(row.apply(it.next()));
+        }
+        csv.close();
+    }
+
+    private static Query query(Collection<String> busIds, String dateField, LocalDate from, LocalDate to) {
+        Query query = new Query();
+        if (busIds != null) query.addCriteria(Criteria.where("busId").in(busIds));
+        if (from != null || to != null) {
+            Criteria range = Criteria.where(dateField);
+            if (from != null) range.gte(from);
+            if (to != null) range.lte(to);
+            query.addCriteria(range);
+        }
+        return query;
+    }
+
+    private Map<String, String> busNames(Collection<String> busIds) {
+        Map<String, String> names = new HashMap<>();
+        List<Bus> buses = busIds == null ? busRepository.findAll() : busRepository.findAllById(busIds);
+        buses.forEach(bus -> names.put(bus.getId(), bus.getBusName()));
+        return names;
+    }
+}
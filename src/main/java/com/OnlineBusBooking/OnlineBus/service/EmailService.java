@@ -10,6 +10,7 @@ import org.springframework.mail.javamail.JavaMailSender;
 import org.springframework.mail.javamail.MimeMessageHelper;
 import org.springframework.stereotype.Service;
 
+import java.time.LocalDate;
 import java.util.List;
 import java.util.Optional;
 
@@ -28,7 +29,7 @@ public class EmailService {
 
         Booking first = bookings.get(0);
         String passengerName = Optional.ofNullable(first.getPassengerName()).orElse("Valued Passenger");
-        String travelDate = Optional.ofNullable(first.getTravelDate()).orElse("N/A");
+        String travelDate = Optional.ofNullable(first.getTravelDate()).map(LocalDate::toString).orElse("N/A");
         String bookingDate = travelDate; // You can replace with actual booking date if stored
         int passengerCount = bookings.size();
         double totalAmount = bookings.stream().mapToDouble(Booking::getFare).sum();
@@ -0,0 +1,115 @@
+package com.OnlineBusBooking.OnlineBus.service;
+
+import com.OnlineBusBooking.OnlineBus.model.TripSchedule;
+import com.OnlineBusBooking.OnlineBus.repository.TripScheduleRepository;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Per-route, per-date trip aggregate (scheduleId → busId), kept in step with schedule writes.
+ * A fare calendar query walks only the matching routes' date ranges and prices each trip
+ * with the O(1) per-bus fare summary, instead of running a search per day. Only trips from
+ * today on are kept: past days cannot be booked and show no trips, so past-dated writes are
+ * ignored and days that have gone by are pruned by the first calendar query of each day.
+ */
+@Service
+public class FareCalendarService {
+
+    @Autowired
+    private TripScheduleRepository tripScheduleRepository;
+
+    @Autowired
+    private RouteIndex routeIndex;
+
+    @Autowired
+    private BusFareService busFareService;
+
+    // routeId → date → (scheduleId → busId)
+    private final Map<String, NavigableMap<LocalDate, Map<String, String>>> tripsByRoute = new ConcurrentHashMap<>();
+
+    // Day the past dates were last dropped
+    private final AtomicReference<LocalDate> prunedOn = new AtomicReference<>();
+
+    // ✅ Load upcoming schedules once at startup
+    @PostConstruct
+    public void rebuild() {
+        tripsByRoute.clear();
+        LocalDate today = LocalDate.now();
+        prunedOn.set(today);
+        tripScheduleRepository.findByDateGreaterThanEqual(today).forEach(this::add);
+    }
+
+    public void add(TripSchedule schedule) {
+        if (schedule == null || schedule.getRouteId() == null || schedule.getDate() == null || schedule.getId() == null) return;
+        if (schedule.getDate().isBefore(LocalDate.now())) return;
+        tripsByRoute.computeIfAbsent(schedule.getRouteId(), k -> new ConcurrentSkipListMap<>())
+                .computeIfAbsent(schedule.getDate(), k -> new ConcurrentHashMap<>())
+                .put(schedule.getId(), schedule.getBusId() == null ? "" : schedule.getBusId());
+    }
+
+    public void remove(TripSchedule schedule) {
+        if (schedule == null || schedule.getRouteId() == null || schedule.getDate() == null) return;
+        NavigableMap<LocalDate, Map<String, String>> byDate = tripsByRoute.get(schedule.getRouteId());
+        if (byDate == null) return;
+        Map<String, String> trips = byDate.get(schedule.getDate());
+        if (trips == null) return;
+        trips.remove(schedule.getId());
+        if (trips.isEmpty()) byDate.remove(schedule.getDate(), trips);
+    }
+
+    // ✅ Cheapest estimated fare and trip count for each day in [start, end]
+    public List<Map<String, Object>> calendar(String from, String to, LocalDate start, LocalDate end) {
+        pruneBefore(LocalDate.now());
+        String fromLower = RouteStopIndex.normalize(from);
+        String toLower = RouteStopIndex.normalize(to);
+        TreeMap<LocalDate, double[]> days = new TreeMap<>(); // date → {cheapest, trips}
+
+        for (RouteIndex.Match match : routeIndex.findRoutes(fromLower, toLower)) {
+            NavigableMap<LocalDate, Map<String, String>> byDate = tripsByRoute.get(match.route().getId());
+            if (byDate == null) continue;
+            for (Map.Entry<LocalDate, Map<String, String>> day : byDate.subMap(start, true, end, true).entrySet()) {
+                double[] cell = days.computeIfAbsent(day.getKey(), d -> new double[]{0.0, 0});
+                for (String busId : day.getValue().values()) {
+                    double fare = busFareService.estimateFare(busId, fromLower, toLower, match.fullPath());
+                    if (fare > 0 && (cell[0] == 0.0 || fare < cell[0])) cell[0] = fare;
+                    cell[1]++;
+                }
+            }
+        }
+
+        List<Map<String, Object>> calendar = new ArrayList<>();
+        for (LocalDate date = start; !date.isAfter(end); date = date.plusDays(1)) {
+            double[] cell = days.get(date);
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("date", date.toString());
+            entry.put("cheapestFare", cell == null || cell[0] == 0.0 ? null : cell[0]);
+            entry.put("trips", cell == null ? 0 : (int) cell[1]);
+            calendar.add(entry);
+        }
+        return calendar;
+    }
+
+    // Drops days before `today` from every route, at most once per day; emptied routes keep their (empty) map
+    void pruneBefore(LocalDate today) {
+        LocalDate last = prunedOn.get();
+        if (today.equals(last) || !prunedOn.compareAndSet(last, today)) return;
+        tripsByRoute.values().forEach(byDate -> byDate.headMap(today).clear());
+    }
+
+    // Days currently held across all routes
+    int dayCount() {
+        return tripsByRoute.values().stream().mapToInt(Map::size).sum();
+    }
+}
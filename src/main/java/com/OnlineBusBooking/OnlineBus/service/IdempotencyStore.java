@@ -0,0 +1,171 @@
+package com.OnlineBusBooking.OnlineBus.service;
+
+import com.OnlineBusBooking.OnlineBus.model.IdempotencyRecord;
+import com.OnlineBusBooking.OnlineBus.repository.IdempotencyRecordRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.Principal;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+/**
+ * Replays stored responses for retried requests carrying an `Idempotency-Key` header. Keys are
+ * per principal and endpoint, and a request is matched by the SHA-256 of its JSON body. Keys
+ * live in a bounded, TTL-limited in-memory cache and, with `idempotency.persist=true`, in a
+ * Mongo collection with a 24h TTL index so replays survive restarts and other instances. A
+ * retry that arrives while the first request is still running waits for its response on this
+ * instance; on another instance the claim is a Mongo insert, and losing it is a 409 until the
+ * first request finishes. Server errors (5xx) are not stored, so those requests can be retried.
+ */
+@Service
+public class IdempotencyStore {
+
+    public static final String HEADER = "Idempotency-Key";
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private IdempotencyRecordRepository idempotencyRecordRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${idempotency.cache.max-size:100000}")
+    private long maxSize;
+
+    @Value("${idempotency.cache.ttl-minutes:60}")
+    private long ttlMinutes;
+
+    @Value("${idempotency.persist:false}")
+    private boolean persist;
+
+    // Status of a persisted key whose first request has not finished yet
+    static final int IN_FLIGHT = 0;
+
+    private Cache<String, CompletableFuture<Stored>> responses;
+    // Sorted map keys, so equal maps always serialize (and hash) the same
+    private ObjectMapper canonicalJson;
+
+    record Stored(String fingerprint, int status, Object body) {}
+
+    @PostConstruct
+    public void init() {
+        responses = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofMinutes(ttlMinutes))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, responses, "idempotency");
+        canonicalJson = objectMapper.copy().configure(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS, true);
+    }
+
+    /**
+     * Runs `action` once per (scope, principal, key). Later calls with the same key get the stored
+     * response, marked with an `Idempotent-Replayed` header; reusing a key for a different request is a 422.
+     */
+    public <T> ResponseEntity<T> execute(String scope, String key, Principal principal, Object request,
+                                         Supplier<ResponseEntity<T>> action) {
+        if (key == null || key.isBlank()) return action.get();
+        String id = scope + ":" + (principal == null ? "" : principal.getName()) + ":" + key;
+        String fingerprint = fingerprint(request);
+
+        CompletableFuture<Stored> mine = new CompletableFuture<>();
+        CompletableFuture<Stored> existing = responses.asMap().putIfAbsent(id, mine);
+        if (existing != null) return replay(existing.join(), fingerprint);
+
+        if (persist) {
+            Stored earlier = claim(id, fingerprint);
+            if (earlier != null) {
+                if (earlier.status() == IN_FLIGHT) {
+                    responses.asMap().remove(id, mine);
+                    earlier = new Stored(fingerprint, HttpStatus.CONFLICT.value(),
+                            "❌ A request with this Idempotency-Key is still in progress.");
+                }
+                mine.complete(earlier);
+                return replay(earlier, fingerprint);
+            }
+        }
+
+        ResponseEntity<T> response;
+        try {
+            response = action.get();
+        } catch (RuntimeException e) {
+            forget(id, mine);
+            mine.completeExceptionally(e);
+            throw e;
+        }
+        Stored stored = new Stored(fingerprint, response.getStatusCode().value(), response.getBody());
+        mine.complete(stored);
+        if (response.getStatusCode().is5xxServerError()) {
+            forget(id, mine);
+        } else if (persist) {
+            idempotencyRecordRepository.save(record(id, stored));
+        }
+        return response;
+    }
+
+    // Inserts an in-flight record for the key; null when this call owns it, else what is stored under it
+    private Stored claim(String id, String fingerprint) {
+        try {
+            idempotencyRecordRepository.insert(record(id, new Stored(fingerprint, IN_FLIGHT, null)));
+            return null;
+        } catch (DuplicateKeyException e) {
+            IdempotencyRecord record = idempotencyRecordRepository.findById(id).orElse(null);
+            return record == null
+                    ? new Stored(fingerprint, IN_FLIGHT, null) // finished with a server error just now
+                    : new Stored(record.getFingerprint(), record.getStatus(), record.getBody());
+        }
+    }
+
+    private void forget(String id, CompletableFuture<Stored> mine) {
+        responses.asMap().remove(id, mine);
+        if (persist) idempotencyRecordRepository.deleteById(id);
+    }
+
+    private static IdempotencyRecord record(String id, Stored stored) {
+        IdempotencyRecord record = new IdempotencyRecord();
+        record.setId(id);
+        record.setFingerprint(stored.fingerprint());
+        record.setStatus(stored.status());
+        record.setBody(stored.body());
+        return record;
+    }
+
+    private String fingerprint(Object request) {
+        try {
+            byte[] json = canonicalJson.writeValueAsBytes(request);
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(json));
+        } catch (JsonProcessingException | NoSuchAlgorithmException e) {
+            throw new IllegalStateException("Cannot fingerprint the request body", e);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> ResponseEntity<T> replay(Stored stored, String fingerprint) {
+        if (!stored.fingerprint().equals(fingerprint)) {
+            return (ResponseEntity<T>) ResponseEntity.unprocessableEntity()
+                    .body("❌ Idempotency-Key was already used for a different request.");
+        }
+        return (ResponseEntity<T>) ResponseEntity.status(stored.status())
+                .header("Idempotent-Replayed", "true")
+                .body(stored.body());
+    }
+}
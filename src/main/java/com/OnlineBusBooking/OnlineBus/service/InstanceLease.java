@@ -0,0 +1,95 @@
+package com.OnlineBusBooking.OnlineBus.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.util.Date;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The application is deployed as a single instance: seat bitmaps, holds, waitlist queues and
+ * the live seat-event hub are all in memory, and a seat leg is only checked against every
+ * other leg on it (partial overlaps included) inside this process. This lease enforces that.
+ * Startup fails while another live instance holds the lease document in `instance_lease`, the
+ * holder renews it every third of `booking.single-instance.lease-seconds`, and bookings are
+ * refused once a renewal has been missed for a whole lease (the other instance may have taken
+ * over). Set `booking.single-instance.enforce=false` only for local tooling.
+ */
+@Service
+public class InstanceLease {
+
+    static final String COLLECTION = "instance_lease";
+    private static final String LEASE_ID = "booking";
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Value("${booking.single-instance.enforce:true}")
+    private boolean enforce;
+
+    @Value("${booking.single-instance.lease-seconds:30}")
+    private long leaseSeconds;
+
+    private final String owner = UUID.randomUUID().toString();
+    private volatile long heldUntil;
+    private ScheduledExecutorService renewer;
+
+    @PostConstruct
+    public void init() {
+        if (!enforce) return;
+        if (!renew()) {
+            throw new IllegalStateException("❌ Another instance is running against this database; "
+                    + "the booking service must run as a single instance.");
+        }
+        renewer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "instance-lease");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long period = Math.max(TimeUnit.SECONDS.toMillis(leaseSeconds) / 3, 1);
+        renewer.scheduleWithFixedDelay(this::renew, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (renewer == null) return;
+        renewer.shutdownNow();
+        mongoTemplate.remove(Query.query(Criteria.where("_id").is(LEASE_ID).and("owner").is(owner)), COLLECTION);
+    }
+
+    // ✅ Whether this instance may book seats right now
+    public boolean isHeld() {
+        return !enforce || System.currentTimeMillis() < heldUntil;
+    }
+
+    // Takes or extends the lease if it is ours or has lapsed; false while another instance holds it
+    boolean renew() {
+        long now = System.currentTimeMillis();
+        long until = now + TimeUnit.SECONDS.toMillis(leaseSeconds);
+        Query ours = Query.query(Criteria.where("_id").is(LEASE_ID).orOperator(
+                Criteria.where("owner").is(owner), Criteria.where("expiresAt").lt(new Date(now))));
+        try {
+            // No match on an existing document makes the upsert insert a second `_id`: a duplicate key
+            mongoTemplate.upsert(ours, new Update().set("owner", owner).set("expiresAt", new Date(until)), COLLECTION);
+            heldUntil = until;
+            return true;
+        } catch (DuplicateKeyException e) {
+            heldUntil = 0;
+            return false;
+        } catch (RuntimeException e) {
+            e.printStackTrace(); // keep booking until the current lease runs out
+            return false;
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package com.OnlineBusBooking.OnlineBus.service;
+
+import com.OnlineBusBooking.OnlineBus.model.Bus;
+import com.OnlineBusBooking.OnlineBus.model.Route;
+import com.OnlineBusBooking.OnlineBus.model.TripSchedule;
+import com.OnlineBusBooking.OnlineBus.repository.BusRepository;
+import com.OnlineBusBooking.OnlineBus.repository.RouteRepository;
+import com.OnlineBusBooking.OnlineBus.repository.TripScheduleRepository;
+import com.OnlineBusBooking.OnlineBus.util.BatchLoader;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.annotation.RequestScope;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Per-request {@link BatchLoader}s for joining bookings (or anything else carrying a bus, route
+ * or schedule id) to those documents: prime with the ids on the page, then each lookup is a
+ * cache hit and the whole join costs one query per collection. Request-scoped, so nothing is
+ * shared or kept stale between requests.
+ */
+@Component
+@RequestScope
+public class JoinLoaders {
+
+    @Autowired
+    private BusRepository busRepository;
+
+    @Autowired
+    private RouteRepository routeRepository;
+
+    @Autowired
+    private TripScheduleRepository tripScheduleRepository;
+
+    private BatchLoader<String, Bus> buses;
+    private BatchLoader<String, Route> routes;
+    private BatchLoader<String, TripSchedule> tripSchedules;
+    private BatchLoader<String, List<Route>> routesByBus;
+
+    public BatchLoader<String, Bus> buses() {
+        if (buses == null) buses = new BatchLoader<>(ids -> byId(busRepository.findAllById(ids), Bus::getId));
+        return buses;
+    }
+
+    public BatchLoader<String, Route> routes() {
+        if (routes == null) routes = new BatchLoader<>(ids -> byId(routeRepository.findAllById(ids), Route::getId));
+        return routes;
+    }
+
+    public BatchLoader<String, TripSchedule> tripSchedules() {
+        if (tripSchedules == null) {
+            tripSchedules = new BatchLoader<>(ids -> byId(tripScheduleRepository.findAllById(ids), TripSchedule::getId));
+        }
+        return tripSchedules;
+    }
+
+    // ✅ Routes keyed by bus id, for joins that only know the bus (bookings, waitlist entries)
+    public BatchLoader<String, List<Route>> routesByBus() {
+        if (routesByBus == null) {
+            routesByBus = new BatchLoader<>(busIds -> {
+                Map<String, List<Route>> grouped = new HashMap<>();
+                for (Route route : routeRepository.findByBusIdIn(new ArrayList<>(busIds))) {
+                    grouped.computeIfAbsent(route.getBusId(), b -> new ArrayList<>()).add(route);
+                }
+                return grouped;
+            });
+        }
+        return routesByBus;
+    }
+
+    private static <T> Map<String, T> byId(Iterable<T> documents, Function<T, String> id) {
+        Map<String, T> map = new HashMap<>();
+        for (T document : documents) map.put(id.apply(document), document);
+        return map;
+    }
+}
@@ -4,6 +4,7 @@ package com.OnlineBusBooking.OnlineBus.service;
 import com.razorpay.Order;
 import com.razorpay.RazorpayClient;
 import com.razorpay.RazorpayException;
+import com.razorpay.Utils;
 import org.json.JSONObject;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
@@ -45,5 +46,32 @@ public class RazorpayService {
         return order.toString();  // Return order details as JSON string
     }
 
+    // ✅ Amount of the order in paise, as Razorpay has it; null when the order cannot be fetched
+    public Long orderAmount(String orderId) {
+        if (orderId == null) return null;
+        try {
+            Order order = new RazorpayClient(apiKey, apiSecret).orders.fetch(orderId);
+            Object amount = order.get("amount");
+            return amount instanceof Number number ? number.longValue() : null;
+        } catch (RazorpayException e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    // ✅ Checks the checkout handler's signature (HMAC of order_id|payment_id with the key secret)
+    public boolean verifyPayment(String orderId, String paymentId, String signature) {
+        if (orderId == null || paymentId == null || signature == null) return false;
+        JSONObject attributes = new JSONObject();
+        attributes.put("razorpay_order_id", orderId);
+        attributes.put("razorpay_payment_id", paymentId);
+        attributes.put("razorpay_signature", signature);
+        try {
+            return Utils.verifyPaymentSignature(attributes, apiSecret);
+        } catch (RazorpayException e) {
+            return false;
+        }
+    }
+
 
 }
\ No newline at end of file
@@ -0,0 +1,21 @@
+package com.OnlineBusBooking.OnlineBus.service;
+
+import com.OnlineBusBooking.OnlineBus.model.Route;
+
+import java.util.List;
+
+/**
+ * Finds the routes serving an ordered from → to pair. BusSearchService works against
+ * this interface so the lookup structure can be swapped without touching the controllers.
+ */
+public interface RouteIndex {
+
+    record Match(Route route, List<String> fullPath, int fromIndex, int toIndex) {}
+
+    // Routes that visit `from` before `to`; names are matched case-insensitively
+    List<Match> findRoutes(String from, String to);
+
+    void index(Route route);
+
+    void remove(String routeId);
+}
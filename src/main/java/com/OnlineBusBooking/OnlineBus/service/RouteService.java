@@ -13,8 +13,18 @@ public class RouteService {
     @Autowired
     private RouteRepository routeRepository;
 
+    @Autowired
+    private BusSearchService busSearchService;
+
+    @Autowired
+    private AgentStatsService agentStatsService;
+
     public Route saveRoute(Route route) {
-        return routeRepository.save(route);
+        Route before = route.getId() == null ? null : routeRepository.findById(route.getId()).orElse(null);
+        Route saved = routeRepository.save(route);
+        busSearchService.routeSaved(saved);
+        agentStatsService.routeChanged(before, saved);
+        return saved;
     }
 
     public List<Route> getAllRoutes() {
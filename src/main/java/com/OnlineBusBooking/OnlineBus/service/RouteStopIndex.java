@@ -0,0 +1,158 @@
+package com.OnlineBusBooking.OnlineBus.service;
+
+import com.OnlineBusBooking.OnlineBus.model.Route;
+import com.OnlineBusBooking.OnlineBus.repository.RouteRepository;
+import com.OnlineBusBooking.OnlineBus.util.StopNameTrie;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+/**
+ * In-memory inverted index of stop name → (routeId, position).
+ * A from/to search intersects two posting lists instead of scanning every route.
+ */
+@Service
+public class RouteStopIndex implements RouteIndex {
+
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    @Autowired
+    private RouteRepository routeRepository;
+
+    // routeId → route plus its lowercased full path (from, stops..., to)
+    private final Map<String, IndexedRoute> routesById = new ConcurrentHashMap<>();
+
+    // stop → (routeId → first position of the stop on that route)
+    private final Map<String, Map<String, Integer>> postings = new ConcurrentHashMap<>();
+
+    // Stop names weighted by number of routes, for autocomplete
+    private final StopNameTrie stopNames = new StopNameTrie();
+
+    public record IndexedRoute(Route route, List<String> fullPath) {}
+
+    // ✅ Load every route once at startup
+    @PostConstruct
+    public void rebuild() {
+        rebuild(routeRepository.findAll());
+    }
+
+    public synchronized void rebuild(Collection<Route> routes) {
+        routesById.clear();
+        postings.clear();
+        stopNames.clear();
+        routes.forEach(this::index);
+    }
+
+    // ✅ Add or replace a route (call after every save)
+    @Override
+    public synchronized void index(Route route) {
+        if (route == null || route.getId() == null) return;
+        remove(route.getId());
+
+        List<String> fullPath = fullPath(route);
+        routesById.put(route.getId(), new IndexedRoute(route, fullPath));
+        for (int i = 0; i < fullPath.size(); i++) {
+            postings.computeIfAbsent(fullPath.get(i), k -> new ConcurrentHashMap<>())
+                    .putIfAbsent(route.getId(), i);
+        }
+        distinctStopNames(route).forEach(stopNames::add);
+    }
+
+    // ✅ Drop a route (call after every delete)
+    @Override
+    public synchronized void remove(String routeId) {
+        IndexedRoute old = routesById.remove(routeId);
+        if (old == null) return;
+        distinctStopNames(old.route()).forEach(stopNames::remove);
+        for (String stop : old.fullPath()) {
+            Map<String, Integer> list = postings.get(stop);
+            if (list != null) {
+                list.remove(routeId);
+                if (list.isEmpty()) postings.remove(stop);
+            }
+        }
+    }
+
+    // ✅ Intersect the two posting lists and keep routes where `from` comes first
+    @Override
+    public List<Match> findRoutes(String from, String to) {
+        Map<String, Integer> fromList = postings.get(normalize(from));
+        Map<String, Integer> toList = postings.get(normalize(to));
+        if (fromList == null || toList == null) return List.of();
+
+        // Walk the shorter posting list, probe the longer one
+        boolean fromSmaller = fromList.size() <= toList.size();
+        Map<String, Integer> small = fromSmaller ? fromList : toList;
+        Map<String, Integer> large = fromSmaller ? toList : fromList;
+
+        List<Match> matches = new ArrayList<>();
+        for (Map.Entry<String, Integer> entry : small.entrySet()) {
+            Integer other = large.get(entry.getKey());
+            if (other == null) continue;
+            int fromIndex = fromSmaller ? entry.getValue() : other;
+            int toIndex = fromSmaller ? other : entry.getValue();
+            if (fromIndex >= toIndex) continue;
+            IndexedRoute indexed = routesById.get(entry.getKey());
+            if (indexed != null) {
+                matches.add(new Match(indexed.route(), indexed.fullPath(), fromIndex, toIndex));
+            }
+        }
+        return matches;
+    }
+
+    // ✅ Ranked, typo-tolerant stop name suggestions for a partially typed name
+    public List<String> suggestStops(String query, int limit) {
+        return stopNames.suggest(query, limit, StopNameTrie.defaultMaxEdits(query)).stream()
+                .map(StopNameTrie.Suggestion::name)
+                .toList();
+    }
+
+    public IndexedRoute get(String routeId) {
+        return routesById.get(routeId);
+    }
+
+    public int size() {
+        return routesById.size();
+    }
+
+    public static List<String> fullPath(Route route) {
+        List<String> path = new ArrayList<>();
+        path.add(normalize(route.getFrom()));
+        if (route.getStops() != null) route.getStops().forEach(s -> path.add(normalize(s)));
+        path.add(normalize(route.getTo()));
+        return List.copyOf(path);
+    }
+
+    // Original spellings of the stops on a route, one per distinct name
+    private static Collection<String> distinctStopNames(Route route) {
+        Map<String, String> names = new LinkedHashMap<>();
+        names.putIfAbsent(normalize(route.getFrom()), route.getFrom());
+        if (route.getStops() != null) route.getStops().forEach(s -> names.putIfAbsent(normalize(s), s));
+        names.putIfAbsent(normalize(route.getTo()), route.getTo());
+        names.remove("");
+        return names.values();
+    }
+
+    // ✅ The route's own spelling of a stop typed in any case or spacing; the trimmed input when it is not on the route
+    public static String canonicalStop(Route route, String stop) {
+        if (stop == null || stop.isBlank()) return null;
+        String key = normalize(stop);
+        for (String name : distinctStopNames(route)) {
+            if (normalize(name).equals(key)) return name.trim();
+        }
+        return stop.trim();
+    }
+
+    // Case-folded, trimmed, inner whitespace collapsed: "  Kurnool  Bus Stand" and "kurnool bus stand" match
+    public static String normalize(String stop) {
+        return stop == null ? "" : WHITESPACE.matcher(stop.trim()).replaceAll(" ").toLowerCase();
+    }
+}
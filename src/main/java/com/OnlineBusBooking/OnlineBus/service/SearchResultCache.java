@@ -0,0 +1,123 @@
+package com.OnlineBusBooking.OnlineBus.service;
+
+import com.OnlineBusBooking.OnlineBus.model.TripSchedule;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Bounded (size + TTL) cache of bus search results keyed by (from, to, date).
+ * Entries remember which routes and buses they were built from so that writes
+ * only evict the searches they can actually change.
+ * Every invalidation bumps a generation counter, and a search only stores its result if no
+ * invalidation ran while it was being built, so a slow search can never put back what a
+ * concurrent write just evicted.
+ * Hit/miss/eviction counters are published as the "busSearch" cache metrics.
+ */
+@Service
+public class SearchResultCache {
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${search.cache.max-size:10000}")
+    private long maxSize;
+
+    @Value("${search.cache.ttl-seconds:300}")
+    private long ttlSeconds;
+
+    private Cache<SearchKey, CachedSearch> cache;
+    private final AtomicLong generation = new AtomicLong();
+
+    public record SearchKey(String from, String to, LocalDate date) {}
+
+    public record CachedSearch(List<Map<String, Object>> results, Set<String> routeIds, Set<String> busIds) {}
+
+    @PostConstruct
+    public void init() {
+        cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "busSearch");
+    }
+
+    public CachedSearch getEntry(String from, String to, LocalDate date, Supplier<CachedSearch> loader) {
+        SearchKey key = key(from, to, date);
+        CachedSearch cached = cache.getIfPresent(key);
+        if (cached != null) return cached;
+        long started = generation.get();
+        CachedSearch loaded = loader.get();
+        putIfCurrent(key, loaded, started);
+        return loaded;
+    }
+
+    public List<Map<String, Object>> getIfPresent(String from, String to, LocalDate date) {
+        CachedSearch entry = cache.getIfPresent(key(from, to, date));
+        return entry == null ? null : entry.results();
+    }
+
+    // ✅ Generation to pass to put(): read it before running the search
+    public long generation() {
+        return generation.get();
+    }
+
+    // ✅ Stores the entry unless something was invalidated since `started`
+    public void put(String from, String to, LocalDate date, CachedSearch entry, long started) {
+        putIfCurrent(key(from, to, date), entry, started);
+    }
+
+    // Invalidations bump the generation before evicting, so a check inside compute() cannot miss one
+    private void putIfCurrent(SearchKey key, CachedSearch entry, long started) {
+        cache.asMap().compute(key, (k, current) -> generation.get() == started ? entry : current);
+    }
+
+    private static SearchKey key(String from, String to, LocalDate date) {
+        return new SearchKey(RouteStopIndex.normalize(from), RouteStopIndex.normalize(to), date);
+    }
+
+    // ✅ Route added/updated/deleted: drop searches that used it or that its new path can now serve
+    public void invalidateRoute(String routeId, List<String> newPath) {
+        generation.incrementAndGet();
+        cache.asMap().entrySet().removeIf(e -> {
+            if (e.getValue().routeIds().contains(routeId)) return true;
+            if (newPath == null) return false;
+            int fromIdx = newPath.indexOf(e.getKey().from());
+            return fromIdx != -1 && newPath.lastIndexOf(e.getKey().to()) > fromIdx;
+        });
+    }
+
+    // ✅ Schedule written or removed: only searches for that date over that route/bus change
+    public void invalidateSchedule(TripSchedule schedule) {
+        if (schedule == null) return;
+        generation.incrementAndGet();
+        cache.asMap().entrySet().removeIf(e -> e.getKey().date().equals(schedule.getDate())
+                && (e.getValue().routeIds().contains(schedule.getRouteId())
+                || e.getValue().busIds().contains(schedule.getBusId())));
+    }
+
+    // ✅ Bus details or seat layout changed: its fares/labels in cached results are stale
+    public void invalidateBus(String busId) {
+        generation.incrementAndGet();
+        cache.asMap().values().removeIf(entry -> entry.busIds().contains(busId));
+    }
+
+    public void invalidateAll() {
+        generation.incrementAndGet();
+        cache.invalidateAll();
+    }
+}
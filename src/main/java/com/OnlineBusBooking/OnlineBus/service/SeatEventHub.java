@@ -0,0 +1,210 @@
+package com.OnlineBusBooking.OnlineBus.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Pushes seat-state deltas to seat maps that are open on a trip, over Server-Sent Events.
+ * Subscribers are grouped per trip (busId, date) and per searched leg, so each change is
+ * looked up in the {@link SeatInventory} and serialized once per leg, not once per viewer.
+ * Every connection has a small bounded queue drained by a shared sender pool; a viewer whose
+ * queue fills up is disconnected (its EventSource reconnects and reloads the snapshot) rather
+ * than buffering without limit or slowing the booking that caused the change.
+ */
+@Service
+public class SeatEventHub {
+
+    @Autowired
+    private SeatInventory seatInventory;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${seat-events.buffer:32}")
+    private int bufferSize;
+
+    @Value("${seat-events.senders:4}")
+    private int senderThreads;
+
+    @Value("${seat-events.timeout-minutes:30}")
+    private long timeoutMinutes;
+
+    @Value("${seat-events.heartbeat-seconds:25}")
+    private long heartbeatSeconds;
+
+    // "busId|date" → searched leg → open connections
+    private final Map<String, Map<Leg, Set<Subscriber>>> channels = new ConcurrentHashMap<>();
+    private final AtomicInteger subscribers = new AtomicInteger();
+    private ExecutorService senders;
+    private ScheduledExecutorService heartbeats;
+    private Counter dropped;
+
+    /** Seat number → booked / held / free, as seen from the subscriber's leg. */
+    public record SeatDelta(String busId, LocalDate date, Map<String, String> seats) {}
+
+    private record Leg(String from, String to) {}
+
+    private record Outgoing(String name, String data) {}
+
+    private static final Outgoing HEARTBEAT = new Outgoing(null, null);
+
+    @PostConstruct
+    public void init() {
+        AtomicInteger threadIds = new AtomicInteger();
+        senders = Executors.newFixedThreadPool(senderThreads, r -> {
+            Thread thread = new Thread(r, "seat-events-" + threadIds.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        heartbeats = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "seat-events-heartbeat");
+            thread.setDaemon(true);
+            return thread;
+        });
+        heartbeats.scheduleAtFixedRate(this::heartbeat, heartbeatSeconds, heartbeatSeconds, TimeUnit.SECONDS);
+        dropped = meterRegistry.counter("seat.events.dropped");
+        meterRegistry.gauge("seat.events.subscribers", subscribers);
+        seatInventory.addListener(this::seatsChanged);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        channels.values().forEach(legs -> legs.values().forEach(subs -> subs.forEach(Subscriber::close)));
+        if (heartbeats != null) heartbeats.shutdownNow();
+        if (senders != null) senders.shutdownNow();
+    }
+
+    // ✅ Open a stream of seat changes for one trip, as seen from the from → to leg
+    public SseEmitter subscribe(String busId, LocalDate date, String from, String to) {
+        SseEmitter emitter = new SseEmitter(TimeUnit.MINUTES.toMillis(timeoutMinutes));
+        Subscriber subscriber = new Subscriber(emitter, key(busId, date),
+                new Leg(RouteStopIndex.normalize(from), RouteStopIndex.normalize(to)));
+        channels.compute(subscriber.channel, (k, legs) -> {
+            if (legs == null) legs = new ConcurrentHashMap<>();
+            legs.computeIfAbsent(subscriber.leg, l -> ConcurrentHashMap.newKeySet()).add(subscriber);
+            return legs;
+        });
+        subscribers.incrementAndGet();
+        emitter.onCompletion(subscriber::close);
+        emitter.onTimeout(subscriber::close);
+        emitter.onError(e -> subscriber.close());
+        return emitter;
+    }
+
+    // Runs on the thread that changed the seats; only looks up states and enqueues
+    void seatsChanged(String busId, LocalDate date, Set<String> seats) {
+        Map<Leg, Set<Subscriber>> legs = channels.get(key(busId, date));
+        if (legs == null) return;
+        legs.forEach((leg, subs) -> {
+            if (subs.isEmpty()) return;
+            Map<String, String> states = seatInventory.seatStates(busId, date, leg.from(), leg.to(), seats);
+            Outgoing event;
+            try {
+                event = new Outgoing("seats", objectMapper.writeValueAsString(new SeatDelta(busId, date, states)));
+            } catch (JsonProcessingException e) {
+                throw new IllegalStateException(e);
+            }
+            subs.forEach(subscriber -> subscriber.offer(event));
+        });
+    }
+
+    // Keeps proxies from closing idle streams and finds connections that are already gone
+    private void heartbeat() {
+        channels.values().forEach(legs -> legs.values().forEach(subs -> subs.forEach(s -> s.offer(HEARTBEAT))));
+    }
+
+    private void remove(Subscriber subscriber) {
+        channels.computeIfPresent(subscriber.channel, (k, legs) -> {
+            legs.computeIfPresent(subscriber.leg, (l, subs) -> {
+                subs.remove(subscriber);
+                return subs.isEmpty() ? null : subs;
+            });
+            return legs.isEmpty() ? null : legs;
+        });
+    }
+
+    private static String key(String busId, LocalDate date) {
+        return busId + "|" + date;
+    }
+
+    /** One open connection: a bounded queue, drained by at most one sender thread at a time. */
+    private final class Subscriber implements Runnable {
+        private final SseEmitter emitter;
+        private final String channel;
+        private final Leg leg;
+        private final BlockingQueue<Outgoing> queue = new ArrayBlockingQueue<>(bufferSize);
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+        private final AtomicBoolean closed = new AtomicBoolean();
+
+        Subscriber(SseEmitter emitter, String channel, Leg leg) {
+            this.emitter = emitter;
+            this.channel = channel;
+            this.leg = leg;
+        }
+
+        void offer(Outgoing event) {
+            if (closed.get()) return;
+            if (!queue.offer(event)) {
+                // Slow consumer: cut it loose instead of buffering more
+                dropped.increment();
+                close();
+                return;
+            }
+            if (scheduled.compareAndSet(false, true)) senders.execute(this);
+        }
+
+        @Override
+        public void run() {
+            try {
+                Outgoing event;
+                while (!closed.get() && (event = queue.poll()) != null) {
+                    emitter.send(event == HEARTBEAT
+                            ? SseEmitter.event().comment("ping")
+                            : SseEmitter.event().name(event.name()).data(event.data()));
+                }
+            } catch (IOException | IllegalStateException e) {
+                close();
+            } finally {
+                scheduled.set(false);
+                if (!closed.get() && !queue.isEmpty() && scheduled.compareAndSet(false, true)) senders.execute(this);
+            }
+        }
+
+        void close() {
+            if (!closed.compareAndSet(false, true)) return;
+            subscribers.decrementAndGet();
+            remove(this);
+            queue.clear();
+            try {
+                emitter.complete();
+            } catch (IllegalStateException ignored) {
+                // already completed by the container
+            }
+        }
+    }
+}
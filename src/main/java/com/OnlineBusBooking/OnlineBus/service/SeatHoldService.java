@@ -0,0 +1,226 @@
+package com.OnlineBusBooking.OnlineBus.service;
+
+import com.OnlineBusBooking.OnlineBus.model.Booking;
+import com.OnlineBusBooking.OnlineBus.util.HashedTimingWheel;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time-limited seat holds taken before payment starts. A hold claims its legs in the
+ * {@link SeatInventory} (where concurrent claims on a trip are serialized by that trip's lock)
+ * and is expired by a single {@link HashedTimingWheel}, not a scheduled task per hold. A hold
+ * belongs to the principal that took it: only that owner can release it or book against it.
+ */
+@Service
+public class SeatHoldService {
+
+    private static final int WHEEL_SIZE = 512;
+
+    // How a hold ended, as passed to each EndListener
+    public static final String BOOKED = "booked";
+    public static final String RELEASED = "released";
+    public static final String EXPIRED = "expired";
+
+    @Autowired
+    private SeatInventory seatInventory;
+
+    @Value("${booking.hold.minutes:10}")
+    private long holdMinutes;
+
+    @Value("${booking.hold.tick-ms:1000}")
+    private long tickMillis;
+
+    private final Map<String, Hold> holds = new ConcurrentHashMap<>();
+    private final Map<String, Set<String>> holdIdsByTrip = new ConcurrentHashMap<>();
+    private final List<EndListener> listeners = new CopyOnWriteArrayList<>();
+    private HashedTimingWheel<String> wheel;
+    private ScheduledExecutorService ticker;
+
+    public record Hold(String id, String owner, List<Booking> legs, long expiresAt, HashedTimingWheel.Timeout<String> timeout) {}
+
+    public record HoldResult(Hold hold, List<String> conflictingSeats, String error) {}
+
+    /** Told once when a hold is booked, released or expires, after its seats were handed back or booked. */
+    @FunctionalInterface
+    public interface EndListener {
+        void holdEnded(Hold hold, String outcome);
+    }
+
+    @PostConstruct
+    public void init() {
+        wheel = new HashedTimingWheel<>(tickMillis, WHEEL_SIZE, System.currentTimeMillis());
+        ticker = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "seat-hold-expiry");
+            thread.setDaemon(true);
+            return thread;
+        });
+        ticker.scheduleAtFixedRate(() -> wheel.advance(System.currentTimeMillis(), this::expire),
+                tickMillis, tickMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (ticker != null) ticker.shutdownNow();
+    }
+
+    public void addListener(EndListener listener) {
+        listeners.add(listener);
+    }
+
+    // ✅ Hold every seat leg for `booking.hold.minutes`, or none of them
+    public HoldResult hold(List<Booking> requested, String owner) {
+        return hold(requested, TimeUnit.MINUTES.toMillis(holdMinutes), owner);
+    }
+
+    // ✅ Same, for a custom duration (waitlist offers wait on an email reply)
+    public HoldResult hold(List<Booking> requested, long ttlMillis, String owner) {
+        if (owner == null) return new HoldResult(null, List.of(), "❌ Sign in to hold seats.");
+        if (requested == null || requested.isEmpty()) return new HoldResult(null, List.of(), "❌ No seats to hold.");
+        List<Booking> legs = new ArrayList<>();
+        for (Booking booking : requested) {
+            if (booking.getBusId() == null || booking.getTravelDate() == null || booking.getSeatNumber() == null) {
+                return new HoldResult(null, List.of(), "❌ busId, travelDate and seatNumber are required.");
+            }
+            if (!seatInventory.isValidLeg(booking.getBusId(), booking.getTravelDate(), booking.getPassengerFrom(), booking.getPassengerTo())) {
+                return new HoldResult(null, List.of(), "❌ Boarding and dropping points are not on this route.");
+            }
+            legs.add(leg(booking));
+        }
+
+        List<String> taken = seatInventory.hold(legs);
+        if (!taken.isEmpty()) return new HoldResult(null, taken, null);
+
+        long now = System.currentTimeMillis();
+        String id = UUID.randomUUID().toString();
+        Hold hold = new Hold(id, owner, List.copyOf(legs), now + ttlMillis, wheel.schedule(id, ttlMillis, now));
+        holds.put(id, hold);
+        legs.forEach(l -> holdIdsByTrip.computeIfAbsent(tripKey(l), k -> ConcurrentHashMap.newKeySet()).add(id));
+        return new HoldResult(hold, List.of(), null);
+    }
+
+    // ✅ Give the seats back early (payment dismissed or failed); false unless `owner` holds it
+    public boolean release(String holdId, String owner) {
+        Hold hold = owned(holdId, owner);
+        return hold != null && release(hold, RELEASED);
+    }
+
+    // ✅ Legs of the owner's active hold that the party books unchanged (same bus, date, seat and leg)
+    public List<Booking> matchingLegs(String holdId, String owner, List<Booking> bookings) {
+        Hold hold = owned(holdId, owner);
+        if (hold == null) return List.of();
+        List<Booking> matching = new ArrayList<>();
+        for (Booking leg : hold.legs()) {
+            if (bookings.stream().anyMatch(b -> sameLeg(leg, b))) matching.add(leg);
+        }
+        return matching;
+    }
+
+    // ✅ Ends the hold once its party is booked: `converted` legs are already booked in the inventory, the rest are released
+    public void complete(String holdId, List<Booking> converted) {
+        Hold hold = forget(holdId);
+        if (hold == null) return;
+        List<Booking> rest = hold.legs().stream().filter(leg -> converted.stream().noneMatch(c -> c == leg)).toList();
+        if (!rest.isEmpty()) seatInventory.releaseHold(rest);
+        ended(hold, BOOKED);
+    }
+
+    private Hold owned(String holdId, String owner) {
+        Hold hold = holdId == null ? null : holds.get(holdId);
+        return hold != null && hold.owner().equals(owner) ? hold : null;
+    }
+
+    private boolean release(Hold hold, String outcome) {
+        if (!holds.remove(hold.id(), hold)) return false;
+        unlink(hold);
+        seatInventory.releaseHold(hold.legs());
+        ended(hold, outcome);
+        return true;
+    }
+
+    private void ended(Hold hold, String outcome) {
+        for (EndListener listener : listeners) {
+            try {
+                listener.holdEnded(hold, outcome);
+            } catch (RuntimeException e) {
+                e.printStackTrace(); // a broken listener must not fail the booking or the expiry tick
+            }
+        }
+    }
+
+    private Hold forget(String holdId) {
+        Hold hold = holdId == null ? null : holds.remove(holdId);
+        if (hold != null) unlink(hold);
+        return hold;
+    }
+
+    private void unlink(Hold hold) {
+        String holdId = hold.id();
+        hold.timeout().cancel();
+        for (Booking leg : hold.legs()) {
+            Set<String> ids = holdIdsByTrip.get(tripKey(leg));
+            if (ids == null) continue;
+            ids.remove(holdId);
+            if (ids.isEmpty()) holdIdsByTrip.remove(tripKey(leg), ids);
+        }
+    }
+
+    // ✅ Legs of every active hold on one trip (used when the inventory reloads that trip)
+    public List<Booking> activeLegs(String busId, LocalDate travelDate) {
+        Set<String> ids = holdIdsByTrip.get(busId + "|" + travelDate);
+        if (ids == null) return List.of();
+        List<Booking> legs = new ArrayList<>();
+        for (String id : ids) {
+            Hold hold = holds.get(id);
+            if (hold == null) continue;
+            hold.legs().stream()
+                    .filter(l -> busId.equals(l.getBusId()) && travelDate.equals(l.getTravelDate()))
+                    .forEach(legs::add);
+        }
+        return legs;
+    }
+
+    public int size() {
+        return holds.size();
+    }
+
+    private void expire(String holdId) {
+        Hold hold = holds.get(holdId);
+        if (hold != null) release(hold, EXPIRED);
+    }
+
+    private static boolean sameLeg(Booking leg, Booking booking) {
+        return leg.getBusId().equals(booking.getBusId()) && leg.getTravelDate().equals(booking.getTravelDate())
+                && leg.getSeatNumber().equalsIgnoreCase(booking.getSeatNumber())
+                && RouteStopIndex.normalize(leg.getPassengerFrom()).equals(RouteStopIndex.normalize(booking.getPassengerFrom()))
+                && RouteStopIndex.normalize(leg.getPassengerTo()).equals(RouteStopIndex.normalize(booking.getPassengerTo()));
+    }
+
+    private static Booking leg(Booking booking) {
+        Booking leg = new Booking();
+        leg.setBusId(booking.getBusId());
+        leg.setTravelDate(booking.getTravelDate());
+        leg.setSeatNumber(booking.getSeatNumber());
+        leg.setPassengerFrom(booking.getPassengerFrom());
+        leg.setPassengerTo(booking.getPassengerTo());
+        return leg;
+    }
+
+    private static String tripKey(Booking leg) {
+        return leg.getBusId() + "|" + leg.getTravelDate();
+    }
+}
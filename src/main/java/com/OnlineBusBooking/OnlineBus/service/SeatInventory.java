@@ -0,0 +1,494 @@
+package com.OnlineBusBooking.OnlineBus.service;
+
+import com.OnlineBusBooking.OnlineBus.model.Booking;
+import com.OnlineBusBooking.OnlineBus.model.SeatLayout;
+import com.OnlineBusBooking.OnlineBus.repository.BookingRepository;
+import com.OnlineBusBooking.OnlineBus.repository.RouteRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Segment-level seat occupancy per trip (busId, travelDate). Segment i is the hop between
+ * stop i and stop i + 1 of the bus's route. Seats are numbered by their ordinal in the bus's
+ * {@link SeatLayout}, and each trip keeps two flat bitmaps (confirmed and held) of
+ * `seats × segments` bits, so availability checks are a few word ANDs per seat.
+ * Trips are loaded lazily from a seat/leg projection of the bookings plus active holds,
+ * updated by every reservation and evicted after `seat-inventory.idle-minutes` without use;
+ * /user/api/booked-seats is answered from here without touching the database.
+ */
+@Service
+public class SeatInventory {
+
+    @Autowired
+    private BookingRepository bookingRepository;
+
+    @Autowired
+    private RouteRepository routeRepository;
+
+    @Autowired
+    private SeatLayoutCache seatLayoutCache;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Lazy
+    @Autowired
+    private SeatHoldService seatHoldService;
+
+    @Value("${seat-inventory.idle-minutes:30}")
+    private long idleMinutes;
+
+    @Value("${seat-inventory.max-trips:100000}")
+    private long maxTrips;
+
+    private Cache<String, Trip> trips;
+
+    // busId → route stop order and seat ordinals, shared by all of the bus's trips
+    private final Map<String, Shape> shapes = new ConcurrentHashMap<>();
+
+    private final List<ChangeListener> listeners = new CopyOnWriteArrayList<>();
+
+    // Trip versions are drawn from one sequence, so a reloaded trip never reuses an old version; the
+    // start-time epoch keeps them apart from versions an earlier process handed out
+    private final long epoch = EPOCHS.updateAndGet(last -> Math.max(last + 1, System.currentTimeMillis()));
+    private final AtomicLong versions = new AtomicLong();
+
+    /** Told which seats of a trip were booked, held or released, after the trip lock is let go. */
+    @FunctionalInterface
+    public interface ChangeListener {
+        void seatsChanged(String busId, LocalDate travelDate, Set<String> seats);
+    }
+
+    /** A bus's stop order and layout seat numbering (case-folded seat number → ordinal). */
+    record Shape(List<String> path, Map<String, Integer> ordinals, List<String> names) {
+
+        int segments() {
+            return Math.max(path.size() - 1, 1);
+        }
+
+        // Appends seat numbers the layout does not have (bookings made before a layout edit)
+        Shape with(String seat) {
+            Map<String, Integer> moreOrdinals = new HashMap<>(ordinals);
+            List<String> moreNames = new ArrayList<>(names);
+            moreOrdinals.put(seatKey(seat), moreNames.size());
+            moreNames.add(seat);
+            return new Shape(path, Map.copyOf(moreOrdinals), List.copyOf(moreNames));
+        }
+
+        // Segments [from, to) as a `words`-long mask; null when the leg is not on this route in travel order
+        long[] leg(String from, String to) {
+            int start = isBlank(from) ? 0 : path.indexOf(RouteStopIndex.normalize(from));
+            int end = isBlank(to) ? segments() : path.lastIndexOf(RouteStopIndex.normalize(to));
+            if (path.size() < 2) {
+                start = 0;
+                end = 1;
+            }
+            if (start < 0 || end <= start) return null;
+            long[] leg = new long[words(segments())];
+            for (int s = start; s < end; s++) leg[s >>> 6] |= 1L << s;
+            return leg;
+        }
+    }
+
+    /** Seats taken on one leg of a trip, with the trip's stop order and version at the time of reading. */
+    public record Occupancy(long version, List<String> stops, List<String> booked, List<String> held) {}
+
+    public static final String BOOKED = "booked";
+    public static final String HELD = "held";
+    public static final String FREE = "free";
+
+    // Epochs only move forward, so two inventories never share one even when created in the same millisecond
+    private static final AtomicLong EPOCHS = new AtomicLong();
+
+    /** One trip's confirmed and (allocated on first hold) held bitmaps, seat-major; all access is synchronized on the trip. */
+    static final class Trip {
+        private Shape shape;
+        private final int words;
+        private long[] confirmed;
+        private long[] held;
+        private final AtomicLong versions;
+        private long version;
+
+        Trip(Shape shape, AtomicLong versions) {
+            this.shape = shape;
+            this.versions = versions;
+            this.version = versions.incrementAndGet();
+            this.words = words(shape.segments());
+            this.confirmed = new long[shape.names().size() * words];
+        }
+
+        long[] leg(String from, String to) {
+            return shape.leg(from, to);
+        }
+
+        long[] wholeRoute() {
+            return shape.leg(null, null);
+        }
+
+        synchronized boolean isFree(String seat, long[] leg) {
+            Integer ordinal = shape.ordinals().get(seatKey(seat));
+            return ordinal == null || (!intersects(confirmed, ordinal, leg) && (held == null || !intersects(held, ordinal, leg)));
+        }
+
+        synchronized void occupy(String seat, long[] leg) {
+            int ordinal = ordinal(seat);
+            set(confirmed, ordinal, leg);
+            version = versions.incrementAndGet();
+        }
+
+        synchronized void release(String seat, long[] leg) {
+            Integer ordinal = shape.ordinals().get(seatKey(seat));
+            if (ordinal != null) clear(confirmed, ordinal, leg);
+            version = versions.incrementAndGet();
+        }
+
+        synchronized void hold(String seat, long[] leg) {
+            int ordinal = ordinal(seat);
+            if (held == null) held = new long[confirmed.length];
+            set(held, ordinal, leg);
+            version = versions.incrementAndGet();
+        }
+
+        synchronized void releaseHold(String seat, long[] leg) {
+            Integer ordinal = shape.ordinals().get(seatKey(seat));
+            if (ordinal != null && held != null) clear(held, ordinal, leg);
+            version = versions.incrementAndGet();
+        }
+
+        synchronized String state(String seat, long[] leg) {
+            Integer ordinal = shape.ordinals().get(seatKey(seat));
+            if (ordinal == null) return FREE;
+            if (intersects(confirmed, ordinal, leg)) return BOOKED;
+            return held != null && intersects(held, ordinal, leg) ? HELD : FREE;
+        }
+
+        synchronized List<String> occupiedOn(long[] leg) {
+            return on(confirmed, leg);
+        }
+
+        synchronized List<String> heldOn(long[] leg) {
+            return held == null ? List.of() : on(held, leg);
+        }
+
+        synchronized long version() {
+            return version;
+        }
+
+        long bytes() {
+            return 8L * (confirmed.length + (held == null ? 0 : held.length));
+        }
+
+        private int ordinal(String seat) {
+            Integer ordinal = shape.ordinals().get(seatKey(seat));
+            if (ordinal != null) return ordinal;
+            shape = shape.with(seat);
+            confirmed = Arrays.copyOf(confirmed, shape.names().size() * words);
+            if (held != null) held = Arrays.copyOf(held, confirmed.length);
+            return shape.names().size() - 1;
+        }
+
+        private List<String> on(long[] bits, long[] leg) {
+            List<String> seats = new ArrayList<>();
+            for (int ordinal = 0; ordinal < shape.names().size(); ordinal++) {
+                if (intersects(bits, ordinal, leg)) seats.add(shape.names().get(ordinal));
+            }
+            return seats;
+        }
+
+        private boolean intersects(long[] bits, int ordinal, long[] leg) {
+            int base = ordinal * words;
+            for (int w = 0; w < words; w++) {
+                if ((bits[base + w] & leg[w]) != 0) return true;
+            }
+            return false;
+        }
+
+        private void set(long[] bits, int ordinal, long[] leg) {
+            int base = ordinal * words;
+            for (int w = 0; w < words; w++) bits[base + w] |= leg[w];
+        }
+
+        private void clear(long[] bits, int ordinal, long[] leg) {
+            int base = ordinal * words;
+            for (int w = 0; w < words; w++) bits[base + w] &= ~leg[w];
+        }
+    }
+
+    @PostConstruct
+    public void init() {
+        trips = Caffeine.newBuilder()
+                .maximumSize(maxTrips)
+                .expireAfterAccess(Duration.ofMinutes(idleMinutes))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, trips, "seatInventory");
+    }
+
+    // ✅ Whether the leg from → to lies on the bus's route (null/blank ends mean the route terminals)
+    public boolean isValidLeg(String busId, LocalDate travelDate, String from, String to) {
+        return trip(busId, travelDate).leg(from, to) != null;
+    }
+
+    // ✅ Seat numbers occupied on any segment of from → to; the whole route when blank or off-route
+    public List<String> occupiedSeats(String busId, LocalDate travelDate, String from, String to) {
+        Trip trip = trip(busId, travelDate);
+        long[] leg = trip.leg(from, to);
+        return trip.occupiedOn(leg != null ? leg : trip.wholeRoute());
+    }
+
+    // ✅ Seat numbers held (payment in progress) on any segment of from → to
+    public List<String> heldSeats(String busId, LocalDate travelDate, String from, String to) {
+        Trip trip = trip(busId, travelDate);
+        long[] leg = trip.leg(from, to);
+        return trip.heldOn(leg != null ? leg : trip.wholeRoute());
+    }
+
+    // ✅ Segment fare of from → to for a seat priced `basePrice`, the figure trip snapshots quote
+    public double legFare(String busId, LocalDate travelDate, String from, String to, double basePrice) {
+        Trip trip = trip(busId, travelDate);
+        List<String> path;
+        synchronized (trip) {
+            path = trip.shape.path();
+        }
+        int start = isBlank(from) ? 0 : path.indexOf(RouteStopIndex.normalize(from));
+        int end = isBlank(to) ? path.size() - 1 : path.lastIndexOf(RouteStopIndex.normalize(to));
+        if (path.size() < 2 || start < 0 || end <= start) return basePrice;
+        return BusFareService.segmentFare(basePrice, end - start, path.size() - 1);
+    }
+
+    // ✅ Booked and held seats on from → to plus the stop order, read together under the trip lock
+    public Occupancy occupancy(String busId, LocalDate travelDate, String from, String to) {
+        Trip trip = trip(busId, travelDate);
+        synchronized (trip) {
+            long[] leg = trip.leg(from, to);
+            if (leg == null) leg = trip.wholeRoute();
+            return new Occupancy(trip.version(), trip.shape.path(), trip.occupiedOn(leg), trip.heldOn(leg));
+        }
+    }
+
+    // ✅ booked / held / free for each seat on from → to (whole route when blank or off-route)
+    public Map<String, String> seatStates(String busId, LocalDate travelDate, String from, String to, Collection<String> seats) {
+        Trip trip = trip(busId, travelDate);
+        Map<String, String> states = new LinkedHashMap<>();
+        synchronized (trip) {
+            long[] leg = trip.leg(from, to);
+            if (leg == null) leg = trip.wholeRoute();
+            for (String seat : seats) states.put(seat, trip.state(seat, leg));
+        }
+        return states;
+    }
+
+    public void addListener(ChangeListener listener) {
+        listeners.add(listener);
+    }
+
+    // ✅ Changes whenever a seat of the trip is booked, held or released, or the bus's route/layout is edited
+    public long version(String busId, LocalDate travelDate) {
+        return trip(busId, travelDate).version();
+    }
+
+    // ✅ Versions are only comparable within one epoch: a restarted instance starts counting again under a new one
+    public long epoch() {
+        return epoch;
+    }
+
+    /**
+     * Claims every booking's seat for its leg, or none of them. Returns the seats that were
+     * already taken on an overlapping segment (including overlaps inside the party itself).
+     */
+    public List<String> reserve(List<Booking> bookings) {
+        return claim(bookings, List.of(), false);
+    }
+
+    // ✅ Same as reserve, but first hands back `heldLegs` (the caller's own hold) under the same trip lock
+    public List<String> reserve(List<Booking> bookings, List<Booking> heldLegs) {
+        return claim(bookings, heldLegs, false);
+    }
+
+    // ✅ Claims the legs as held rather than confirmed, all or nothing
+    public List<String> hold(List<Booking> legs) {
+        return claim(legs, List.of(), true);
+    }
+
+    // ✅ Frees the legs held by these bookings (failed insert, cancellation)
+    public void release(List<Booking> bookings) {
+        forEachLeg(bookings, Trip::release);
+        changed(bookings);
+    }
+
+    public void releaseHold(List<Booking> legs) {
+        forEachLeg(legs, Trip::releaseHold);
+        changed(legs);
+    }
+
+    private List<String> claim(List<Booking> bookings, List<Booking> heldLegs, boolean asHold) {
+        Map<Trip, List<Booking>> byTrip = new LinkedHashMap<>();
+        for (Booking booking : bookings) {
+            byTrip.computeIfAbsent(trip(booking.getBusId(), booking.getTravelDate()), k -> new ArrayList<>()).add(booking);
+        }
+        List<String> conflicts = new ArrayList<>();
+        List<Booking> claimed = new ArrayList<>();
+        for (Map.Entry<Trip, List<Booking>> entry : byTrip.entrySet()) {
+            Trip trip = entry.getKey();
+            synchronized (trip) {
+                for (Booking held : heldLegs) {
+                    if (trips.getIfPresent(key(held.getBusId(), held.getTravelDate())) != trip) continue;
+                    long[] leg = trip.leg(held.getPassengerFrom(), held.getPassengerTo());
+                    if (leg != null) trip.releaseHold(held.getSeatNumber(), leg);
+                }
+                for (Booking booking : entry.getValue()) {
+                    long[] leg = trip.leg(booking.getPassengerFrom(), booking.getPassengerTo());
+                    if (leg == null || !trip.isFree(booking.getSeatNumber(), leg)) {
+                        conflicts.add(booking.getSeatNumber());
+                        continue;
+                    }
+                    if (asHold) trip.hold(booking.getSeatNumber(), leg);
+                    else trip.occupy(booking.getSeatNumber(), leg);
+                    claimed.add(booking);
+                }
+            }
+        }
+        if (!conflicts.isEmpty()) {
+            forEachLeg(claimed, asHold ? Trip::releaseHold : Trip::release);
+            forEachLeg(heldLegs, Trip::hold); // the caller keeps its hold
+            return conflicts;
+        }
+        List<Booking> changed = new ArrayList<>(claimed);
+        changed.addAll(heldLegs);
+        changed(changed);
+        return conflicts;
+    }
+
+    // Tells the listeners which seats moved, one call per trip
+    private void changed(List<Booking> bookings) {
+        if (listeners.isEmpty() || bookings.isEmpty()) return;
+        Map<String, Set<String>> seatsByTrip = new LinkedHashMap<>();
+        Map<String, Booking> firstByTrip = new HashMap<>();
+        for (Booking booking : bookings) {
+            String key = key(booking.getBusId(), booking.getTravelDate());
+            seatsByTrip.computeIfAbsent(key, k -> new LinkedHashSet<>()).add(booking.getSeatNumber());
+            firstByTrip.putIfAbsent(key, booking);
+        }
+        seatsByTrip.forEach((key, seats) -> {
+            Booking first = firstByTrip.get(key);
+            for (ChangeListener listener : listeners) {
+                try {
+                    listener.seatsChanged(first.getBusId(), first.getTravelDate(), seats);
+                } catch (RuntimeException e) {
+                    e.printStackTrace(); // a broken listener must not fail the booking
+                }
+            }
+        });
+    }
+
+    private void forEachLeg(List<Booking> bookings, LegAction action) {
+        for (Booking booking : bookings) {
+            Trip trip = trips.getIfPresent(key(booking.getBusId(), booking.getTravelDate()));
+            if (trip == null) continue;
+            long[] leg = trip.leg(booking.getPassengerFrom(), booking.getPassengerTo());
+            if (leg != null) action.apply(trip, booking.getSeatNumber(), leg);
+        }
+    }
+
+    @FunctionalInterface
+    private interface LegAction {
+        void apply(Trip trip, String seat, long[] leg);
+    }
+
+    // ✅ Route or seat layout edited/removed: segment and seat numbering change, so drop the bus's trips
+    public void invalidateBus(String busId) {
+        if (busId == null) return;
+        shapes.remove(busId);
+        trips.asMap().keySet().removeIf(k -> k.startsWith(busId + "|"));
+    }
+
+    public void invalidateTrip(String busId, LocalDate travelDate) {
+        trips.invalidate(key(busId, travelDate));
+    }
+
+    public void invalidateAll() {
+        shapes.clear();
+        trips.invalidateAll();
+    }
+
+    long size() {
+        return trips.estimatedSize();
+    }
+
+    // Bitmap bytes across the loaded trips (object headers and cache entries not included)
+    long bitmapBytes() {
+        return trips.asMap().values().stream().mapToLong(Trip::bytes).sum();
+    }
+
+    Trip trip(String busId, LocalDate travelDate) {
+        return trips.get(key(busId, travelDate), k -> load(busId, travelDate));
+    }
+
+    private Trip load(String busId, LocalDate travelDate) {
+        Trip trip = new Trip(shapes.computeIfAbsent(busId, this::loadShape), versions);
+        for (Booking booking : bookingRepository.findSeatLegsByBusIdAndTravelDate(busId, travelDate)) {
+            long[] leg = trip.leg(booking.getPassengerFrom(), booking.getPassengerTo());
+            // Legs that no longer match the route are treated as the whole trip
+            trip.occupy(booking.getSeatNumber(), leg != null ? leg : trip.wholeRoute());
+        }
+        for (Booking held : seatHoldService.activeLegs(busId, travelDate)) {
+            long[] leg = trip.leg(held.getPassengerFrom(), held.getPassengerTo());
+            if (leg != null) trip.hold(held.getSeatNumber(), leg);
+        }
+        return trip;
+    }
+
+    private Shape loadShape(String busId) {
+        List<String> path = routeRepository.findByBusId(busId).stream()
+                .findFirst()
+                .map(RouteStopIndex::fullPath)
+                .orElse(List.of());
+        Map<String, Integer> ordinals = new HashMap<>();
+        List<String> names = new ArrayList<>();
+        seatLayoutCache.get(busId).ifPresent(layout -> {
+            for (SeatLayoutCache.SeatInfo seat : layout.seats()) {
+                ordinals.put(seatKey(seat.number()), seat.ordinal());
+                names.add(seat.number());
+            }
+        });
+        return new Shape(List.copyOf(path), Map.copyOf(ordinals), List.copyOf(names));
+    }
+
+    private static int words(int segments) {
+        return (segments + 63) >>> 6;
+    }
+
+    private static String key(String busId, LocalDate travelDate) {
+        return busId + "|" + travelDate;
+    }
+
+    private static String seatKey(String seat) {
+        return seat == null ? "" : seat.toLowerCase();
+    }
+
+    private static boolean isBlank(String s) {
+        return s == null || s.isBlank();
+    }
+}
@@ -0,0 +1,128 @@
+package com.OnlineBusBooking.OnlineBus.service;
+
+import com.OnlineBusBooking.OnlineBus.model.SeatLayout;
+import com.OnlineBusBooking.OnlineBus.repository.SeatLayoutRepository;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Read-through cache of seat layouts, each pre-indexed once into an immutable
+ * {@link IndexedLayout}: case-folded seat number → (ordinal, type, deck, price) plus per-deck
+ * seat lists. Seat validation and pricing become a hash lookup instead of a layout load and a
+ * linear `equalsIgnoreCase` scan. Buses without a layout are cached too (as empty). The layout
+ * itself is copied on the way in and on the way out, so callers cannot change a cached entry.
+ * SeatLayoutController refreshes or evicts entries on save/delete.
+ */
+@Service
+public class SeatLayoutCache {
+
+    @Autowired
+    private SeatLayoutRepository seatLayoutRepository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${seat-layout.cache.max-size:50000}")
+    private long maxSize;
+
+    private LoadingCache<String, Optional<IndexedLayout>> layouts;
+
+    public record SeatInfo(int ordinal, String number, String type, String deck, int price) {}
+
+    /** A layout with its seats numbered in layout order; never modified after construction. */
+    public record IndexedLayout(SeatLayout layout, List<SeatInfo> seats, Map<String, SeatInfo> bySeat,
+                                Map<String, List<SeatInfo>> byDeck) {
+
+        // ✅ A copy of the layout: free to modify or hand to a serializer
+        @Override
+        public SeatLayout layout() {
+            return copy(layout);
+        }
+
+        static IndexedLayout of(SeatLayout source) {
+            SeatLayout layout = copy(source);
+            List<SeatInfo> seats = new ArrayList<>();
+            Map<String, SeatInfo> bySeat = new HashMap<>();
+            Map<String, List<SeatInfo>> byDeck = new LinkedHashMap<>();
+            if (layout.getSeats() != null) {
+                for (SeatLayout.Seat seat : layout.getSeats()) {
+                    if (seat.getNumber() == null || bySeat.containsKey(key(seat.getNumber()))) continue;
+                    SeatInfo info = new SeatInfo(seats.size(), seat.getNumber(), seat.getType(), seat.getDeck(), seat.getPrice());
+                    seats.add(info);
+                    bySeat.put(key(seat.getNumber()), info);
+                    byDeck.computeIfAbsent(seat.getDeck() == null ? "" : seat.getDeck(), d -> new ArrayList<>()).add(info);
+                }
+            }
+            byDeck.replaceAll((deck, list) -> List.copyOf(list));
+            return new IndexedLayout(layout, List.copyOf(seats), Map.copyOf(bySeat), Map.copyOf(byDeck));
+        }
+
+        // ✅ Seat by number, any case; null when the layout has no such seat
+        public SeatInfo seat(String number) {
+            return number == null ? null : bySeat.get(key(number));
+        }
+
+        public List<SeatInfo> deck(String deck) {
+            return byDeck.getOrDefault(deck, List.of());
+        }
+    }
+
+    @PostConstruct
+    public void init() {
+        layouts = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .recordStats()
+                .build(busId -> seatLayoutRepository.findByBusId(busId).map(IndexedLayout::of));
+        CaffeineCacheMetrics.monitor(meterRegistry, layouts, "seatLayouts");
+    }
+
+    public Optional<IndexedLayout> get(String busId) {
+        return busId == null ? Optional.empty() : layouts.get(busId);
+    }
+
+    // ✅ Layout saved: index the saved copy right away
+    public void put(SeatLayout layout) {
+        if (layout == null || layout.getBusId() == null) return;
+        layouts.put(layout.getBusId(), Optional.of(IndexedLayout.of(layout)));
+    }
+
+    public void invalidate(String busId) {
+        layouts.invalidate(busId);
+    }
+
+    private static SeatLayout copy(SeatLayout source) {
+        SeatLayout copy = new SeatLayout();
+        copy.setId(source.getId());
+        copy.setBusId(source.getBusId());
+        if (source.getSeats() != null) {
+            List<SeatLayout.Seat> seats = new ArrayList<>(source.getSeats().size());
+            for (SeatLayout.Seat seat : source.getSeats()) {
+                SeatLayout.Seat seatCopy = new SeatLayout.Seat();
+                seatCopy.setNumber(seat.getNumber());
+                seatCopy.setType(seat.getType());
+                seatCopy.setDeck(seat.getDeck());
+                seatCopy.setPrice(seat.getPrice());
+                seats.add(seatCopy);
+            }
+            copy.setSeats(seats);
+        }
+        return copy;
+    }
+
+    private static String key(String number) {
+        return number.toLowerCase();
+    }
+}
@@ -11,9 +11,35 @@ import java.util.List;
 public class TripScheduleService {
     @Autowired
     private TripScheduleRepository repo;
+    @Autowired
+    private SearchResultCache searchResultCache;
+    @Autowired
+    private ConnectionSearchService connectionSearchService;
+    @Autowired
+    private FareCalendarService fareCalendarService;
+    @Autowired
+    private AgentStatsService agentStatsService;
 
     public TripSchedule saveSchedule(TripSchedule schedule) {
-        return repo.save(schedule);
+        TripSchedule before = schedule.getId() == null ? null : repo.findById(schedule.getId()).orElse(null);
+        TripSchedule saved = repo.save(schedule);
+        scheduleChanged(before, saved);
+        return saved;
+    }
+
+    // ✅ Keep search caches and aggregates in step with a schedule write (before/after may be null)
+    public void scheduleChanged(TripSchedule before, TripSchedule after) {
+        if (before != null) {
+            searchResultCache.invalidateSchedule(before);
+            connectionSearchService.invalidate(before.getDate());
+            fareCalendarService.remove(before);
+        }
+        if (after != null) {
+            searchResultCache.invalidateSchedule(after);
+            connectionSearchService.invalidate(after.getDate());
+            fareCalendarService.add(after);
+        }
+        agentStatsService.scheduleChanged(before, after);
     }
 
     public List<TripSchedule> getSchedulesByBusId(String busId) {
@@ -0,0 +1,58 @@
+package com.OnlineBusBooking.OnlineBus.service;
+
+import com.OnlineBusBooking.OnlineBus.model.SeatLayout;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Everything the seat selection screen needs for one trip and leg — layout, booked/held seats,
+ * route stops and per-seat fares — assembled from the in-memory seat inventory and layout cache.
+ * The inventory's epoch and the trip version make up the ETag, so an unchanged trip is answered
+ * with a 304 before any of it is built, and a tag from before a restart never matches.
+ */
+@Service
+public class TripSnapshotService {
+
+    @Autowired
+    private SeatInventory seatInventory;
+
+    @Autowired
+    private SeatLayoutCache seatLayoutCache;
+
+    public record TripSnapshot(String busId, LocalDate date, long version, SeatLayout layout, List<String> stops,
+                               List<String> booked, List<String> held, Map<String, Double> fares) {}
+
+    public String etag(String busId, LocalDate date) {
+        return etag(seatInventory.version(busId, date));
+    }
+
+    public String etag(long version) {
+        return "\"trip-" + seatInventory.epoch() + "-" + version + "\"";
+    }
+
+    public TripSnapshot snapshot(String busId, LocalDate date, String from, String to) {
+        SeatInventory.Occupancy occupancy = seatInventory.occupancy(busId, date, from, to);
+        SeatLayoutCache.IndexedLayout layout = seatLayoutCache.get(busId).orElse(null);
+
+        // Same segment fare the search results and the client show; base price when the leg is off-route
+        List<String> stops = occupancy.stops();
+        int fromIdx = stops.indexOf(RouteStopIndex.normalize(from));
+        int toIdx = stops.lastIndexOf(RouteStopIndex.normalize(to));
+        boolean onRoute = fromIdx >= 0 && toIdx > fromIdx;
+        Map<String, Double> fares = new HashMap<>();
+        if (layout != null) {
+            for (SeatLayoutCache.SeatInfo seat : layout.seats()) {
+                fares.put(seat.number(), onRoute
+                        ? BusFareService.segmentFare(seat.price(), toIdx - fromIdx, stops.size() - 1)
+                        : seat.price());
+            }
+        }
+        return new TripSnapshot(busId, date, occupancy.version(), layout == null ? null : layout.layout(),
+                stops, occupancy.booked(), occupancy.held(), fares);
+    }
+}
@@ -0,0 +1,419 @@
+package com.OnlineBusBooking.OnlineBus.service;
+
+import com.OnlineBusBooking.OnlineBus.model.Booking;
+import com.OnlineBusBooking.OnlineBus.model.Bus;
+import com.OnlineBusBooking.OnlineBus.model.WaitlistEntry;
+import com.OnlineBusBooking.OnlineBus.repository.BusRepository;
+import com.OnlineBusBooking.OnlineBus.repository.WaitlistRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Waitlist per (busId, travelDate, seatType). Waiting entries are bucketed by their leg and,
+ * within a leg, kept in one FIFO per priority level. When the {@link SeatInventory} reports a
+ * seat change, the freed seat is offered to the best head among the legs it is free on: the
+ * cost per freed seat depends on the number of distinct legs waiting, never on the queue length.
+ * An offer is a {@link SeatHoldService} hold for `waitlist.offer-minutes`, mailed to the passenger.
+ * Booking the held seat moves the entry to BOOKED; if the hold lapses the entry is EXPIRED and
+ * the seat goes to the next entry. Entries for trips that have already left are EXPIRED, at
+ * startup and every `waitlist.expiry-check-minutes`. Seat and hold events arrive on booking and
+ * expiry threads, so the offers and their Mongo writes run on the single `waitlist-offers` thread.
+ */
+@Service
+public class WaitlistService {
+
+    @Autowired
+    private WaitlistRepository waitlistRepository;
+
+    @Autowired
+    private BusRepository busRepository;
+
+    @Autowired
+    private SeatInventory seatInventory;
+
+    @Autowired
+    private SeatHoldService seatHoldService;
+
+    @Autowired
+    private SeatLayoutCache seatLayoutCache;
+
+    @Autowired
+    private EmailService emailService;
+
+    @Value("${waitlist.ordering:fifo}")
+    private String ordering;
+
+    @Value("${waitlist.priority-levels:3}")
+    private int priorityLevels;
+
+    @Value("${waitlist.offer-minutes:30}")
+    private long offerMinutes;
+
+    @Value("${waitlist.expiry-check-minutes:60}")
+    private long expiryCheckMinutes;
+
+    // "busId|date|seatType" → leg → waiting entries; each leg map is guarded by its own monitor
+    private final Map<String, Map<Leg, Queue>> waiting = new ConcurrentHashMap<>();
+    private final Map<String, Waiter> waitersById = new ConcurrentHashMap<>();
+    // holdId → the offered entry it holds a seat for
+    private final Map<String, WaitlistEntry> offers = new ConcurrentHashMap<>();
+    private final AtomicLong sequence = new AtomicLong();
+    private ScheduledExecutorService worker;
+    private ExecutorService notifier;
+
+    public record JoinResult(WaitlistEntry entry, String error) {}
+
+    private record Leg(String from, String to) {}
+
+    private static final class Waiter {
+        private final WaitlistEntry entry;
+        private final long sequence;
+        private volatile boolean cancelled;
+
+        Waiter(WaitlistEntry entry, long sequence) {
+            this.entry = entry;
+            this.sequence = sequence;
+        }
+
+        // Higher priority first, then earlier arrival
+        boolean before(Waiter other) {
+            if (entry.getPriority() != other.entry.getPriority()) return entry.getPriority() > other.entry.getPriority();
+            return sequence < other.sequence;
+        }
+    }
+
+    /** One FIFO per priority level; cancelled entries are skipped when they reach the head. */
+    private static final class Queue {
+        private final List<ArrayDeque<Waiter>> levels;
+
+        Queue(int priorityLevels) {
+            levels = new ArrayList<>(priorityLevels);
+            for (int i = 0; i < priorityLevels; i++) levels.add(new ArrayDeque<>());
+        }
+
+        void add(Waiter waiter) {
+            level(waiter).addLast(waiter);
+        }
+
+        void addFirst(Waiter waiter) {
+            level(waiter).addFirst(waiter);
+        }
+
+        Waiter peek() {
+            for (int p = levels.size() - 1; p >= 0; p--) {
+                ArrayDeque<Waiter> level = levels.get(p);
+                while (!level.isEmpty() && level.peekFirst().cancelled) level.pollFirst();
+                if (!level.isEmpty()) return level.peekFirst();
+            }
+            return null;
+        }
+
+        // Removes the entry peek() returned
+        Waiter poll() {
+            Waiter head = peek();
+            if (head != null) level(head).pollFirst();
+            return head;
+        }
+
+        // Entries saved under a larger `waitlist.priority-levels` go to the top level
+        private ArrayDeque<Waiter> level(Waiter waiter) {
+            return levels.get(Math.max(0, Math.min(waiter.entry.getPriority(), levels.size() - 1)));
+        }
+
+        boolean isEmpty() {
+            return peek() == null;
+        }
+    }
+
+    @PostConstruct
+    public void init() {
+        worker = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "waitlist-offers");
+            thread.setDaemon(true);
+            return thread;
+        });
+        notifier = daemonExecutor("waitlist-notify");
+        LocalDate today = LocalDate.now();
+        for (WaitlistEntry entry : waitlistRepository.findByStatusOrderByCreatedAtAsc(WaitlistEntry.WAITING)) {
+            if (departed(entry, today)) expire(entry);
+            else enqueue(entry);
+        }
+        // Holds are in memory: an open offer gets its seat held again for the time it had left
+        for (WaitlistEntry entry : waitlistRepository.findByStatusOrderByCreatedAtAsc(WaitlistEntry.OFFERED)) {
+            if (departed(entry, today)) expire(entry);
+            else restoreOffer(entry);
+        }
+        worker.scheduleWithFixedDelay(() -> {
+            try {
+                expireDeparted(LocalDate.now());
+            } catch (RuntimeException e) {
+                e.printStackTrace();
+            }
+        }, expiryCheckMinutes, expiryCheckMinutes, TimeUnit.MINUTES);
+        seatInventory.addListener((busId, travelDate, seats) -> {
+            if (!waitersById.isEmpty()) worker.execute(() -> seatsChanged(busId, travelDate, seats));
+        });
+        seatHoldService.addListener(this::holdEnded);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (worker != null) worker.shutdown();
+        if (notifier != null) notifier.shutdown();
+    }
+
+    // ✅ Queue a passenger for the next seat of this type that frees up on their leg
+    public JoinResult join(WaitlistEntry request) {
+        if (request.getBusId() == null || request.getTravelDate() == null || request.getSeatType() == null
+                || request.getCustomerEmail() == null) {
+            return new JoinResult(null, "❌ busId, travelDate, seatType and customer email are required.");
+        }
+        if (request.getTravelDate().isBefore(LocalDate.now())) {
+            return new JoinResult(null, "❌ This trip has already left.");
+        }
+        Optional<Bus> bus = busRepository.findById(request.getBusId());
+        if (bus.isEmpty()) return new JoinResult(null, "❌ Bus not found.");
+        if (!seatInventory.isValidLeg(request.getBusId(), request.getTravelDate(), request.getPassengerFrom(), request.getPassengerTo())) {
+            return new JoinResult(null, "❌ Boarding and dropping points are not on this route.");
+        }
+
+        WaitlistEntry entry = new WaitlistEntry();
+        entry.setBusId(request.getBusId());
+        entry.setBusName(bus.get().getBusName());
+        entry.setTravelDate(request.getTravelDate());
+        entry.setSeatType(request.getSeatType().toLowerCase());
+        entry.setPassengerFrom(request.getPassengerFrom());
+        entry.setPassengerTo(request.getPassengerTo());
+        entry.setCustomerEmail(request.getCustomerEmail());
+        entry.setPassengerName(request.getPassengerName());
+        entry.setPriority("priority".equalsIgnoreCase(ordering)
+                ? Math.max(0, Math.min(request.getPriority(), priorityLevels - 1)) : 0);
+        entry.setStatus(WaitlistEntry.WAITING);
+        WaitlistEntry saved = waitlistRepository.save(entry);
+        enqueue(saved);
+        return new JoinResult(saved, null);
+    }
+
+    // ✅ Leave the waitlist, or turn down an offer (its seat goes to the next entry)
+    public boolean cancel(String entryId, String customerEmail) {
+        WaitlistEntry entry = waitlistRepository.findById(entryId).orElse(null);
+        if (entry == null || !Objects.equals(entry.getCustomerEmail(), customerEmail)) return false;
+        if (WaitlistEntry.WAITING.equals(entry.getStatus())) {
+            Waiter waiter = waitersById.remove(entryId);
+            if (waiter != null) waiter.cancelled = true; // dropped lazily when it reaches the head
+            prune(key(entry.getBusId(), entry.getTravelDate(), entry.getSeatType()));
+        } else if (WaitlistEntry.OFFERED.equals(entry.getStatus())) {
+            offers.remove(entry.getHoldId());
+            seatHoldService.release(entry.getHoldId(), entry.getCustomerEmail());
+        } else {
+            return false;
+        }
+        entry.setStatus(WaitlistEntry.CANCELLED);
+        waitlistRepository.save(entry);
+        return true;
+    }
+
+    public List<WaitlistEntry> entriesFor(String customerEmail) {
+        return waitlistRepository.findByCustomerEmail(customerEmail);
+    }
+
+    // Runs on the worker after any seat of a trip is booked, held or released
+    void seatsChanged(String busId, LocalDate travelDate, Set<String> seats) {
+        if (waitersById.isEmpty()) return;
+        SeatLayoutCache.IndexedLayout layout = seatLayoutCache.get(busId).orElse(null);
+        if (layout == null) return;
+        for (String seat : seats) {
+            SeatLayoutCache.SeatInfo info = layout.seat(seat);
+            if (info == null || info.type() == null) continue;
+            String key = key(busId, travelDate, info.type().toLowerCase());
+            Map<Leg, Queue> legs = waiting.get(key);
+            if (legs != null) offer(key, legs, busId, travelDate, info.number());
+        }
+    }
+
+    private void offer(String key, Map<Leg, Queue> legs, String busId, LocalDate travelDate, String seat) {
+        Waiter chosen = null;
+        Queue from = null;
+        synchronized (legs) {
+            for (Map.Entry<Leg, Queue> bucket : legs.entrySet()) {
+                Waiter head = bucket.getValue().peek();
+                if (head == null || (chosen != null && !head.before(chosen))) continue;
+                Leg leg = bucket.getKey();
+                String state = seatInventory.seatStates(busId, travelDate, leg.from(), leg.to(), List.of(seat)).get(seat);
+                if (!SeatInventory.FREE.equals(state)) continue;
+                chosen = head;
+                from = bucket.getValue();
+            }
+            if (chosen == null) return;
+            from.poll();
+        }
+
+        WaitlistEntry entry = chosen.entry;
+        SeatHoldService.HoldResult result = seatHoldService.hold(List.of(leg(entry, seat)), TimeUnit.MINUTES.toMillis(offerMinutes), entry.getCustomerEmail());
+        if (result.hold() == null) {
+            // Someone else claimed the seat first: keep the passenger's place
+            synchronized (legs) {
+                from.addFirst(chosen);
+            }
+            return;
+        }
+        waitersById.remove(entry.getId());
+        prune(key);
+        if (chosen.cancelled) {
+            seatHoldService.release(result.hold().id(), entry.getCustomerEmail()); // left the waitlist while the seat was being held
+            return;
+        }
+
+        entry.setStatus(WaitlistEntry.OFFERED);
+        entry.setSeatNumber(seat);
+        entry.setHoldId(result.hold().id());
+        entry.setOfferedUntil(new Date(result.hold().expiresAt()));
+        offers.put(result.hold().id(), entry);
+        waitlistRepository.save(entry);
+        notifier.execute(() -> notifyOffer(entry));
+    }
+
+    // An offered seat was booked (OFFERED → BOOKED) or its hold lapsed (OFFERED → EXPIRED, next entry promoted)
+    private void holdEnded(SeatHoldService.Hold hold, String outcome) {
+        WaitlistEntry entry = offers.remove(hold.id());
+        if (entry == null || SeatHoldService.RELEASED.equals(outcome)) return;
+        worker.execute(() -> {
+            boolean booked = SeatHoldService.BOOKED.equals(outcome);
+            entry.setStatus(booked ? WaitlistEntry.BOOKED : WaitlistEntry.EXPIRED);
+            waitlistRepository.save(entry);
+            if (!booked) promote(hold.legs());
+        });
+    }
+
+    private void restoreOffer(WaitlistEntry entry) {
+        long left = entry.getOfferedUntil() == null ? 0 : entry.getOfferedUntil().getTime() - System.currentTimeMillis();
+        SeatHoldService.HoldResult result = left <= 0 || entry.getSeatNumber() == null ? null
+                : seatHoldService.hold(List.of(leg(entry, entry.getSeatNumber())), left, entry.getCustomerEmail());
+        if (result == null || result.hold() == null) {
+            entry.setStatus(WaitlistEntry.EXPIRED);
+            waitlistRepository.save(entry);
+            if (entry.getSeatNumber() != null) {
+                worker.execute(() -> promote(List.of(leg(entry, entry.getSeatNumber()))));
+            }
+            return;
+        }
+        entry.setHoldId(result.hold().id());
+        offers.put(result.hold().id(), entry);
+        waitlistRepository.save(entry);
+    }
+
+    // Runs on the worker: waiting entries whose trip has left are expired and their trip's queues dropped
+    void expireDeparted(LocalDate today) {
+        for (Waiter waiter : waitersById.values()) {
+            WaitlistEntry entry = waiter.entry;
+            if (!departed(entry, today) || !waitersById.remove(entry.getId(), waiter)) continue;
+            waiter.cancelled = true;
+            waiting.remove(key(entry.getBusId(), entry.getTravelDate(), entry.getSeatType()));
+            expire(entry);
+        }
+    }
+
+    private static boolean departed(WaitlistEntry entry, LocalDate today) {
+        return entry.getTravelDate() != null && entry.getTravelDate().isBefore(today);
+    }
+
+    private void expire(WaitlistEntry entry) {
+        entry.setStatus(WaitlistEntry.EXPIRED);
+        waitlistRepository.save(entry);
+    }
+
+    // Offers the freed seats to whoever is next in line for them
+    private void promote(List<Booking> legs) {
+        for (Booking leg : legs) seatsChanged(leg.getBusId(), leg.getTravelDate(), Set.of(leg.getSeatNumber()));
+    }
+
+    private void enqueue(WaitlistEntry entry) {
+        Waiter waiter = new Waiter(entry, sequence.incrementAndGet());
+        Leg leg = new Leg(RouteStopIndex.normalize(entry.getPassengerFrom()), RouteStopIndex.normalize(entry.getPassengerTo()));
+        waiting.compute(key(entry.getBusId(), entry.getTravelDate(), entry.getSeatType()), (k, legs) -> {
+            if (legs == null) legs = new HashMap<>();
+            synchronized (legs) {
+                legs.computeIfAbsent(leg, l -> new Queue(priorityLevels)).add(waiter);
+            }
+            return legs;
+        });
+        waitersById.put(entry.getId(), waiter);
+    }
+
+    // Drops drained legs, and the trip's map once no leg is left
+    private void prune(String key) {
+        waiting.computeIfPresent(key, (k, legs) -> {
+            synchronized (legs) {
+                legs.values().removeIf(Queue::isEmpty);
+                return legs.isEmpty() ? null : legs;
+            }
+        });
+    }
+
+    private void notifyOffer(WaitlistEntry entry) {
+        String body = String.format("""
+                Dear %s,
+
+                Good news! Seat %s (%s) on %s for %s, %s → %s, has opened up and is held for you until %s.
+
+                Log in to your dashboard and complete the booking before then:
+                /user/dashboard?waitlistOffer=%s
+
+                If you do not book by then, the seat goes to the next passenger on the waitlist.
+
+                Regards,
+                Online Bus Booking Team
+                """,
+                Optional.ofNullable(entry.getPassengerName()).orElse("Passenger"),
+                entry.getSeatNumber(), entry.getSeatType(),
+                Optional.ofNullable(entry.getBusName()).orElse("your bus"), entry.getTravelDate(),
+                entry.getPassengerFrom(), entry.getPassengerTo(), entry.getOfferedUntil(), entry.getId());
+        try {
+            emailService.sendEmail(entry.getCustomerEmail(), "🎉 A seat opened up on your waitlisted trip", body);
+        } catch (RuntimeException e) {
+            e.printStackTrace(); // the hold stands; the offer is also listed on the dashboard
+        }
+    }
+
+    private static Booking leg(WaitlistEntry entry, String seat) {
+        Booking leg = new Booking();
+        leg.setBusId(entry.getBusId());
+        leg.setTravelDate(entry.getTravelDate());
+        leg.setSeatNumber(seat);
+        leg.setPassengerFrom(entry.getPassengerFrom());
+        leg.setPassengerTo(entry.getPassengerTo());
+        return leg;
+    }
+
+    private static ExecutorService daemonExecutor(String name) {
+        return Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, name);
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    private static String key(String busId, LocalDate travelDate, String seatType) {
+        return busId + "|" + travelDate + "|" + seatType;
+    }
+}
@@ -0,0 +1,71 @@
+package com.OnlineBusBooking.OnlineBus.util;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * DataLoader-style batching for joins: keys are queued with {@link #prime}, and the first
+ * {@link #get} fetches every queued key that is not cached yet in a single batch call (e.g. one
+ * `findAllById`). Results, including keys that were not found, are remembered for the life of
+ * the loader, so it is meant to be short-lived (one request) and is not thread-safe.
+ */
+public final class BatchLoader<K, V> {
+
+    private final Function<Set<K>, Map<K, V>> batch;
+    private final Map<K, Optional<V>> cache = new HashMap<>();
+    private final Set<K> pending = new LinkedHashSet<>();
+    private int batches;
+
+    /** @param batch fetches many keys at once; keys missing from its result are treated as not found */
+    public BatchLoader(Function<Set<K>, Map<K, V>> batch) {
+        this.batch = batch;
+    }
+
+    // ✅ Queue keys for the next batch; already-cached keys are skipped
+    public BatchLoader<K, V> prime(Collection<? extends K> keys) {
+        for (K key : keys) {
+            if (key != null && !cache.containsKey(key)) pending.add(key);
+        }
+        return this;
+    }
+
+    public Optional<V> get(K key) {
+        if (key == null) return Optional.empty();
+        if (!cache.containsKey(key)) {
+            pending.add(key);
+            dispatch();
+        }
+        return cache.get(key);
+    }
+
+    // ✅ Values for the given keys, in key order, loading whatever is missing in one batch
+    public Map<K, V> getAll(Collection<? extends K> keys) {
+        prime(keys);
+        dispatch();
+        Map<K, V> found = new LinkedHashMap<>();
+        for (K key : keys) {
+            if (key != null) cache.get(key).ifPresent(value -> found.put(key, value));
+        }
+        return found;
+    }
+
+    /** Number of batch calls made so far. */
+    public int batches() {
+        return batches;
+    }
+
+    private void dispatch() {
+        if (pending.isEmpty()) return;
+        Set<K> keys = new LinkedHashSet<>(pending);
+        pending.clear();
+        Map<K, V> loaded = batch.apply(keys);
+        batches++;
+        for (K key : keys) cache.put(key, Optional.ofNullable(loaded.get(key)));
+    }
+}
@@ -0,0 +1,63 @@
+package com.OnlineBusBooking.OnlineBus.util;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Minimal RFC 4180 CSV writer over a stream: fields with a comma, quote or line break are
+ * quoted, and text starting with `=`, `+`, `-`, `@`, a tab or a carriage return is prefixed
+ * with `'` so spreadsheets do not evaluate it as a formula. Output is buffered and flushed every `flushEvery` rows, so a
+ * slow client throttles the caller instead of output piling up in memory.
+ */
+public final class CsvWriter implements Flushable, Closeable {
+
+    private final BufferedWriter writer;
+    private final int flushEvery;
+    private long rows;
+
+    public CsvWriter(OutputStream out, int flushEvery) {
+        this.writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        this.flushEvery = Math.max(flushEvery, 1);
+    }
+
+    public void row(Object... fields) throws IOException {
+        for (int i = 0; i < fields.length; i++) {
+            if (i > 0) writer.write(',');
+            writer.write(escape(fields[i]));
+        }
+        writer.write("\r\n");
+        if (++rows % flushEvery == 0) writer.flush();
+    }
+
+    public long rows() {
+        return rows;
+    }
+
+    @Override
+    public void flush() throws IOException {
+        writer.flush();
+    }
+
+    // Flushes but leaves the response stream open for the container to close
+    @Override
+    public void close() throws IOException {
+        writer.flush();
+    }
+
+    static String escape(Object field) {
+        if (field == null) return "";
+        String value = field.toString();
+        if (!value.isEmpty() && "=+-@\t\r".indexOf(value.charAt(0)) >= 0 && !(field instanceof Number)) {
+            value = "'" + value;
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+}
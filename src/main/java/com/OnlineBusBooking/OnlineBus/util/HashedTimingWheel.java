@@ -0,0 +1,93 @@
+package com.OnlineBusBooking.OnlineBus.util;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Hashed timing wheel: deadlines are hashed into `wheelSize` buckets of `tickMillis` each,
+ * so scheduling and cancelling are O(1) and one driver thread expires any number of timers.
+ * A timer further away than one rotation simply survives the extra passes over its bucket.
+ */
+public final class HashedTimingWheel<T> {
+
+    private final long tickMillis;
+    private final int mask;
+    private final List<List<Timeout<T>>> buckets;
+    private long currentTick;
+    private int pending;
+
+    public static final class Timeout<T> {
+        private final T item;
+        private final long deadlineTick;
+        private volatile boolean cancelled;
+
+        private Timeout(T item, long deadlineTick) {
+            this.item = item;
+            this.deadlineTick = deadlineTick;
+        }
+
+        public T item() {
+            return item;
+        }
+
+        public void cancel() {
+            cancelled = true;
+        }
+
+        public boolean isCancelled() {
+            return cancelled;
+        }
+    }
+
+    public HashedTimingWheel(long tickMillis, int wheelSize, long nowMillis) {
+        if (tickMillis <= 0) throw new IllegalArgumentException("tickMillis must be positive");
+        int size = Integer.highestOneBit(Math.max(wheelSize - 1, 1)) << 1; // next power of two
+        this.tickMillis = tickMillis;
+        this.mask = size - 1;
+        this.buckets = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) buckets.add(new ArrayList<>());
+        this.currentTick = nowMillis / tickMillis;
+    }
+
+    // ✅ Fires `item` on the first advance at or after nowMillis + delayMillis
+    public synchronized Timeout<T> schedule(T item, long delayMillis, long nowMillis) {
+        long deadline = nowMillis + Math.max(delayMillis, 0);
+        long tick = Math.max((deadline + tickMillis - 1) / tickMillis, currentTick + 1);
+        Timeout<T> timeout = new Timeout<>(item, tick);
+        buckets.get((int) (tick & mask)).add(timeout);
+        pending++;
+        return timeout;
+    }
+
+    // ✅ Moves the wheel up to nowMillis and hands every due, uncancelled item to `onExpire` (outside the lock)
+    public void advance(long nowMillis, Consumer<T> onExpire) {
+        List<T> expired = new ArrayList<>();
+        synchronized (this) {
+            long target = nowMillis / tickMillis;
+            // Past a full rotation every bucket has been visited once, so skip the idle ticks
+            if (target - currentTick > buckets.size()) currentTick = target - buckets.size();
+            while (currentTick < target) {
+                currentTick++;
+                Iterator<Timeout<T>> it = buckets.get((int) (currentTick & mask)).iterator();
+                while (it.hasNext()) {
+                    Timeout<T> timeout = it.next();
+                    if (timeout.cancelled) {
+                        it.remove();
+                        pending--;
+                    } else if (timeout.deadlineTick <= currentTick) {
+                        it.remove();
+                        pending--;
+                        expired.add(timeout.item);
+                    }
+                }
+            }
+        }
+        expired.forEach(onExpire);
+    }
+
+    public synchronized int pending() {
+        return pending;
+    }
+}
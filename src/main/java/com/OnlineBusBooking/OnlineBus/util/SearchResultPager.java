@@ -0,0 +1,131 @@
+package com.OnlineBusBooking.OnlineBus.util;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.function.Predicate;
+
+/**
+ * Server-side filtering, sorting and keyset (cursor) pagination of bus search rows.
+ * Pages are selected with a bounded heap, so only `limit + 1` rows are ever kept sorted.
+ */
+public final class SearchResultPager {
+
+    public static final int MAX_LIMIT = 100;
+
+    private SearchResultPager() {}
+
+    public record Criteria(String busType, LocalTime departAfter, LocalTime departBefore,
+                           Double maxFare, String sort, int limit, String cursor) {
+
+        public Criteria {
+            sort = "fare".equalsIgnoreCase(sort) ? "fare" : "departure";
+            limit = Math.min(Math.max(limit, 1), MAX_LIMIT);
+        }
+    }
+
+    // ✅ Row filter for bus type, departure window and price ceiling
+    public static Predicate<Map<String, Object>> filter(Criteria c) {
+        return row -> {
+            if (c.busType() != null && !c.busType().isBlank()) {
+                Object type = row.get("busType");
+                if (type == null || !type.toString().toLowerCase().contains(c.busType().toLowerCase())) return false;
+            }
+            if (c.departAfter() != null || c.departBefore() != null) {
+                LocalTime departure = parseTime(row.get("departureTime"));
+                if (departure == null) return false;
+                if (c.departAfter() != null && departure.isBefore(c.departAfter())) return false;
+                if (c.departBefore() != null && departure.isAfter(c.departBefore())) return false;
+            }
+            if (c.maxFare() != null) {
+                double fare = fare(row);
+                if (fare <= 0 || fare > c.maxFare()) return false;
+            }
+            return true;
+        };
+    }
+
+    public static Comparator<Map<String, Object>> comparator(String sort) {
+        Comparator<Map<String, Object>> primary = "fare".equals(sort)
+                ? Comparator.comparingDouble(SearchResultPager::fare)
+                : Comparator.comparing(row -> String.valueOf(row.getOrDefault("departureTime", "")));
+        return primary.thenComparing(row -> String.valueOf(row.getOrDefault("scheduleId", "")));
+    }
+
+    // ✅ {items, nextCursor, total}: the `limit` best rows after the cursor, in sort order
+    public static Map<String, Object> page(List<Map<String, Object>> rows, Criteria c) {
+        Predicate<Map<String, Object>> filter = filter(c);
+        Comparator<Map<String, Object>> order = comparator(c.sort());
+        Map<String, Object> after = decodeCursor(c.cursor(), c.sort());
+
+        int keep = c.limit() + 1; // one extra row tells us whether there is a next page
+        PriorityQueue<Map<String, Object>> heap = new PriorityQueue<>(keep, order.reversed());
+        int total = 0;
+        for (Map<String, Object> row : rows) {
+            if (!filter.test(row)) continue;
+            total++;
+            if (after != null && order.compare(row, after) <= 0) continue;
+            if (heap.size() < keep) {
+                heap.add(row);
+            } else if (order.compare(row, heap.peek()) < 0) {
+                heap.poll();
+                heap.add(row);
+            }
+        }
+
+        List<Map<String, Object>> items = new ArrayList<>(heap);
+        items.sort(order);
+        String nextCursor = null;
+        if (items.size() > c.limit()) {
+            items = items.subList(0, c.limit());
+            nextCursor = encodeCursor(items.get(items.size() - 1), c.sort());
+        }
+
+        Map<String, Object> page = new LinkedHashMap<>();
+        page.put("items", items);
+        page.put("nextCursor", nextCursor);
+        page.put("total", total);
+        return page;
+    }
+
+    private static String encodeCursor(Map<String, Object> row, String sort) {
+        String key = "fare".equals(sort) ? String.valueOf(fare(row)) : String.valueOf(row.getOrDefault("departureTime", ""));
+        String raw = key + "|" + row.getOrDefault("scheduleId", "");
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static Map<String, Object> decodeCursor(String cursor, String sort) {
+        if (cursor == null || cursor.isBlank()) return null;
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int bar = raw.lastIndexOf('|');
+            Map<String, Object> row = new HashMap<>();
+            if ("fare".equals(sort)) row.put("estimatedFare", Double.parseDouble(raw.substring(0, bar)));
+            else row.put("departureTime", raw.substring(0, bar));
+            row.put("scheduleId", raw.substring(bar + 1));
+            return row;
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid cursor", e);
+        }
+    }
+
+    private static double fare(Map<String, Object> row) {
+        Object fare = row.get("estimatedFare");
+        return fare instanceof Number n ? n.doubleValue() : 0.0;
+    }
+
+    private static LocalTime parseTime(Object value) {
+        try {
+            return value == null ? null : LocalTime.parse(value.toString());
+        } catch (Exception e) {
+            return null;
+        }
+    }
+}
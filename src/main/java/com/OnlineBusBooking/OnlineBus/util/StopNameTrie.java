@@ -0,0 +1,148 @@
+package com.OnlineBusBooking.OnlineBus.util;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Case-insensitive trie of stop names with a per-name weight (number of routes serving it).
+ * Supports ranked prefix lookups with a bounded edit distance for typo tolerance.
+ */
+public class StopNameTrie {
+
+    private static final class Node {
+        final Map<Character, Node> children = new HashMap<>();
+        String display;   // original spelling, null if no name ends here
+        int weight;
+    }
+
+    public record Suggestion(String name, int distance, int weight) {}
+
+    private static final Comparator<Suggestion> RANKING = Comparator
+            .comparingInt(Suggestion::distance)
+            .thenComparing(Comparator.comparingInt(Suggestion::weight).reversed())
+            .thenComparing(Suggestion::name, String.CASE_INSENSITIVE_ORDER);
+
+    private final Node root = new Node();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // ✅ Count one more route serving this stop
+    public void add(String name) {
+        String key = normalize(name);
+        if (key.isEmpty()) return;
+        lock.writeLock().lock();
+        try {
+            Node node = root;
+            for (int i = 0; i < key.length(); i++) {
+                node = node.children.computeIfAbsent(key.charAt(i), c -> new Node());
+            }
+            if (node.display == null) node.display = name.trim();
+            node.weight++;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // ✅ Count one route fewer; the name disappears when no route serves it
+    public void remove(String name) {
+        String key = normalize(name);
+        if (key.isEmpty()) return;
+        lock.writeLock().lock();
+        try {
+            remove(root, key, 0);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            root.children.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // ✅ Up to `limit` names whose prefix is within `maxEdits` of the query, best first
+    public List<Suggestion> suggest(String query, int limit, int maxEdits) {
+        String key = normalize(query);
+        if (key.isEmpty() || limit <= 0) return List.of();
+
+        Map<Node, Suggestion> best = new HashMap<>();
+        lock.readLock().lock();
+        try {
+            int[] firstRow = new int[key.length() + 1];
+            for (int j = 0; j < firstRow.length; j++) firstRow[j] = j;
+            for (Map.Entry<Character, Node> child : root.children.entrySet()) {
+                search(child.getValue(), child.getKey(), key, firstRow, Integer.MAX_VALUE, maxEdits, best);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return best.values().stream().sorted(RANKING).limit(limit).toList();
+    }
+
+    // Levenshtein rows computed down the trie; `bestPrefix` is the smallest distance of any ancestor prefix
+    private static void search(Node node, char c, String key, int[] prevRow, int bestPrefix,
+                               int maxEdits, Map<Node, Suggestion> best) {
+        int[] row = new int[prevRow.length];
+        row[0] = prevRow[0] + 1;
+        int rowMin = row[0];
+        for (int j = 1; j < row.length; j++) {
+            int substitute = prevRow[j - 1] + (key.charAt(j - 1) == c ? 0 : 1);
+            row[j] = Math.min(Math.min(row[j - 1] + 1, prevRow[j] + 1), substitute);
+            rowMin = Math.min(rowMin, row[j]);
+        }
+        bestPrefix = Math.min(bestPrefix, row[row.length - 1]);
+
+        if (rowMin > maxEdits) {
+            // No deeper prefix can get closer; everything below inherits the best distance seen so far
+            if (bestPrefix <= maxEdits) collect(node, bestPrefix, best);
+            return;
+        }
+        if (node.display != null && bestPrefix <= maxEdits) offer(node, bestPrefix, best);
+        for (Map.Entry<Character, Node> child : node.children.entrySet()) {
+            search(child.getValue(), child.getKey(), key, row, bestPrefix, maxEdits, best);
+        }
+    }
+
+    private static void collect(Node node, int distance, Map<Node, Suggestion> best) {
+        if (node.display != null) offer(node, distance, best);
+        for (Node child : node.children.values()) collect(child, distance, best);
+    }
+
+    private static void offer(Node node, int distance, Map<Node, Suggestion> best) {
+        best.merge(node, new Suggestion(node.display, distance, node.weight),
+                (a, b) -> a.distance() <= b.distance() ? a : b);
+    }
+
+    private static boolean remove(Node node, String key, int depth) {
+        if (depth == key.length()) {
+            if (node.display != null && --node.weight <= 0) {
+                node.display = null;
+                node.weight = 0;
+            }
+        } else {
+            Node child = node.children.get(key.charAt(depth));
+            if (child != null && remove(child, key, depth + 1)) {
+                node.children.remove(key.charAt(depth));
+            }
+        }
+        return node.display == null && node.children.isEmpty();
+    }
+
+    public static int defaultMaxEdits(String query) {
+        int length = normalize(query).length();
+        if (length <= 3) return 0;
+        return length <= 6 ? 1 : 2;
+    }
+
+    private static String normalize(String name) {
+        return name == null ? "" : name.trim().toLowerCase();
+    }
+}
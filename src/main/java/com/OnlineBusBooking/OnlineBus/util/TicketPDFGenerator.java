@@ -281,7 +281,7 @@ public class TicketPDFGenerator {
                 Optional.ofNullable(first.getCustomerEmail()).orElse("N/A"),
                 Optional.ofNullable(bus.getOperatorName()).orElse("N/A"),
                 route,
-                Optional.ofNullable(first.getTravelDate()).orElse("N/A"),
+                Optional.ofNullable(first.getTravelDate()).map(LocalDate::toString).orElse("N/A"),
                 actualTotal
         );
 
@@ -391,14 +391,9 @@ public class TicketPDFGenerator {
         return "🪑 " + seatType;
     }
 
-    private static String fmt(String time, String date) {
+    private static String fmt(String time, LocalDate date) {
         if (time == null) return "N/A";
-        try {
-            LocalDate d = date != null ? LocalDate.parse(date) : LocalDate.now();
-            return d.format(DAY_FMT) + " | " + time;
-        } catch (Exception e) {
-            return time;
-        }
+        return (date != null ? date : LocalDate.now()).format(DAY_FMT) + " | " + time;
     }
 
     private static Div sectionTitle(String text) {
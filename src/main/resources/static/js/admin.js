@@ -39,10 +39,21 @@ document.addEventListener("DOMContentLoaded", () => {
   window.showSection = function (sectionId) {
     document.getElementById("addAgentSection").style.display = sectionId === "addAgent" ? "block" : "none";
     document.getElementById("viewAgentsSection").style.display = sectionId === "viewAgents" ? "block" : "none";
+    document.getElementById("exportsSection").style.display = sectionId === "exports" ? "block" : "none";
 
     if (sectionId === "viewAgents") loadAgents();
   };
 
+  // Streams a CSV download for the chosen date range (travel date, or payment date for payments)
+  window.exportCsv = function (kind) {
+    const params = new URLSearchParams();
+    const from = document.getElementById("exportFrom").value;
+    const to = document.getElementById("exportTo").value;
+    if (from) params.set("from", from);
+    if (to) params.set("to", to);
+    window.location.href = `/admin/api/export/${kind}.csv?${params}`;
+  };
+
   console.log("✅ admin.js loaded");
 
   // Submit agent form
@@ -81,7 +81,7 @@ function showSection(sectionId) {
   // ✅ Each section load is now an operation wrapped by the loader
   let operationPromise;
 
-  if (sectionId === "dashboard") operationPromise = loadDashboardStats();
+  if (sectionId === "dashboard") operationPromise = Promise.all([loadDashboardStats(), loadAnalytics()]);
   if (sectionId === "buses") operationPromise = fetchBuses();
   if (sectionId === "layout") operationPromise = fetchBusesForLayout();
   if (sectionId === "routes") operationPromise = loadRoutes();
@@ -126,6 +126,57 @@ function loadDashboardStats() {
 
 
 
+// --------- ANALYTICS (served from the sales/trip rollups) ---------
+function loadAnalytics() {
+  const granularity = document.getElementById("analyticsGranularity").value;
+  const range = new URLSearchParams();
+  const from = document.getElementById("analyticsFrom").value;
+  const to = document.getElementById("analyticsTo").value;
+  if (from) range.set("from", from);
+  if (to) range.set("to", to);
+  const getJson = url => fetch(url).then(res => {
+    if (!res.ok) return res.text().then(message => { throw new Error(message || `HTTP ${res.status}`); });
+    return res.json();
+  });
+
+  return Promise.all([
+    getJson(`/agent/api/analytics/sales?granularity=${granularity}&${range}`),
+    getJson(`/agent/api/analytics/routes?${range}`),
+    getJson(`/agent/api/analytics/trips?${range}`)
+  ])
+    .then(([sales, routes, trips]) => {
+      const maxRevenue = Math.max(1, ...sales.map(p => p.revenue));
+      renderAnalyticsTable("salesSeries", ["Period", "Bookings", "Revenue", ""], sales.map(p => [
+        p.bucket, p.bookings, `₹${p.revenue}`,
+        `<div style="background:#4caf50;height:10px;width:${Math.round(p.revenue * 100 / maxRevenue)}%"></div>`
+      ]));
+      renderAnalyticsTable("routePerformance", ["Bus", "Route", "Trips", "Bookings", "Revenue", "Avg Load"], routes.map(r => [
+        r.busName, r.route, r.trips, r.bookings, `₹${r.revenue}`, `${Math.round(r.avgLoadFactor * 100)}%`
+      ]));
+      renderAnalyticsTable("tripLoad", ["Date", "Bus", "Seats Sold", "Seats", "Load", "Revenue"], trips.map(t => [
+        t.travelDate, t.busName, t.seatsSold, t.totalSeats, `${Math.round(t.loadFactor * 100)}%`, `₹${t.revenue}`
+      ]));
+    })
+    .catch(err => {
+      console.error("Failed to load analytics:", err);
+      showNotification("❌ Could not load analytics.", true);
+    });
+}
+
+function renderAnalyticsTable(containerId, headers, rows) {
+  const container = document.getElementById(containerId);
+  if (rows.length === 0) {
+    container.innerHTML = "<p>No data for this period yet.</p>";
+    return;
+  }
+  container.innerHTML = `
+    <table class="route-table">
+      <thead><tr>${headers.map(h => `<th>${h}</th>`).join("")}</tr></thead>
+      <tbody>${rows.map(cells => `<tr>${cells.map(c => `<td>${c}</td>`).join("")}</tr>`).join("")}</tbody>
+    </table>
+  `;
+}
+
 // ---------------- BUS HANDLING ---------------- //
 // ✅ REFACTORED: Now returns a promise
 function fetchBuses() {
@@ -784,37 +835,59 @@ document.getElementById("saveScheduleBtn")?.addEventListener("click", async () =
 });
 
 // --------- BOOKINGS FEATURE ---------
-// ✅ REFACTORED: Now returns a promise
-function loadBookings() {
-  return fetch(`/agent/api/bookings`)
-    .then(res => {
-        if (!res.ok) throw new Error(`HTTP ${res.status}`);
-        return res.json();
-    })
-    .then(bookings => {
-      const container = document.getElementById("bookingList");
-      container.innerHTML = "";
+// ✅ One ledger page at a time; `more` appends the next page to the table already shown
+let bookingCursor = null;
+
+function loadBookings(more = false) {
+  if (!more) bookingCursor = null;
+  const params = new URLSearchParams({ limit: 50 });
+  const filters = { busId: "bookingBusFilter", status: "bookingStatusFilter", from: "bookingFromFilter", to: "bookingToFilter" };
+  Object.entries(filters).forEach(([name, id]) => {
+    const value = document.getElementById(id).value;
+    if (value) params.set(name, value);
+  });
+  if (bookingCursor) params.set("cursor", bookingCursor);
 
-      if (bookings.length === 0) {
-        container.innerHTML = "<p>No bookings found for your buses.</p>";
-        return;
+  return Promise.all([
+    fetch(`/agent/api/bookings/ledger?${params}`).then(res => {
+      if (!res.ok) throw new Error(`HTTP ${res.status}`);
+      return res.json();
+    }),
+    more ? null : loadBookingBusFilter()
+  ])
+    .then(([page]) => {
+      const container = document.getElementById("bookingList");
+      const bookings = page.items || [];
+      bookingCursor = page.nextCursor;
+      document.getElementById("loadMoreBookingsBtn").style.display = bookingCursor ? "" : "none";
+
+      let tbody = container.querySelector("tbody");
+      if (!more || !tbody) {
+        container.innerHTML = "";
+        if (bookings.length === 0) {
+          container.innerHTML = "<p>No bookings found for your buses.</p>";
+          return;
+        }
+        const table = document.createElement("table");
+        table.className = "route-table";
+        table.innerHTML = `
+          <thead>
+            <tr>
+              <th>Bus</th><th>Passenger</th><th>Email</th><th>Mobile</th>
+              <th>From</th><th>To</th>
+              <th>Seat</th><th>Fare</th><th>Status</th><th>Date</th>
+            </tr>
+          </thead>
+        `;
+        tbody = document.createElement("tbody");
+        table.appendChild(tbody);
+        container.appendChild(table);
       }
 
-      const table = document.createElement("table");
-      table.className = "route-table";
-      table.innerHTML = `
-        <thead>
-          <tr>
-            <th>Passenger</th><th>Email</th><th>Mobile</th>
-            <th>From</th><th>To</th>
-            <th>Seat</th><th>Fare</th><th>Status</th><th>Date</th>
-          </tr>
-        </thead>
-      `;
-      const tbody = document.createElement("tbody");
       bookings.forEach(b => {
         const row = document.createElement("tr");
         row.innerHTML = `
+          <td>${b.busName}</td>
           <td>${b.passengerName}</td>
           <td>${b.email}</td>
           <td>${b.passengerMobile}</td>
@@ -827,11 +900,33 @@ function loadBookings() {
         `;
         tbody.appendChild(row);
       });
-      table.appendChild(tbody);
-      container.appendChild(table);
     })
     .catch(err => {
         console.error("Error loading bookings:", err);
         showNotification("❌ Could not load bookings.", true);
     });
+}
+
+// Streams a CSV download for the travel-date range in the booking filters
+function exportCsv(kind) {
+  const params = new URLSearchParams();
+  const from = document.getElementById("bookingFromFilter").value;
+  const to = document.getElementById("bookingToFilter").value;
+  if (from) params.set("from", from);
+  if (to) params.set("to", to);
+  window.location.href = `/agent/api/export/${kind}.csv?${params}`;
+}
+
+// Fills the bus filter once; keeps the current choice
+function loadBookingBusFilter() {
+  const select = document.getElementById("bookingBusFilter");
+  if (select.options.length > 1) return null;
+  return fetch(`/agent/buses`)
+    .then(res => res.ok ? res.json() : [])
+    .then(buses => buses.forEach(bus => {
+      const option = document.createElement("option");
+      option.value = bus.id;
+      option.textContent = bus.busName;
+      select.appendChild(option);
+    }));
 }
\ No newline at end of file
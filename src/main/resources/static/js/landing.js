@@ -14,6 +14,8 @@ document.addEventListener("DOMContentLoaded", () => {
 
   fromInput.addEventListener("input", validateInputs);
   toInput.addEventListener("input", validateInputs);
+  attachStopSuggestions(fromInput);
+  attachStopSuggestions(toInput);
   dateInput.addEventListener("change", validateInputs);
 
   form.addEventListener("submit", async (e) => {
@@ -349,19 +349,51 @@ function confirmBooking() {
         email: formData.get(`email${i}`) || bookingData.userEmail
     }));
 
-    const totalAmountInPaise = passengers.reduce((sum, p) => sum + p.fare, 0) * 100;
+    const totalAmountInPaise = Math.round(passengers.reduce((sum, p) => sum + p.fare, 0) * 100);
 
     if (totalAmountInPaise <= 0) {
         showNotification("Total fare must be greater than 0. Please select a valid route.", true);
         return;
     }
 
+    // Hold the seats first so nobody else can pay for them while this payment is open
+    // (a waitlist offer arrives with its seat already held, and keeps that hold if payment is dismissed)
+    const offeredHoldId = bookingData.holdId || null;
+    let seatHoldId = offeredHoldId;
+    // A resent checkout (flaky network) replays the first response instead of booking twice
+    const checkoutKey = crypto.randomUUID();
+    const releaseSeatHold = () => {
+        if (!seatHoldId || seatHoldId === offeredHoldId) return;
+        fetch(`/user/api/seat-holds/${seatHoldId}`, { method: "DELETE" }).catch(() => {});
+        seatHoldId = null;
+    };
+
     // Start the whole payment process with the loader
-    const paymentOperation = fetch("/api/payments/create-order", {
+    const holdOperation = offeredHoldId ? Promise.resolve() : fetch("/user/api/seat-holds", {
+        method: "POST",
+        headers: { "Content-Type": "application/json" },
+        body: JSON.stringify(passengers.map(p => ({
+            busId: bookingData.busId,
+            travelDate: bookingData.travelDate,
+            seatNumber: p.seatNumber,
+            passengerFrom: p.passengerFrom,
+            passengerTo: p.passengerTo
+        })))
+    })
+    .then(res => res.json().catch(() => ({})).then(body => {
+        if (res.status === 409) {
+            throw new Error(`Seat(s) ${(body.conflictingSeats || []).join(", ")} are no longer available`);
+        }
+        if (!res.ok || !body.holdId) throw new Error(body.message || "Could not hold the selected seats");
+        seatHoldId = body.holdId;
+    }));
+
+    const paymentOperation = holdOperation
+    .then(() => fetch("/api/payments/create-order", {
         method: "POST",
         headers: { "Content-Type": "application/x-www-form-urlencoded" },
         body: `amount=${totalAmountInPaise}&currency=INR`
-    })
+    }))
     .then(res => {
         if (!res.ok) throw new Error("Failed to create payment order.");
         return res. json();
@@ -385,114 +417,90 @@ function confirmBooking() {
                 // ✅ PAYMENT SUCCESSFUL - Now proceed with booking and email
                 showLoader();
 
-                const bookingPromises = passengers.map(p => fetch("/user/api/bookings/book", {
+                // One checkout request: payment verified, every seat booked (or none), tickets emailed
+                fetch("/user/api/checkout", {
                     method: "POST",
-                    headers:  { "Content-Type": "application/json" },
+                    headers:  { "Content-Type": "application/json", "Idempotency-Key": checkoutKey },
                     body: JSON.stringify({
-                        busId: bookingData.busId,
-                        travelDate: bookingData. travelDate,
-                        customerEmail: bookingData. userEmail,
-                        seatNumber: p.seatNumber,
-                        fare: p.fare,
-                        passengerName: p.name,
-                        passengerAge: p.age,
-                        passengerMobile: p.mobile,
-                        passengerFrom: p.passengerFrom,
-                        passengerTo: p.passengerTo,
-                        passengerEmail: p.email,
+                        customerEmail: bookingData.userEmail,
+                        holdId: seatHoldId,
+                        razorpayOrderId: response.razorpay_order_id,
                         razorpayPaymentId: response.razorpay_payment_id,
-                        razorpayOrderId:  response.razorpay_order_id,
+                        razorpaySignature: response.razorpay_signature,
+                        passengers: passengers.map(p => ({
+                            busId: bookingData.busId,
+                            travelDate: bookingData. travelDate,
+                            seatNumber: p.seatNumber,
+                            fare: p.fare,
+                            passengerName: p.name,
+                            passengerAge: p.age,
+                            passengerMobile: p.mobile,
+                            passengerFrom: p.passengerFrom,
+                            passengerTo: p.passengerTo,
+                            passengerEmail: p.email
+                        }))
                     })
-                }));
-
-                Promise.all(bookingPromises)
-                    . then(responses => {
-                        const allOk = responses. every(res => res.ok);
-                        if (! allOk) {
-                            throw new Error("One or more bookings failed on the server.");
+                })
+                    .then(res => res.json().catch(() => ({})).then(body => ({ res, body })))
+                    .then(({ res, body }) => {
+                        if (res.status === 409) {
+                            const seats = (body.conflictingSeats || []).join(", ");
+                            throw new Error(`Seat(s) ${seats} were just booked by someone else.`);
                         }
+                        if (!res.ok) {
+                            throw new Error(body.message || "Booking failed on the server.");
+                        }
+                        return body;
+                    })
+                    .then(body => {
+                        console.log("Checkout response:", body);
+                        hideLoader();
 
-                        // ✅ BOOKING SUCCESSFUL - Now send email (only after payment success)
-                        return fetch("/user/api/finalize-booking", {
-                            method:  "POST",
-                            headers: { "Content-Type": "application/json" },
-                            body:  JSON.stringify({
-                                email: bookingData.userEmail,
-                                busId: bookingData.busId,
-                                travelDate: bookingData. travelDate,
-                                seatNumbers: passengers.map(p => p.seatNumber)
-                            })
-                        })
-                        .then(res => res. text())
-                        .then(message => {
-                            console.log("Finalize response:", message);
-                            hideLoader();
-
-                            if (message.includes("successfully")) {
-                                // ✅ SUCCESS ALERT:  Booking successful + Mail sent
-                                sessionStorage.setItem('emailStatus', 'sent');
-                                showAlertModal(
-                                    "Booking Successful!  🎉",
-                                    "Your booking has been confirmed and a confirmation email has been sent to your registered email address.",
-                                    true
-                                );
-                            } else {
-                                // ⚠️ Booking successful but email failed
-                                sessionStorage.setItem('emailStatus', 'failed');
-                                showAlertModal(
-                                    "Booking Successful!  🎉",
-                                    "Your booking has been confirmed!  However, we couldn't send the confirmation email. Please check your bookings in the dashboard.",
-                                    true
-                                );
-                            }
-
-                            // Set the flag for the dashboard to read
-                            sessionStorage.setItem('bookingStatus', 'success');
-                            sessionStorage.removeItem('bookingDetails');
-
-                            // Redirect after user clicks OK on the alert
-                            setTimeout(() => {
-                                const modal = document.getElementById('custom-alert-modal');
-                                if (modal) {
-                                    modal. querySelector('.alert-close-btn').addEventListener('click', () => {
-                                        window.location.href = '/user/dashboard';
-                                    });
-                                }
-                            }, 100);
-
-                            // Auto redirect after 5 seconds if user doesn't click
-                            setTimeout(() => {
-                                window.location.href = '/user/dashboard';
-                            }, 5000);
-                        })
-                        .catch(err => {
-                            console.error("Email sending failed:", err);
-                            hideLoader();
-                            sessionStorage.setItem('emailStatus', 'failed');
-
+                        if (body.emailed) {
+                            // ✅ SUCCESS ALERT:  Booking successful + Mail sent
+                            sessionStorage.setItem('emailStatus', 'sent');
+                            showAlertModal(
+                                "Booking Successful!  🎉",
+                                "Your booking has been confirmed and a confirmation email has been sent to your registered email address.",
+                                true
+                            );
+                        } else {
                             // ⚠️ Booking successful but email failed
+                            sessionStorage.setItem('emailStatus', 'failed');
                             showAlertModal(
-                                "Booking Successful! 🎉",
-                                "Your booking has been confirmed!  However, we couldn't send the confirmation email.  Please check your bookings in the dashboard.",
+                                "Booking Successful!  🎉",
+                                "Your booking has been confirmed!  However, we couldn't send the confirmation email. Please check your bookings in the dashboard.",
                                 true
                             );
+                        }
 
-                            sessionStorage.setItem('bookingStatus', 'success');
-                            sessionStorage.removeItem('bookingDetails');
-
-                            setTimeout(() => {
-                                window.location.href = '/user/dashboard';
-                            }, 5000);
-                        });
+                        // Set the flag for the dashboard to read
+                        sessionStorage.setItem('bookingStatus', 'success');
+                        sessionStorage.removeItem('bookingDetails');
+
+                        // Redirect after user clicks OK on the alert
+                        setTimeout(() => {
+                            const modal = document.getElementById('custom-alert-modal');
+                            if (modal) {
+                                modal. querySelector('.alert-close-btn').addEventListener('click', () => {
+                                    window.location.href = '/user/dashboard';
+                                });
+                            }
+                        }, 100);
 
-                    }).catch(err => {
+                        // Auto redirect after 5 seconds if user doesn't click
+                        setTimeout(() => {
+                            window.location.href = '/user/dashboard';
+                        }, 5000);
+                    })
+                    .catch(err => {
                         console.error("Booking Finalization Error:", err);
                         hideLoader();
 
                         // ❌ Payment successful but booking save failed
                         showAlertModal(
                             "Booking Error ⚠️",
-                            `Payment was successful, but there was an error saving your booking. Please contact support with Order ID: ${response. razorpay_order_id}`,
+                            `Payment was successful, but there was an error saving your booking (${err.message}). Please contact support with Order ID: ${response. razorpay_order_id}`,
                             false
                         );
                     });
@@ -505,6 +513,7 @@ function confirmBooking() {
             modal: {
                 ondismiss: function() {
                     // User closed the payment modal without completing payment
+                    releaseSeatHold();
                     showNotification("⚠️ Payment cancelled.  Please try again to complete your booking.", true);
                 }
             }
@@ -531,6 +540,7 @@ function confirmBooking() {
     })
     .catch(err => {
         console. error("Payment Initiation Error:", err);
+        releaseSeatHold();
 
         // ❌ FAILURE ALERT: Could not initiate payment
         showAlertModal(
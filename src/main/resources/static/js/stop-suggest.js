@@ -0,0 +1,30 @@
+// Shared by the landing page and the user dashboard.
+// Fills a <datalist> for the input (element or id) from the stop-name autocomplete API.
+function attachStopSuggestions(inputOrId) {
+  const input = typeof inputOrId === "string" ? document.getElementById(inputOrId) : inputOrId;
+  if (!input) return;
+  const list = document.createElement("datalist");
+  list.id = `${input.id}Suggestions`;
+  input.setAttribute("list", list.id);
+  input.after(list);
+
+  let debounce;
+  input.addEventListener("input", () => {
+    clearTimeout(debounce);
+    const q = input.value.trim();
+    if (q.length < 2) return;
+    debounce = setTimeout(() => {
+      fetch(`/api/routes/stops/suggest?q=${encodeURIComponent(q)}`)
+        .then(res => res.ok ? res.json() : [])
+        .then(names => {
+          // Stop names are user-entered route data: set them as values, never as markup
+          list.replaceChildren(...names.map(n => {
+            const option = document.createElement("option");
+            option.value = n;
+            return option;
+          }));
+        })
+        .catch(err => console.error("Stop suggestions error:", err));
+    }, 150);
+  });
+}
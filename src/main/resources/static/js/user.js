@@ -102,6 +102,10 @@ document.addEventListener("DOMContentLoaded", () => {
   }
 
   showUserSection("search");
+
+  // Link from a waitlist offer email
+  const offerId = new URLSearchParams(window.location.search).get("waitlistOffer");
+  if (offerId) runWithLoader(resumeWaitlistOffer(offerId));
 });
 
 // --------- SECTION NAVIGATION ---------
@@ -159,6 +163,10 @@ document.getElementById("searchForm")?.addEventListener("submit", e => {
   runWithLoader(searchOperation);
 });
 
+// --------- STOP AUTOCOMPLETE ---------
+attachStopSuggestions("fromCity");
+attachStopSuggestions("toCity");
+
 // --------- SEAT LAYOUT (UPDATED) ---------
 function loadSeatLayout(busId, busName, date) {
   selectedBusId = busId;
@@ -166,15 +174,17 @@ function loadSeatLayout(busId, busName, date) {
   selectedSeats = [];
   window.selectedBusName = busName;
 
-  // ✅ Define the fetch operation
-  const loadLayoutOperation = Promise.all([
-    fetch(`/api/seats/by-bus/${busId}`).then(res => res.json().catch(() => ({}))),
-    fetch(`/user/api/booked-seats?busId=${busId}&date=${date}`).then(res => res.json().catch(() => ([]))),
-    fetch(`/user/api/route/stops/${busId}`).then(res => res.json().catch(() => ([])))
-  ]).then(([seatData, booked, stops]) => {
-    currentSeatLayout = seatData?.seats || [];
-    window.bookedSeatNumbers = booked || [];
-    selectedRouteStops = Array.isArray(stops) ? stops : [];
+  // ✅ Define the fetch operation (seats are only blocked where they overlap the searched leg)
+  const legFrom = encodeURIComponent(document.getElementById("fromCity").value.trim());
+  const legTo = encodeURIComponent(document.getElementById("toCity").value.trim());
+  // One snapshot call; "no-cache" revalidates with the ETag, so an unchanged trip comes back as a 304
+  const snapshotUrl = `/user/api/trip-snapshot?busId=${busId}&date=${date}&from=${legFrom}&to=${legTo}`;
+  const loadLayoutOperation = fetch(snapshotUrl, { cache: "no-cache" }).then(res => res.json().catch(() => ({}))).then(snapshot => {
+    currentSeatLayout = snapshot?.layout?.seats || [];
+    window.bookedSeatNumbers = snapshot?.booked || [];
+    window.heldSeatNumbers = snapshot?.held || [];
+    window.seatFares = snapshot?.fares || {};
+    selectedRouteStops = Array.isArray(snapshot?.stops) ? snapshot.stops : [];
 
     if (currentSeatLayout.length === 0) {
       showNotification("⚠️ No seat information available for this bus.", true);
@@ -199,6 +209,7 @@ function loadSeatLayout(busId, busName, date) {
 
     const hasSeater = currentSeatLayout.some(s => s.type === 'seater');
     renderSeatLayout(hasSeater ? "seater" : "sleeper");
+    watchSeatEvents(busId, date, legFrom, legTo, snapshotUrl);
     showNotification(`🪑 Seats loaded for **${busName}**. Start selecting!`);
   }).catch(err => {
     console.error("Seat layout error:", err);
@@ -209,6 +220,60 @@ function loadSeatLayout(busId, busName, date) {
   runWithLoader(loadLayoutOperation);
 }
 
+// --------- LIVE SEAT UPDATES ---------
+let seatEvents = null;
+
+function watchSeatEvents(busId, date, legFrom, legTo, snapshotUrl) {
+  if (seatEvents) seatEvents.close();
+  let opened = false;
+  seatEvents = new EventSource(`/user/api/seat-events?busId=${busId}&date=${date}&from=${legFrom}&to=${legTo}`);
+  seatEvents.addEventListener("seats", e => applySeatDelta(JSON.parse(e.data)));
+  // Changes sent while disconnected are lost, so resync from the snapshot (a 304 when nothing moved)
+  seatEvents.onopen = () => {
+    if (opened) refreshSeatState(snapshotUrl);
+    opened = true;
+  };
+}
+
+function applySeatDelta(delta) {
+  if (delta.busId !== selectedBusId || delta.date !== selectedTravelDate) return;
+  const booked = new Set(window.bookedSeatNumbers);
+  const held = new Set(window.heldSeatNumbers);
+  const lost = [];
+  Object.entries(delta.seats || {}).forEach(([seat, state]) => {
+    booked.delete(seat);
+    held.delete(seat);
+    if (state === "booked") booked.add(seat);
+    else if (state === "held") held.add(seat);
+    if (state !== "free" && selectedSeats.some(s => s.number === seat)) lost.push(seat);
+  });
+  window.bookedSeatNumbers = [...booked];
+  window.heldSeatNumbers = [...held];
+  if (lost.length > 0) {
+    selectedSeats = selectedSeats.filter(s => !lost.includes(s.number));
+    showNotification(`⚠️ Seat ${lost.join(", ")} was just taken by another traveller.`, true);
+  }
+  rerenderSeats();
+}
+
+function refreshSeatState(snapshotUrl) {
+  fetch(snapshotUrl, { cache: "no-cache" })
+    .then(res => res.json())
+    .then(snapshot => {
+      if (snapshot.busId !== selectedBusId || snapshot.date !== selectedTravelDate) return;
+      window.bookedSeatNumbers = snapshot.booked || [];
+      window.heldSeatNumbers = snapshot.held || [];
+      selectedSeats = selectedSeats.filter(s => !window.bookedSeatNumbers.includes(s.number) && !window.heldSeatNumbers.includes(s.number));
+      rerenderSeats();
+    })
+    .catch(err => console.error("Seat refresh error:", err));
+}
+
+function rerenderSeats() {
+  const sleeperBtn = document.getElementById("sleeperBtn");
+  renderSeatLayout(sleeperBtn && sleeperBtn.classList.contains("active") ? "sleeper" : "seater");
+}
+
 function renderSeatLayout(type) {
   const layoutDiv = document.getElementById("seatLayout");
   layoutDiv.innerHTML = "";
@@ -248,11 +313,16 @@ function renderSeatLayout(type) {
       btn.classList.add(seat.type);
 
       const isBooked = window.bookedSeatNumbers.includes(seat.number);
+      const isHeld = window.heldSeatNumbers.includes(seat.number);
       const isSelected = selectedSeats.some(s => s.number === seat.number);
 
-      if (isBooked) {
+      if (isBooked || isHeld) {
         btn.disabled = true;
         btn.classList.add("booked");
+        if (isHeld) {
+          btn.classList.add("held");
+          btn.title = "Held by another traveller who is completing payment";
+        }
       } else {
         btn.onclick = () => toggleSeat(seat);
         if (isSelected) btn.classList.add("selected");
@@ -260,7 +330,7 @@ function renderSeatLayout(type) {
       }
 
       // Calculate estimated fare for display
-      const estimatedFare = calculateDynamicFare(seat.price);
+      const estimatedFare = seatFare(seat);
       btn.innerHTML = `<div class="seat-info">${seat.number}<br/>₹${estimatedFare.toFixed(0)}</div>`;
       container.appendChild(btn);
     });
@@ -269,9 +339,78 @@ function renderSeatLayout(type) {
 
   renderDeck("lower", lower);
   renderDeck("upper", upper);
+
+  const soldOut = filtered.length > 0 && filtered.every(seat =>
+    window.bookedSeatNumbers.includes(seat.number) || window.heldSeatNumbers.includes(seat.number));
+  if (soldOut) {
+    const waitlistBtn = document.createElement("button");
+    waitlistBtn.className = "waitlist-btn";
+    waitlistBtn.textContent = `⏳ Join the ${type} waitlist`;
+    waitlistBtn.onclick = () => joinWaitlist(type);
+    layoutDiv.appendChild(waitlistBtn);
+  }
   updateSelectionDisplay();
 }
 
+function joinWaitlist(seatType) {
+  const joinOperation = fetch("/user/api/waitlist", {
+    method: "POST",
+    headers: { "Content-Type": "application/json" },
+    body: JSON.stringify({
+      busId: selectedBusId,
+      travelDate: selectedTravelDate,
+      seatType: seatType,
+      passengerFrom: document.getElementById("fromCity").value.trim(),
+      passengerTo: document.getElementById("toCity").value.trim(),
+      passengerName: userName
+    })
+  })
+    .then(res => res.ok
+      ? showNotification(`⏳ You're on the ${seatType} waitlist. We'll email you as soon as a seat opens up.`, false, true)
+      : res.text().then(message => showNotification(message || "❌ Could not join the waitlist.", true)))
+    .catch(err => {
+      console.error("Waitlist error:", err);
+      showNotification("❌ Could not join the waitlist.", true);
+    });
+  runWithLoader(joinOperation);
+}
+
+// Opens passenger details for a seat the waitlist is holding for this user
+function resumeWaitlistOffer(entryId) {
+  return fetch("/user/api/waitlist")
+    .then(res => res.json())
+    .then(entries => {
+      const entry = (entries || []).find(e => e.id === entryId && e.status === "OFFERED");
+      if (!entry) {
+        showNotification("⚠️ This waitlist offer has expired or was already used.", true);
+        return;
+      }
+      const from = encodeURIComponent(entry.passengerFrom || "");
+      const to = encodeURIComponent(entry.passengerTo || "");
+      return fetch(`/user/api/trip-snapshot?busId=${entry.busId}&date=${entry.travelDate}&from=${from}&to=${to}`, { cache: "no-cache" })
+        .then(res => res.json())
+        .then(snapshot => {
+          const seat = (snapshot.layout?.seats || []).find(s => s.number === entry.seatNumber);
+          if (!seat) throw new Error("Offered seat is missing from the layout");
+          sessionStorage.setItem('bookingDetails', JSON.stringify({
+            seats: [{ number: seat.number, price: seat.price, dynamicFare: snapshot.fares?.[seat.number] ?? seat.price, type: seat.type }],
+            busId: entry.busId,
+            busName: entry.busName || "Bus",
+            travelDate: entry.travelDate,
+            routeStops: snapshot.stops,
+            userEmail: userEmail,
+            userName: userName,
+            holdId: entry.holdId
+          }));
+          window.location.href = '/user/passenger-details.html';
+        });
+    })
+    .catch(err => {
+      console.error("Waitlist offer error:", err);
+      showNotification("❌ Could not open your waitlist offer.", true);
+    });
+}
+
 function toggleSeat(seat) {
   const index = selectedSeats.findIndex(s => s.number === seat.number);
   if (index > -1) {
@@ -284,7 +423,7 @@ function toggleSeat(seat) {
     }
 
     // Calculate dynamic fare based on route segment
-    const dynamicFare = calculateDynamicFare(seat.price);
+    const dynamicFare = seatFare(seat);
 
     selectedSeats.push({
       number: seat.number,
@@ -297,6 +436,12 @@ function toggleSeat(seat) {
   renderSeatLayout(seat.type);
 }
 
+// Segment fare computed by the server for the searched leg; falls back to the local estimate
+function seatFare(seat) {
+  const fare = window.seatFares?.[seat.number];
+  return typeof fare === "number" ? fare : calculateDynamicFare(seat.price);
+}
+
 function calculateDynamicFare(basePrice) {
   if (!Array.isArray(selectedRouteStops) || selectedRouteStops.length < 2) {
     return basePrice; // Fallback to base price if route info is not available
@@ -407,7 +552,8 @@ function loadUserBookings() {
                   <td>${b.routeTo}</td>
                   <td>₹${b.fare.toFixed(2)}</td>
                   <td>${b.status}</td>
-                  <td>${b.status === 'CONFIRMED' ? `<button onclick="downloadTicket('${b.id}')">📥 Ticket</button>` : '-'}</td>
+                  <td>${b.status === 'CONFIRMED' ? `<button onclick="downloadTicket('${b.id}')">📥 Ticket</button>
+                    <button onclick="cancelBooking('${b.id}')">✖ Cancel</button>` : '-'}</td>
                 </tr>
               `).join("")}
             </tbody>
@@ -418,6 +564,20 @@ function loadUserBookings() {
     });
 }
 
+function cancelBooking(bookingId) {
+  if (!confirm("Cancel this booking? The seat will be released.")) return;
+  const cancelOperation = fetch(`/user/api/bookings/${bookingId}/cancel`, { method: "POST" })
+    .then(res => res.text().then(message => {
+      showNotification(message, !res.ok);
+      if (res.ok) return loadUserBookings();
+    }))
+    .catch(err => {
+      console.error("Cancel error:", err);
+      showNotification("❌ Could not cancel the booking.", true);
+    });
+  runWithLoader(cancelOperation);
+}
+
 function downloadTicket(bookingId) {
     // ✅ Define download operation
     const downloadOperation = fetch(`/user/api/bookings/download-ticket/${bookingId}`)
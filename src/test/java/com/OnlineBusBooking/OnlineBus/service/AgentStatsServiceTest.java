@@ -0,0 +1,135 @@
+package com.OnlineBusBooking.OnlineBus.service;
+
+import com.OnlineBusBooking.OnlineBus.model.Booking;
+import com.OnlineBusBooking.OnlineBus.model.Bus;
+import com.OnlineBusBooking.OnlineBus.model.Route;
+import com.OnlineBusBooking.OnlineBus.model.TripSchedule;
+import com.OnlineBusBooking.OnlineBus.repository.BusRepository;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationResults;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class AgentStatsServiceTest {
+
+    private final MongoTemplate mongo = mock(MongoTemplate.class);
+    private final BusRepository buses = mock(BusRepository.class);
+    private final List<Bus> aliceBuses = new ArrayList<>(List.of(bus("b1", "alice"), bus("b2", "alice")));
+    private final List<Bus> bobBuses = new ArrayList<>(List.of(bus("b3", "bob")));
+    private AgentStatsService stats;
+
+    @BeforeEach
+    void setUp() {
+        when(buses.findByOperatorId("alice")).thenAnswer(call -> List.copyOf(aliceBuses));
+        when(buses.findByOperatorId("bob")).thenAnswer(call -> List.copyOf(bobBuses));
+        // Per bus in Mongo: 1 route, 2 schedules, 3 bookings worth 100 each
+        when(mongo.count(any(Query.class), eq(Route.class))).thenAnswer(call -> busCount(call.getArgument(0)));
+        when(mongo.count(any(Query.class), eq(TripSchedule.class))).thenAnswer(call -> 2 * busCount(call.getArgument(0)));
+        when(mongo.aggregate(any(Aggregation.class), eq(Booking.class), eq(Document.class))).thenAnswer(call -> {
+            Aggregation aggregation = call.getArgument(0);
+            Document match = aggregation.toPipeline(Aggregation.DEFAULT_CONTEXT).get(0).get("$match", Document.class);
+            int busCount = ((List<?>) match.get("busId", Document.class).get("$in")).size();
+            Document totals = new Document("bookings", 3 * busCount).append("revenue", 300.0 * busCount);
+            return new AggregationResults<>(List.of(totals), new Document());
+        });
+
+        stats = new AgentStatsService();
+        ReflectionTestUtils.setField(stats, "mongoTemplate", mongo);
+        ReflectionTestUtils.setField(stats, "busRepository", buses);
+    }
+
+    @Test
+    void countsOnceThenFollowsEveryWritePath() {
+        assertEquals(totals(2, 2, 4, 6, 600), stats.stats("alice"));
+        assertEquals(totals(1, 1, 2, 3, 300), stats.stats("bob"));
+
+        stats.bookingsAdded(List.of(booking("b1", 450), booking("b2", 550)));
+        stats.bookingRemoved(booking("b1", 100));
+        stats.scheduleChanged(null, schedule("b2"));
+        stats.scheduleChanged(schedule("b2"), schedule("b3")); // moved to bob's bus
+        stats.routeChanged(null, route("b1"));
+        stats.routeChanged(route("b1"), route("b3"));          // moved to bob's bus
+        stats.routeChanged(route("b2"), null);
+        stats.busSaved(bus("b4", "alice"));
+
+        assertEquals(totals(3, 1, 4, 7, 1500), stats.stats("alice"));
+        assertEquals(totals(1, 2, 3, 3, 300), stats.stats("bob"));
+        // Reads after the first never go back to Mongo
+        verify(mongo, times(2)).count(any(Query.class), eq(Route.class));
+
+        // Writes for buses of operators nobody has looked at are ignored
+        stats.bookingsAdded(List.of(booking("unknown-bus", 999)));
+        assertEquals(totals(3, 1, 4, 7, 1500), stats.stats("alice"));
+    }
+
+    @Test
+    void ownershipChangesAndReconcileRecountFromMongo() {
+        stats.stats("alice");
+        stats.stats("bob");
+        stats.bookingsAdded(List.of(booking("b1", 100)));
+
+        // b2 is handed to bob: both operators are recounted on their next read
+        aliceBuses.removeIf(bus -> bus.getId().equals("b2"));
+        bobBuses.add(bus("b2", "bob"));
+        stats.busSaved(bus("b2", "bob"));
+        assertEquals(totals(1, 1, 2, 3, 300), stats.stats("alice"));
+        assertEquals(totals(2, 2, 4, 6, 600), stats.stats("bob"));
+        verify(buses, times(2)).findByOperatorId("alice");
+
+        // Drift from another instance's writes is corrected by the background recount
+        stats.bookingsAdded(List.of(booking("b1", 100)));
+        stats.reconcile();
+        assertEquals(totals(1, 1, 2, 3, 300), stats.stats("alice"));
+    }
+
+    private static long busCount(Query query) {
+        return ((List<?>) query.getQueryObject().get("busId", Document.class).get("$in")).size();
+    }
+
+    private static Map<String, Object> totals(long buses, long routes, long schedules, long bookings, long revenue) {
+        return Map.of("totalBuses", buses, "totalRoutes", routes, "totalSchedules", schedules,
+                "totalBookings", bookings, "totalRevenue", revenue);
+    }
+
+    private static Bus bus(String id, String operator) {
+        Bus bus = new Bus();
+        bus.setId(id);
+        bus.setOperatorId(operator);
+        return bus;
+    }
+
+    private static Route route(String busId) {
+        Route route = new Route();
+        route.setBusId(busId);
+        return route;
+    }
+
+    private static TripSchedule schedule(String busId) {
+        TripSchedule schedule = new TripSchedule();
+        schedule.setBusId(busId);
+        return schedule;
+    }
+
+    private static Booking booking(String busId, double fare) {
+        Booking booking = new Booking();
+        booking.setBusId(busId);
+        booking.setFare(fare);
+        return booking;
+    }
+}
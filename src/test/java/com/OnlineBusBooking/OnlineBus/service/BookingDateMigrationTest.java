@@ -0,0 +1,83 @@
+package com.OnlineBusBooking.OnlineBus.service;
+
+import com.OnlineBusBooking.OnlineBus.model.Booking;
+import com.OnlineBusBooking.OnlineBus.model.MigrationState;
+import com.OnlineBusBooking.OnlineBus.repository.MigrationStateRepository;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.bulk.BulkWriteResult;
+import org.bson.BsonDocument;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.convert.MongoConverter;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class BookingDateMigrationTest {
+
+    @Test
+    void duplicatesAndUnparseableDatesAreQuarantined() {
+        ObjectId ok = new ObjectId();
+        ObjectId clash = new ObjectId();
+        ObjectId garbage = new ObjectId();
+        List<Document> batch = List.of(
+                new Document("_id", ok).append("travelDate", "2025-07-01"),
+                new Document("_id", clash).append("travelDate", "2025-07-02"),
+                new Document("_id", garbage).append("travelDate", "next tuesday"));
+
+        MongoTemplate mongo = mock(MongoTemplate.class);
+        MongoConverter converter = mock(MongoConverter.class);
+        when(converter.convertToMongoType(any())).thenAnswer(call -> call.getArgument(0));
+        when(mongo.getConverter()).thenReturn(converter);
+        when(mongo.getCollectionName(Booking.class)).thenReturn("bookings");
+        when(mongo.find(any(Query.class), eq(Document.class), eq("bookings"))).thenReturn(batch);
+
+        // The second queued update (index 1) collides with a booking made since
+        BulkOperationException failure = mock(BulkOperationException.class);
+        when(failure.getResult()).thenReturn(BulkWriteResult.acknowledged(0, 1, 0, 1, List.of(), List.of()));
+        when(failure.getErrors()).thenReturn(List.of(new BulkWriteError(11000, "E11000 duplicate key", new BsonDocument(), 1)));
+        BulkOperations bulk = mock(BulkOperations.class);
+        when(bulk.execute()).thenThrow(failure);
+        when(mongo.bulkOps(BulkOperations.BulkMode.UNORDERED, "bookings")).thenReturn(bulk);
+
+        MigrationStateRepository states = mock(MigrationStateRepository.class);
+        when(states.findById(BookingDateMigration.ID)).thenReturn(Optional.empty());
+        BookingDateMigration migration = new BookingDateMigration();
+        ReflectionTestUtils.setField(migration, "mongoTemplate", mongo);
+        ReflectionTestUtils.setField(migration, "migrationStateRepository", states);
+        ReflectionTestUtils.setField(migration, "batchSize", 10);
+
+        assertFalse(migration.migrateBatch());
+
+        verify(bulk, times(2)).updateOne(any(Query.class), any(Update.class));
+        ArgumentCaptor<Document> quarantined = ArgumentCaptor.forClass(Document.class);
+        verify(mongo, times(2)).save(quarantined.capture(), eq(BookingDateMigration.QUARANTINE));
+        assertEquals(List.of(garbage, clash), quarantined.getAllValues().stream().map(d -> d.get("_id")).toList());
+        assertTrue(quarantined.getAllValues().get(1).getString("reason").contains("11000"));
+
+        ArgumentCaptor<MigrationState> state = ArgumentCaptor.forClass(MigrationState.class);
+        verify(states).save(state.capture());
+        assertEquals(1, state.getValue().getConverted());
+        assertEquals(2, state.getValue().getSkipped());
+        assertEquals(garbage.toHexString(), state.getValue().getLastId());
+        assertTrue(state.getValue().isDone());
+    }
+}
@@ -0,0 +1,120 @@
+package com.OnlineBusBooking.OnlineBus.service;
+
+import com.OnlineBusBooking.OnlineBus.model.Booking;
+import com.OnlineBusBooking.OnlineBus.model.Bus;
+import com.OnlineBusBooking.OnlineBus.repository.BusRepository;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class BookingLedgerServiceTest {
+
+    private static final LocalDate DATE = LocalDate.of(2026, 1, 10);
+
+    private final MongoTemplate mongo = mock(MongoTemplate.class);
+    private BookingLedgerService service;
+
+    @BeforeEach
+    void setUp() {
+        BusRepository buses = mock(BusRepository.class);
+        when(buses.findByOperatorId("agent@example.com")).thenReturn(List.of(bus("b1", "Night Rider"), bus("b2", "Day Liner")));
+        service = new BookingLedgerService();
+        ReflectionTestUtils.setField(service, "mongoTemplate", mongo);
+        ReflectionTestUtils.setField(service, "busRepository", buses);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void pagesAreScopedToTheOperatorAndKeysetOnDateThenId() {
+        // limit + 1 rows come back: the extra one only signals a next page
+        when(mongo.find(any(Query.class), eq(Booking.class))).thenReturn(new ArrayList<>(List.of(
+                booking("id3", "b1", DATE), booking("id2", "b2", DATE), booking("id1", "b1", DATE.minusDays(1)))));
+        Map<String, Object> page = service.page("agent@example.com",
+                new BookingLedgerService.Filter(null, " confirmed ", DATE.minusDays(7), DATE, 2, null));
+
+        List<Map<String, Object>> items = (List<Map<String, Object>>) page.get("items");
+        assertEquals(List.of("id3", "id2"), items.stream().map(row -> row.get("id")).toList());
+        assertEquals("Day Liner", items.get(1).get("busName"));
+        assertNotNull(page.get("nextCursor"));
+
+        Query first = lastQuery();
+        Document filter = first.getQueryObject();
+        assertEquals(List.of("b1", "b2"), sorted((List<String>) filter.get("busId", Document.class).get("$in")));
+        assertEquals("CONFIRMED", filter.get("status"));
+        assertEquals(new Document("$gte", DATE.minusDays(7)).append("$lte", DATE), filter.get("travelDate"));
+        assertEquals(new Document("travelDate", -1).append("_id", -1), first.getSortObject());
+        assertEquals(3, first.getLimit());
+        assertFalse(first.getFieldsObject().containsKey("razorpayPaymentId"));
+
+        // The next page starts strictly after the last row shown: earlier date, or same date and smaller _id
+        when(mongo.find(any(Query.class), eq(Booking.class))).thenReturn(new ArrayList<>(List.of(booking("id1", "b1", DATE.minusDays(1)))));
+        Map<String, Object> next = service.page("agent@example.com",
+                new BookingLedgerService.Filter(null, null, null, null, 2, (String) page.get("nextCursor")));
+        assertNull(next.get("nextCursor"));
+        List<Document> keyset = (List<Document>) lastQuery().getQueryObject().get("$or");
+        assertEquals(new Document("travelDate", new Document("$lt", DATE)), keyset.get(0));
+        assertEquals(List.of(new Document("travelDate", DATE), new Document("_id", new Document("$lt", "id2"))),
+                keyset.get(1).get("$and"));
+    }
+
+    @Test
+    void otherOperatorsBusesAndTamperedCursorsAreRejected() {
+        Map<String, Object> page = service.page("agent@example.com",
+                new BookingLedgerService.Filter("someone-elses-bus", null, null, null, 20, null));
+        assertEquals(List.of(), page.get("items"));
+        assertNull(page.get("nextCursor"));
+        verify(mongo, never()).find(any(Query.class), eq(Booking.class));
+
+        assertThrows(IllegalArgumentException.class, () -> service.page("agent@example.com",
+                new BookingLedgerService.Filter(null, null, null, null, 20, "bm90LWEtZGF0ZXxpZDE")));
+        assertEquals(BookingLedgerService.MAX_LIMIT, new BookingLedgerService.Filter(null, null, null, null, 10_000, null).limit());
+    }
+
+    private Query lastQuery() {
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        verify(mongo, atLeastOnce()).find(query.capture(), eq(Booking.class));
+        return query.getValue();
+    }
+
+    private static List<String> sorted(List<String> values) {
+        return values.stream().sorted().toList();
+    }
+
+    private static Bus bus(String id, String name) {
+        Bus bus = new Bus();
+        bus.setId(id);
+        bus.setBusName(name);
+        return bus;
+    }
+
+    private static Booking booking(String id, String busId, LocalDate date) {
+        Booking booking = new Booking();
+        booking.setId(id);
+        booking.setBusId(busId);
+        booking.setTravelDate(date);
+        booking.setStatus("CONFIRMED");
+        return booking;
+    }
+}
@@ -0,0 +1,141 @@
+package com.OnlineBusBooking.OnlineBus.service;
+
+import com.OnlineBusBooking.OnlineBus.model.Booking;
+import com.OnlineBusBooking.OnlineBus.model.RollupState;
+import com.OnlineBusBooking.OnlineBus.model.SalesRollup;
+import com.OnlineBusBooking.OnlineBus.model.TripRollup;
+import com.OnlineBusBooking.OnlineBus.repository.RollupStateRepository;
+import com.OnlineBusBooking.OnlineBus.repository.RouteRepository;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationResults;
+import org.springframework.data.mongodb.core.aggregation.TypedAggregation;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class BookingRollupServiceTest {
+
+    private static final LocalDate DATE = LocalDate.now().plusDays(7);
+    private static final Date HOUR = Date.from(Instant.now().truncatedTo(ChronoUnit.HOURS));
+
+    private final MongoTemplate mongo = mock(MongoTemplate.class);
+    private final RollupStateRepository states = mock(RollupStateRepository.class);
+    private final List<Aggregation> touchedBookings = new ArrayList<>();
+    private final List<Aggregation> touchedCancellations = new ArrayList<>();
+    private List<BookingRollupService.Touched> booked = List.of();
+    private List<BookingRollupService.Touched> cancelled = List.of();
+    private List<BookingRollupService.TripTotals> totals = List.of();
+    private RollupState saved;
+    private BookingRollupService service;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        when(mongo.getCollectionName(Booking.class)).thenReturn("bookings");
+        when(mongo.aggregate(any(Aggregation.class), anyString(), eq(BookingRollupService.Touched.class))).thenAnswer(call -> {
+            boolean fromBookings = "bookings".equals(call.getArgument(1));
+            (fromBookings ? touchedBookings : touchedCancellations).add(call.getArgument(0));
+            return new AggregationResults<>(fromBookings ? booked : cancelled, new Document());
+        });
+        when(mongo.aggregate(any(TypedAggregation.class), eq(BookingRollupService.Bucket.class)))
+                .thenAnswer(call -> new AggregationResults<>(List.of(), new Document()));
+        when(mongo.aggregate(any(TypedAggregation.class), eq(BookingRollupService.TripTotals.class)))
+                .thenAnswer(call -> new AggregationResults<>(totals, new Document()));
+        when(mongo.bulkOps(any(BulkOperations.BulkMode.class), any(Class.class))).thenReturn(mock(BulkOperations.class));
+        when(states.findById(BookingRollupService.ID)).thenAnswer(call -> Optional.ofNullable(saved));
+        when(states.save(any(RollupState.class))).thenAnswer(call -> saved = call.getArgument(0));
+
+        service = new BookingRollupService();
+        ReflectionTestUtils.setField(service, "mongoTemplate", mongo);
+        ReflectionTestUtils.setField(service, "rollupStateRepository", states);
+        ReflectionTestUtils.setField(service, "routeRepository", mock(RouteRepository.class));
+        ReflectionTestUtils.setField(service, "lagSeconds", 0L);
+        ReflectionTestUtils.setField(service, "zone", ZoneId.of("Asia/Kolkata"));
+    }
+
+    @Test
+    void eachRunOnlyReadsPastTheHighWaterMarks() {
+        service.rollUp();
+        assertEquals(1, saved.getRuns());
+        assertEquals(1, touchedBookings.size());
+        assertEquals(1, touchedCancellations.size());
+        // Nothing was touched: no bucket is recomputed
+        verify(mongo, never()).aggregate(any(TypedAggregation.class), eq(BookingRollupService.Bucket.class));
+
+        // An hour later the next run starts where the last one stopped
+        Instant hourAgo = Instant.now().minus(1, ChronoUnit.HOURS);
+        String bookingMark = new ObjectId(Date.from(hourAgo)).toHexString();
+        Date cancelMark = Date.from(hourAgo);
+        saved.setHighWaterMark(bookingMark);
+        saved.setCancelledHighWaterMark(cancelMark);
+        service.rollUp();
+        assertEquals(2, saved.getRuns());
+        assertEquals(new ObjectId(bookingMark), range(touchedBookings.get(1), "_id").get("$gte"));
+        assertEquals(cancelMark, range(touchedCancellations.get(1), "cancelledAt").get("$gte"));
+        assertTrue(new ObjectId(saved.getHighWaterMark()).compareTo(new ObjectId(bookingMark)) > 0);
+        assertTrue(saved.getCancelledHighWaterMark().after(cancelMark));
+    }
+
+    @Test
+    void cancellationRecomputesItsHourAndTripOnTheNextRun() {
+        BookingRollupService.Touched touched = new BookingRollupService.Touched(HOUR, "b1", DATE);
+        booked = List.of(touched);
+        totals = List.of(new BookingRollupService.TripTotals("b1", DATE, 1, 1, 800));
+        service.rollUp();
+        verify(mongo, times(1)).aggregate(any(TypedAggregation.class), eq(BookingRollupService.TripTotals.class));
+        verify(mongo, never()).remove(any(Query.class), eq(TripRollup.class));
+
+        // The only booking on the trip is cancelled: no new bookings, the cancellation is found past its mark
+        booked = List.of();
+        cancelled = List.of(touched);
+        totals = List.of();
+        saved.setCancelledHighWaterMark(Date.from(Instant.now().minusSeconds(60)));
+        service.rollUp();
+        verify(mongo, times(4)).aggregate(any(TypedAggregation.class), eq(BookingRollupService.Bucket.class));
+        ArgumentCaptor<Query> emptied = ArgumentCaptor.forClass(Query.class);
+        verify(mongo).remove(emptied.capture(), eq(TripRollup.class));
+        assertEquals(List.of("b1|" + DATE), emptied.getValue().getQueryObject().get("_id", Document.class).get("$in"));
+        // The hour's sales bucket is rewritten (here: emptied) for the cancelled booking's hour
+        ArgumentCaptor<Query> hours = ArgumentCaptor.forClass(Query.class);
+        verify(mongo, times(4)).remove(hours.capture(), eq(SalesRollup.class));
+        assertEquals(List.of(HOUR), hours.getAllValues().get(2).getQueryObject().get("bucketStart", Document.class).get("$in"));
+
+        // Rerunning with nothing new recomputes nothing
+        cancelled = List.of();
+        service.rollUp();
+        verify(mongo, times(4)).aggregate(any(TypedAggregation.class), eq(BookingRollupService.Bucket.class));
+        assertEquals(3, saved.getRuns());
+    }
+
+    // The range criteria of the $match stage that starts a touched-buckets pipeline
+    private static Document range(Aggregation aggregation, String field) {
+        Document match = aggregation.toPipeline(Aggregation.DEFAULT_CONTEXT).get(0).get("$match", Document.class);
+        return match.get(field, Document.class);
+    }
+}
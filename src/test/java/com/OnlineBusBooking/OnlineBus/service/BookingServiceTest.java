@@ -0,0 +1,178 @@
+package com.OnlineBusBooking.OnlineBus.service;
+
+import com.OnlineBusBooking.OnlineBus.model.Booking;
+import com.OnlineBusBooking.OnlineBus.model.Bus;
+import com.OnlineBusBooking.OnlineBus.model.Route;
+import com.OnlineBusBooking.OnlineBus.model.SeatLayout;
+import com.OnlineBusBooking.OnlineBus.repository.BookingRepository;
+import com.OnlineBusBooking.OnlineBus.repository.BusRepository;
+import com.OnlineBusBooking.OnlineBus.repository.RouteRepository;
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.ServerAddress;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.bulk.BulkWriteResult;
+import org.bson.BsonDocument;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class BookingServiceTest {
+
+    private static final LocalDate DATE = LocalDate.of(2026, 1, 10);
+
+    private final MongoTemplate mongo = mock(MongoTemplate.class);
+    private final BulkOperations bulk = mock(BulkOperations.class);
+    private final BookingRepository bookings = mock(BookingRepository.class);
+    private final SeatInventory inventory = mock(SeatInventory.class);
+    private final SeatHoldService holds = mock(SeatHoldService.class);
+    private final AgentStatsService stats = mock(AgentStatsService.class);
+    private BookingService service;
+
+    @BeforeEach
+    void setUp() {
+        Route route = new Route();
+        route.setBusId("b1");
+        route.setFrom("Hyderabad");
+        route.setStops(List.of("Kurnool"));
+        route.setTo("Bangalore");
+        RouteRepository routes = mock(RouteRepository.class);
+        when(routes.findByBusId("b1")).thenReturn(List.of(route));
+        BusRepository buses = mock(BusRepository.class);
+        when(buses.findById("b1")).thenReturn(Optional.of(new Bus()));
+        SeatLayoutCache layouts = mock(SeatLayoutCache.class);
+        when(layouts.get("b1")).thenReturn(Optional.of(SeatLayoutCache.IndexedLayout.of(layout("L1", "L2", "L3"))));
+        InstanceLease lease = mock(InstanceLease.class);
+        when(lease.isHeld()).thenReturn(true);
+
+        when(inventory.isValidLeg(eq("b1"), eq(DATE), anyString(), anyString())).thenReturn(true);
+        when(inventory.legFare(eq("b1"), eq(DATE), anyString(), anyString(), anyDouble())).thenAnswer(call -> call.getArgument(4));
+        when(inventory.reserve(anyList(), anyList())).thenReturn(List.of());
+        when(mongo.bulkOps(BulkOperations.BulkMode.UNORDERED, Booking.class)).thenReturn(bulk);
+
+        service = new BookingService();
+        ReflectionTestUtils.setField(service, "mongoTemplate", mongo);
+        ReflectionTestUtils.setField(service, "bookingRepository", bookings);
+        ReflectionTestUtils.setField(service, "busRepository", buses);
+        ReflectionTestUtils.setField(service, "routeRepository", routes);
+        ReflectionTestUtils.setField(service, "seatLayoutCache", layouts);
+        ReflectionTestUtils.setField(service, "seatInventory", inventory);
+        ReflectionTestUtils.setField(service, "seatHoldService", holds);
+        ReflectionTestUtils.setField(service, "agentStatsService", stats);
+        ReflectionTestUtils.setField(service, "instanceLease", lease);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void aDuplicateKeyMidBatchUndoesTheRowsThatWentIn() {
+        List<Booking> party = party("L1", "L2", "L3");
+        List<String> assignedIds = new ArrayList<>();
+        when(bulk.execute()).thenAnswer(call -> {
+            party.forEach(b -> assignedIds.add(b.getId()));
+            // Unordered: rows 0 and 2 are written, row 1 hits the unique seat index
+            throw new BulkOperationException("E11000", new MongoBulkWriteException(BulkWriteResult.unacknowledged(),
+                    List.of(new BulkWriteError(11000, "duplicate key", new BsonDocument(), 1)), null, new ServerAddress(), Set.of()));
+        });
+
+        BookingService.PartyResult result = service.bookParty(party, "hold-1", "alice");
+
+        assertFalse(result.ok());
+        assertNull(result.error());
+        assertEquals(List.of("L2"), result.conflictingSeats());
+        ArgumentCaptor<Iterable<String>> deleted = ArgumentCaptor.forClass(Iterable.class);
+        verify(bookings).deleteAllById(deleted.capture());
+        assertEquals(List.of(assignedIds.get(0), assignedIds.get(2)), deleted.getValue());
+        party.forEach(b -> assertNull(b.getId()));
+        // Someone else holds L2 in the database: the trip is reloaded, and the hold stays open
+        verify(inventory, atLeastOnce()).invalidateTrip("b1", DATE);
+        verify(holds, never()).complete(any(), anyList());
+        verify(stats, never()).bookingsAdded(anyList());
+    }
+
+    @Test
+    void seatsTakenInTheInventoryAreReportedWithoutWriting() {
+        when(inventory.reserve(anyList(), anyList())).thenReturn(List.of("L3"));
+        BookingService.PartyResult result = service.bookParty(party("L1", "L3"), null, null);
+        assertEquals(List.of("L3"), result.conflictingSeats());
+        verify(mongo, never()).bulkOps(any(BulkOperations.BulkMode.class), eq(Booking.class));
+    }
+
+    @Test
+    void aFullyInsertedPartyCompletesTheHold() {
+        List<Booking> party = party("l1", "L2");
+        List<Booking> heldLegs = List.of(party.get(0));
+        when(holds.matchingLegs("hold-1", "alice", party)).thenReturn(heldLegs);
+
+        BookingService.PartyResult result = service.bookParty(party, "hold-1", "alice");
+
+        assertTrue(result.ok());
+        assertEquals(party, result.booked());
+        // Seat and stops are spelled as the layout and route do; fares come from the layout
+        assertEquals("L1", party.get(0).getSeatNumber());
+        assertEquals("Kurnool", party.get(0).getPassengerTo());
+        assertEquals(500.0, party.get(0).getFare());
+        party.forEach(b -> assertNotNull(b.getId()));
+        InOrder order = inOrder(inventory, bulk, holds, stats);
+        order.verify(inventory).reserve(party, heldLegs);
+        order.verify(bulk).execute();
+        order.verify(holds).complete("hold-1", heldLegs);
+        order.verify(stats).bookingsAdded(party);
+        verify(bookings, never()).deleteAllById(any());
+    }
+
+    private static List<Booking> party(String... seats) {
+        List<Booking> party = new ArrayList<>();
+        for (String seat : seats) {
+            Booking booking = new Booking();
+            booking.setBusId("b1");
+            booking.setTravelDate(DATE);
+            booking.setSeatNumber(seat);
+            booking.setPassengerFrom("hyderabad");
+            booking.setPassengerTo(" KURNOOL ");
+            booking.setFare(1);
+            party.add(booking);
+        }
+        return party;
+    }
+
+    private static SeatLayout layout(String... numbers) {
+        SeatLayout layout = new SeatLayout();
+        layout.setBusId("b1");
+        List<SeatLayout.Seat> seats = new ArrayList<>();
+        for (String number : numbers) {
+            SeatLayout.Seat seat = new SeatLayout.Seat();
+            seat.setNumber(number);
+            seat.setPrice(500);
+            seats.add(seat);
+        }
+        layout.setSeats(seats);
+        return layout;
+    }
+}
@@ -0,0 +1,95 @@
+package com.OnlineBusBooking.OnlineBus.service;
+
+import com.OnlineBusBooking.OnlineBus.model.SeatLayout;
+import com.OnlineBusBooking.OnlineBus.repository.SeatLayoutRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class BusFareServiceTest {
+
+    private static final List<String> PATH = List.of("hyderabad", "kurnool", "anantapur", "bangalore");
+
+    private final SeatLayoutRepository layouts = mock(SeatLayoutRepository.class);
+    private BusFareService service;
+
+    @BeforeEach
+    void setUp() {
+        when(layouts.findAll()).thenReturn(List.of(
+                layout("b1", seat("L1", "Seater", 600), seat("L2", "seater", 500), seat("U1", "Sleeper", 900),
+                        seat("U2", "sleeper", 1200), seat("X1", null, 700)),
+                layout("b2")));
+        service = new BusFareService();
+        ReflectionTestUtils.setField(service, "seatLayoutRepository", layouts);
+        service.rebuild();
+    }
+
+    @Test
+    void summariesKeepMinAndMaxPerSeatType() {
+        BusFareService.FareSummary summary = service.get("b1").orElseThrow();
+        assertEquals(500, summary.minPrice());
+        assertEquals(1200, summary.maxPrice());
+        assertEquals(Map.of("seater", new BusFareService.PriceRange(500, 600), "sleeper", new BusFareService.PriceRange(900, 1200),
+                "unknown", new BusFareService.PriceRange(700, 700)), summary.bySeatType());
+        // A layout without seats has nothing to estimate from
+        assertTrue(service.get("b2").isEmpty());
+    }
+
+    @Test
+    void estimatesAreTheCheapestSeatsShareOfTheLeg() {
+        assertEquals(500.0, service.estimateFare("b1", "hyderabad", "bangalore", PATH));
+        assertEquals(333.33, service.estimateFare("b1", "kurnool", "bangalore", PATH));
+        assertEquals(166.67, service.estimateFare("b1", "hyderabad", "kurnool", PATH));
+        // Off-route, reversed or unknown: no estimate
+        assertEquals(0.0, service.estimateFare("b1", "bangalore", "kurnool", PATH));
+        assertEquals(0.0, service.estimateFare("b1", "chennai", "kurnool", PATH));
+        assertEquals(0.0, service.estimateFare("b2", "hyderabad", "kurnool", PATH));
+
+        // Never below the minimum fare
+        assertEquals(BusFareService.MIN_FARE, BusFareService.segmentFare(120, 1, 3));
+        assertEquals(0.0, BusFareService.segmentFare(500, 1, 0));
+    }
+
+    @Test
+    void layoutEditsAndPricingChangesReplaceTheSummary() {
+        service.update(layout("b1", seat("L1", "seater", 300), seat("U1", "sleeper", 800)));
+        assertEquals(300, service.get("b1").orElseThrow().minPrice());
+        assertEquals(100.0, service.estimateFare("b1", "hyderabad", "kurnool", PATH));
+
+        // Seats all removed: the bus drops out of estimates
+        service.update(layout("b1"));
+        assertTrue(service.get("b1").isEmpty());
+
+        when(layouts.findByBusId("b1")).thenReturn(Optional.of(layout("b1", seat("L1", "seater", 450))));
+        when(layouts.findByBusId("b3")).thenReturn(Optional.empty());
+        service.update(layout("b3", seat("L1", "seater", 450)));
+        service.refresh(List.of("b1", "b1", "b3"));
+        assertEquals(450, service.get("b1").orElseThrow().maxPrice());
+        assertTrue(service.get("b3").isEmpty());
+    }
+
+    private static SeatLayout layout(String busId, SeatLayout.Seat... seats) {
+        SeatLayout layout = new SeatLayout();
+        layout.setBusId(busId);
+        layout.setSeats(new ArrayList<>(List.of(seats)));
+        return layout;
+    }
+
+    private static SeatLayout.Seat seat(String number, String type, int price) {
+        SeatLayout.Seat seat = new SeatLayout.Seat();
+        seat.setNumber(number);
+        seat.setType(type);
+        seat.setPrice(price);
+        return seat;
+    }
+}
@@ -0,0 +1,132 @@
+package com.OnlineBusBooking.OnlineBus.service;
+
+import com.OnlineBusBooking.OnlineBus.model.Bus;
+import com.OnlineBusBooking.OnlineBus.model.Route;
+import com.OnlineBusBooking.OnlineBus.model.TripSchedule;
+import com.OnlineBusBooking.OnlineBus.repository.BusRepository;
+import com.OnlineBusBooking.OnlineBus.repository.SeatLayoutRepository;
+import com.OnlineBusBooking.OnlineBus.repository.TripScheduleRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyIterable;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Shared benchmark for the search engine behind both /user/api/search-buses and /buses/api/search.
+ * Repositories are mocked, so the numbers cover index lookup, joining, fares and caching only.
+ * The timing run is tagged "benchmark" and only runs with -Pbenchmark.
+ */
+class BusSearchServiceBenchmarkTest {
+
+    private static final LocalDate DATE = LocalDate.of(2026, 1, 10);
+    private static final int MATCHING_ROUTES = 10;
+
+    @Test
+    @Tag("benchmark")
+    @SuppressWarnings("unchecked")
+    void searchLatencyColdAndCached() {
+        for (int size : new int[]{100, 10_000, 100_000}) {
+            RouteStopIndex index = new RouteStopIndex();
+            for (int i = 0; i < size; i++) {
+                Route route = new Route();
+                route.setId("route-" + i);
+                route.setBusId("bus-" + i);
+                route.setFrom(i < MATCHING_ROUTES ? "Origin" : "city-" + (i % 5000));
+                route.setStops(List.of("mid-" + (i % 700)));
+                route.setTo(i < MATCHING_ROUTES ? "Destination" : "city-" + ((i + 1) % 5000));
+                index.index(route);
+            }
+
+            TripScheduleRepository schedules = mock(TripScheduleRepository.class);
+            when(schedules.findByRouteIdInAndDate(any(), any())).thenAnswer(inv -> {
+                List<TripSchedule> out = new ArrayList<>();
+                for (String routeId : (Collection<String>) inv.getArgument(0)) {
+                    TripSchedule s = new TripSchedule();
+                    s.setId("trip-" + routeId);
+                    s.setRouteId(routeId);
+                    s.setBusId("bus-" + routeId.substring(6));
+                    s.setDate(DATE);
+                    s.setDepartureTime("08:00");
+                    s.setArrivalTime("14:00");
+                    out.add(s);
+                }
+                return out;
+            });
+            BusRepository buses = mock(BusRepository.class);
+            when(buses.findAllById(anyIterable())).thenAnswer(inv -> {
+                List<Bus> out = new ArrayList<>();
+                for (String id : (Iterable<String>) inv.getArgument(0)) {
+                    Bus bus = new Bus();
+                    bus.setId(id);
+                    bus.setBusName("Bus " + id);
+                    out.add(bus);
+                }
+                return out;
+            });
+
+            BusSearchService service = service(index, schedules, buses);
+            SearchResultCache cache = (SearchResultCache) ReflectionTestUtils.getField(service, "searchResultCache");
+
+            assertEquals(MATCHING_ROUTES, service.search("origin", "destination", DATE).results().size());
+            // However many routes are indexed, a cold search reads only the matching ones: one schedule and one bus query
+            verify(schedules, times(1)).findByRouteIdInAndDate(any(), any());
+            verify(buses, times(1)).findAllById(anyIterable());
+
+            int queries = 5_000;
+            long start = System.nanoTime();
+            for (int i = 0; i < queries; i++) {
+                cache.invalidateAll();
+                service.search("origin", "destination", DATE);
+            }
+            long coldNs = (System.nanoTime() - start) / queries;
+
+            start = System.nanoTime();
+            for (int i = 0; i < queries; i++) service.search("origin", "destination", DATE);
+            long cachedNs = (System.nanoTime() - start) / queries;
+            // Cached searches never reach the repositories
+            verify(schedules, times(queries + 1)).findByRouteIdInAndDate(any(), any());
+            assertTrue(cachedNs < coldNs, "cached " + cachedNs + " ns vs cold " + coldNs + " ns");
+
+            System.out.printf("BusSearchService: %,7d routes -> cold %,7d ns, cached %,5d ns%n", size, coldNs, cachedNs);
+        }
+    }
+
+    private static BusSearchService service(RouteStopIndex index, TripScheduleRepository schedules, BusRepository buses) {
+        SearchResultCache cache = new SearchResultCache();
+        ReflectionTestUtils.setField(cache, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(cache, "maxSize", 1000L);
+        ReflectionTestUtils.setField(cache, "ttlSeconds", 300L);
+        cache.init();
+
+        BusFareService fares = new BusFareService();
+        ReflectionTestUtils.setField(fares, "seatLayoutRepository", mock(SeatLayoutRepository.class));
+
+        BusSearchService service = new BusSearchService();
+        ReflectionTestUtils.setField(service, "routeIndex", index);
+        ReflectionTestUtils.setField(service, "tripScheduleRepository", schedules);
+        ReflectionTestUtils.setField(service, "busRepository", buses);
+        ReflectionTestUtils.setField(service, "busFareService", fares);
+        ReflectionTestUtils.setField(service, "searchResultCache", cache);
+        ConnectionSearchService connections = new ConnectionSearchService();
+        ReflectionTestUtils.setField(connections, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(connections, "maxDates", 60L);
+        ReflectionTestUtils.setField(connections, "ttlMinutes", 30L);
+        connections.init();
+        ReflectionTestUtils.setField(service, "connectionSearchService", connections);
+        return service;
+    }
+}
@@ -0,0 +1,143 @@
+package com.OnlineBusBooking.OnlineBus.service;
+
+import com.OnlineBusBooking.OnlineBus.model.Booking;
+import com.OnlineBusBooking.OnlineBus.model.PaymentRecord;
+import com.OnlineBusBooking.OnlineBus.repository.BusRepository;
+import com.OnlineBusBooking.OnlineBus.repository.PaymentRepository;
+import com.OnlineBusBooking.OnlineBus.repository.TripScheduleRepository;
+import com.OnlineBusBooking.OnlineBus.service.CheckoutService.Checkout;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationResults;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class CheckoutServiceTest {
+
+    private final MongoTemplate mongo = mock(MongoTemplate.class);
+    private final IndexOperations paymentIndexes = mock(IndexOperations.class);
+    private final PaymentRepository payments = mock(PaymentRepository.class);
+    private final RazorpayService razorpay = mock(RazorpayService.class);
+    private final BookingService bookingService = mock(BookingService.class);
+    // Status of each record at the moment it was inserted or saved
+    private final List<String> paymentStatuses = new ArrayList<>();
+    private CheckoutService service;
+
+    @BeforeEach
+    void setUp() {
+        when(mongo.indexOps(PaymentRecord.class)).thenReturn(paymentIndexes);
+        when(razorpay.verifyPayment("order_1", "pay_1", "sig")).thenReturn(true);
+        when(razorpay.orderAmount("order_1")).thenReturn(100_000L);
+        when(bookingService.quote(anyList())).thenReturn(new BookingService.QuoteResult(1000.0, null));
+        when(payments.insert(any(PaymentRecord.class))).thenAnswer(call -> recordStatus(call.getArgument(0)));
+        when(payments.save(any(PaymentRecord.class))).thenAnswer(call -> recordStatus(call.getArgument(0)));
+
+        service = new CheckoutService();
+        ReflectionTestUtils.setField(service, "mongoTemplate", mongo);
+        ReflectionTestUtils.setField(service, "paymentRepository", payments);
+        ReflectionTestUtils.setField(service, "razorpayService", razorpay);
+        ReflectionTestUtils.setField(service, "bookingService", bookingService);
+        // No bus on file, so no ticket email is attempted
+        ReflectionTestUtils.setField(service, "busRepository", mock(BusRepository.class));
+        ReflectionTestUtils.setField(service, "tripScheduleRepository", mock(TripScheduleRepository.class));
+    }
+
+    @Test
+    void aPaymentAlreadyRecordedIsNotUsedAgain() {
+        when(payments.existsByPaymentId("pay_1")).thenReturn(true);
+        assertEquals("❌ This payment has already been used.", service.checkout(checkout(), "alice").error());
+
+        // The same replay racing a first use loses on the unique index instead
+        when(payments.existsByPaymentId("pay_1")).thenReturn(false);
+        when(payments.insert(any(PaymentRecord.class))).thenThrow(new DuplicateKeyException("E11000"));
+        assertEquals("❌ This payment has already been used.", service.checkout(checkout(), "alice").error());
+        verify(bookingService, never()).bookParty(anyList(), any(), any());
+    }
+
+    @Test
+    void anOrderForAnotherAmountIsRejected() {
+        when(razorpay.orderAmount("order_1")).thenReturn(1_000L);
+        CheckoutService.CheckoutResult result = service.checkout(checkout(), "alice");
+        assertEquals("❌ Paid amount does not match the fare.", result.error());
+        verify(payments, never()).insert(any(PaymentRecord.class));
+        verify(bookingService, never()).bookParty(anyList(), any(), any());
+    }
+
+    @Test
+    void thePaymentIsRecordedPendingThenMarkedByTheBookingOutcome() {
+        Checkout request = checkout();
+        when(bookingService.bookParty(request.passengers(), "hold-1", "alice"))
+                .thenReturn(new BookingService.PartyResult(request.passengers(), List.of(), null));
+        CheckoutService.CheckoutResult result = service.checkout(request, "alice");
+        assertNull(result.error());
+        assertEquals(1000.0, result.totalFare());
+        assertFalse(result.emailed());
+        assertEquals(List.of("PENDING", "SUCCESS"), paymentStatuses);
+        assertEquals("pay_1", request.passengers().get(0).getRazorpayPaymentId());
+
+        // Paid but the seats went elsewhere: kept as UNBOOKED for a refund
+        paymentStatuses.clear();
+        when(bookingService.bookParty(request.passengers(), "hold-1", "alice"))
+                .thenReturn(new BookingService.PartyResult(List.of(), List.of("L1"), null));
+        result = service.checkout(request, "alice");
+        assertEquals(List.of("L1"), result.party().conflictingSeats());
+        assertEquals(List.of("PENDING", "UNBOOKED"), paymentStatuses);
+    }
+
+    @Test
+    void paymentIdIndexWaitsUntilNoPaymentIsStoredTwice() {
+        duplicatePaymentIds("pay_1", "pay_2");
+        assertEquals(List.of("pay_1", "pay_2"), service.ensurePaymentIdIndex());
+        verify(paymentIndexes, never()).ensureIndex(any());
+
+        duplicatePaymentIds();
+        assertTrue(service.ensurePaymentIdIndex().isEmpty());
+        ArgumentCaptor<Index> index = ArgumentCaptor.forClass(Index.class);
+        verify(paymentIndexes).ensureIndex(index.capture());
+        Document options = index.getValue().getIndexOptions();
+        assertEquals(new Document("paymentId", 1), index.getValue().getIndexKeys());
+        assertEquals(Boolean.TRUE, options.get("unique"));
+        assertEquals(Boolean.TRUE, options.get("sparse"));
+    }
+
+    private PaymentRecord recordStatus(PaymentRecord record) {
+        paymentStatuses.add(record.getStatus());
+        assertEquals(100_000, record.getAmount());
+        return record;
+    }
+
+    private static Checkout checkout() {
+        Booking passenger = new Booking();
+        passenger.setBusId("b1");
+        passenger.setSeatNumber("L1");
+        return new Checkout("alice@example.com", "hold-1", "order_1", "pay_1", "sig", List.of(passenger));
+    }
+
+    private void duplicatePaymentIds(String... ids) {
+        List<Document> rows = Arrays.stream(ids).map(id -> new Document("_id", id).append("count", 2)).toList();
+        when(mongo.aggregate(any(Aggregation.class), eq(PaymentRecord.class), eq(Document.class)))
+                .thenReturn(new AggregationResults<>(rows, new Document()));
+    }
+}
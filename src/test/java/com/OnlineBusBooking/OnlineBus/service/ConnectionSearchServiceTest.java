@@ -0,0 +1,114 @@
+package com.OnlineBusBooking.OnlineBus.service;
+
+import com.OnlineBusBooking.OnlineBus.model.Route;
+import com.OnlineBusBooking.OnlineBus.model.TripSchedule;
+import com.OnlineBusBooking.OnlineBus.repository.BusRepository;
+import com.OnlineBusBooking.OnlineBus.repository.TripScheduleRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ConnectionSearchServiceTest {
+
+    private static final LocalDate DATE = LocalDate.of(2026, 1, 10);
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void findsDirectAndOneTransferItineraries() {
+        RouteStopIndex index = new RouteStopIndex();
+        index.index(route("r1", "Hyderabad", List.of("Kurnool"), "Bangalore"));
+        index.index(route("r2", "Kurnool", List.of(), "Chennai"));
+        index.index(route("r3", "Hyderabad", List.of("Vijayawada"), "Chennai"));
+
+        TripScheduleRepository schedules = mock(TripScheduleRepository.class);
+        when(schedules.findByDate(DATE)).thenReturn(List.of(
+                schedule("t1", "b1", "r1", "06:00", "14:00"),   // Kurnool at 10:00
+                schedule("t2", "b2", "r2", "10:10", "15:00"),   // too tight with a 15 min buffer
+                schedule("t3", "b2", "r2", "10:30", "16:00"),
+                schedule("t4", "b3", "r3", "05:00", "19:00")));
+        BusRepository buses = mock(BusRepository.class);
+        when(buses.findAllById(any())).thenReturn(List.of());
+
+        ConnectionSearchService service = service(index, schedules, buses, 60);
+
+        Map<String, Object> result = service.search("Hyderabad", "Chennai", DATE, LocalTime.MIDNIGHT, 2, 15);
+        List<Map<String, Object>> itineraries = (List<Map<String, Object>>) result.get("itineraries");
+
+        assertEquals(2, itineraries.size());
+        assertEquals(0, itineraries.get(0).get("transfers"));
+        assertEquals("19:00", itineraries.get(0).get("arrivalTime"));
+        assertEquals(1, itineraries.get(1).get("transfers"));
+        assertEquals("16:00", itineraries.get(1).get("arrivalTime"));
+        List<Map<String, Object>> legs = (List<Map<String, Object>>) itineraries.get(1).get("legs");
+        assertEquals("kurnool", legs.get(0).get("to"));
+        assertEquals("10:30", legs.get(1).get("departureTime"));
+    }
+
+    @Test
+    void timetablesAreBoundedAndRebuiltAfterInvalidation() {
+        TripScheduleRepository schedules = mock(TripScheduleRepository.class);
+        when(schedules.findByDate(any())).thenReturn(List.of());
+        ConnectionSearchService service = service(new RouteStopIndex(), schedules, mock(BusRepository.class), 2);
+
+        for (int day = 0; day < 10; day++) service.search("a", "b", DATE.plusDays(day), LocalTime.MIDNIGHT, 1, 0);
+        Cache<?, ?> timetables = (Cache<?, ?>) ReflectionTestUtils.getField(service, "timetables");
+        timetables.cleanUp();
+        assertTrue(timetables.estimatedSize() <= 2);
+
+        // Within the bound a date is built once until it is invalidated
+        service = service(new RouteStopIndex(), schedules, mock(BusRepository.class), 60);
+        service.search("a", "b", DATE, LocalTime.MIDNIGHT, 1, 0);
+        service.search("a", "b", DATE, LocalTime.MIDNIGHT, 1, 0);
+        service.invalidate(DATE);
+        service.search("a", "b", DATE, LocalTime.MIDNIGHT, 1, 0);
+        verify(schedules, times(3)).findByDate(DATE); // once in the loop above, twice here
+    }
+
+    private static ConnectionSearchService service(RouteStopIndex index, TripScheduleRepository schedules, BusRepository buses, long maxDates) {
+        ConnectionSearchService service = new ConnectionSearchService();
+        ReflectionTestUtils.setField(service, "tripScheduleRepository", schedules);
+        ReflectionTestUtils.setField(service, "busRepository", buses);
+        ReflectionTestUtils.setField(service, "routeStopIndex", index);
+        ReflectionTestUtils.setField(service, "busFareService", new BusFareService());
+        ReflectionTestUtils.setField(service, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(service, "budgetMillis", 50L);
+        ReflectionTestUtils.setField(service, "maxDates", maxDates);
+        ReflectionTestUtils.setField(service, "ttlMinutes", 30L);
+        service.init();
+        return service;
+    }
+
+    private static Route route(String id, String from, List<String> stops, String to) {
+        Route route = new Route();
+        route.setId(id);
+        route.setFrom(from);
+        route.setStops(stops);
+        route.setTo(to);
+        return route;
+    }
+
+    private static TripSchedule schedule(String id, String busId, String routeId, String dep, String arr) {
+        TripSchedule schedule = new TripSchedule();
+        schedule.setId(id);
+        schedule.setBusId(busId);
+        schedule.setRouteId(routeId);
+        schedule.setDate(DATE);
+        schedule.setDepartureTime(dep);
+        schedule.setArrivalTime(arr);
+        return schedule;
+    }
+}
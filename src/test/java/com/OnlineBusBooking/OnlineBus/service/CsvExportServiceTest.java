@@ -0,0 +1,115 @@
+package com.OnlineBusBooking.OnlineBus.service;
+
+import com.OnlineBusBooking.OnlineBus.model.Booking;
+import com.OnlineBusBooking.OnlineBus.model.Bus;
+import com.OnlineBusBooking.OnlineBus.model.PaymentRecord;
+import com.OnlineBusBooking.OnlineBus.model.TripSchedule;
+import com.OnlineBusBooking.OnlineBus.repository.BusRepository;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class CsvExportServiceTest {
+
+    private static final LocalDate FROM = LocalDate.of(2026, 1, 1);
+    private static final LocalDate TO = LocalDate.of(2026, 1, 31);
+
+    private final MongoTemplate mongo = mock(MongoTemplate.class);
+    private final BusRepository buses = mock(BusRepository.class);
+    private CsvExportService service;
+
+    @BeforeEach
+    void setUp() {
+        when(buses.findAllById(List.of("b1", "b2"))).thenReturn(List.of(bus("b1", "Night Rider"), bus("b2", "Day Liner")));
+        service = new CsvExportService();
+        ReflectionTestUtils.setField(service, "mongoTemplate", mongo);
+        ReflectionTestUtils.setField(service, "busRepository", buses);
+        ReflectionTestUtils.setField(service, "cursorBatch", 500);
+        ReflectionTestUtils.setField(service, "flushRows", 1000);
+    }
+
+    @Test
+    void bookingsAreScopedToTheBusesAndTravelDatesAndStreamedInIdOrder() throws Exception {
+        when(mongo.stream(any(Query.class), eq(Booking.class))).thenReturn(Stream.of(booking("k1", "b2", "=HYPERLINK(\"x\")")));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        service.bookings(List.of("b1", "b2"), FROM, TO, out);
+
+        Query query = streamed(Booking.class);
+        Document filter = query.getQueryObject();
+        assertEquals(List.of("b1", "b2"), filter.get("busId", Document.class).get("$in"));
+        assertEquals(new Document("$gte", FROM).append("$lte", TO), filter.get("travelDate"));
+        assertEquals(new Document("_id", 1), query.getSortObject());
+        assertEquals(500, query.getMeta().getCursorBatchSize());
+
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\r\n");
+        assertEquals(2, lines.length);
+        assertEquals("k1,b2,Day Liner,2026-01-10,L1,,,,450.0,CONFIRMED,\"'=HYPERLINK(\"\"x\"\")\",0,,,,", lines[1]);
+    }
+
+    @Test
+    void openEndedRangesOnlyFilterWhatIsGiven() throws Exception {
+        when(mongo.stream(any(Query.class), eq(TripSchedule.class))).thenReturn(Stream.empty());
+        when(buses.findAll()).thenReturn(List.of());
+        service.schedules(null, FROM, null, new ByteArrayOutputStream());
+        assertEquals(new Document("date", new Document("$gte", FROM)), streamed(TripSchedule.class).getQueryObject());
+
+        when(mongo.stream(any(Query.class), eq(TripSchedule.class))).thenReturn(Stream.empty());
+        service.schedules(List.of("b1", "b2"), null, null, new ByteArrayOutputStream());
+        assertEquals(new Document("busId", new Document("$in", List.of("b1", "b2"))), streamed(TripSchedule.class).getQueryObject());
+    }
+
+    @Test
+    void paymentsCoverWholeDaysOfTheirTimestamp() throws Exception {
+        when(mongo.stream(any(Query.class), eq(PaymentRecord.class))).thenReturn(Stream.empty());
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        service.payments(FROM, TO, out);
+
+        // to is inclusive: everything before midnight at the start of the next day
+        assertEquals(new Document("timestamp", new Document("$gte", FROM.atStartOfDay()).append("$lt", TO.plusDays(1).atStartOfDay())),
+                streamed(PaymentRecord.class).getQueryObject());
+        assertEquals("paymentRecordId,orderId,paymentId,receipt,amount,status,timestamp\r\n", out.toString(StandardCharsets.UTF_8));
+    }
+
+    private <T> Query streamed(Class<T> type) {
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        verify(mongo, atLeastOnce()).stream(query.capture(), eq(type));
+        return query.getValue();
+    }
+
+    private static Bus bus(String id, String name) {
+        Bus bus = new Bus();
+        bus.setId(id);
+        bus.setBusName(name);
+        return bus;
+    }
+
+    private static Booking booking(String id, String busId, String passengerName) {
+        Booking booking = new Booking();
+        booking.setId(id);
+        booking.setBusId(busId);
+        booking.setTravelDate(LocalDate.of(2026, 1, 10));
+        booking.setSeatNumber("L1");
+        booking.setFare(450);
+        booking.setStatus("CONFIRMED");
+        booking.setPassengerName(passengerName);
+        return booking;
+    }
+}
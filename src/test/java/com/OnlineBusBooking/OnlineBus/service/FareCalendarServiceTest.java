@@ -0,0 +1,103 @@
+package com.OnlineBusBooking.OnlineBus.service;
+
+import com.OnlineBusBooking.OnlineBus.model.Route;
+import com.OnlineBusBooking.OnlineBus.model.TripSchedule;
+import com.OnlineBusBooking.OnlineBus.repository.TripScheduleRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class FareCalendarServiceTest {
+
+    private static final LocalDate TODAY = LocalDate.now();
+
+    private final TripScheduleRepository schedules = mock(TripScheduleRepository.class);
+    private FareCalendarService service;
+
+    @BeforeEach
+    void setUp() {
+        RouteStopIndex index = new RouteStopIndex();
+        index.index(route("r1", "b1", "Hyderabad", List.of("Kurnool"), "Bangalore"));
+        index.index(route("r2", "b2", "Hyderabad", List.of(), "Kurnool"));
+        BusFareService fares = mock(BusFareService.class);
+        when(fares.estimateFare(eq("b1"), eq("hyderabad"), eq("kurnool"), any())).thenReturn(450.0);
+        when(fares.estimateFare(eq("b2"), eq("hyderabad"), eq("kurnool"), any())).thenReturn(600.0);
+        when(fares.estimateFare(eq("b3"), eq("hyderabad"), eq("kurnool"), any())).thenReturn(0.0);
+
+        when(schedules.findByDateGreaterThanEqual(TODAY)).thenReturn(List.of(
+                schedule("s1", "r1", "b1", TODAY), schedule("s2", "r2", "b2", TODAY), schedule("s3", "r2", "b2", TODAY.plusDays(2))));
+        service = new FareCalendarService();
+        ReflectionTestUtils.setField(service, "tripScheduleRepository", schedules);
+        ReflectionTestUtils.setField(service, "routeIndex", index);
+        ReflectionTestUtils.setField(service, "busFareService", fares);
+        service.rebuild();
+    }
+
+    @Test
+    void eachDayShowsItsCheapestTripAcrossMatchingRoutes() {
+        service.add(schedule("s4", "r1", "b3", TODAY.plusDays(2))); // unpriced bus: counted, never the cheapest
+        assertEquals(List.of(day(TODAY, 450.0, 2), day(TODAY.plusDays(1), null, 0), day(TODAY.plusDays(2), 600.0, 2)),
+                service.calendar(" HYDERABAD ", "kurnool", TODAY, TODAY.plusDays(2)));
+
+        service.remove(schedule("s1", "r1", "b1", TODAY));
+        service.remove(schedule("missing", "r9", "b1", TODAY));
+        assertEquals(List.of(day(TODAY, 600.0, 1)), service.calendar("Hyderabad", "Kurnool", TODAY, TODAY));
+        // Days outside the range are not walked, and an unmatched pair shows empty days
+        assertEquals(List.of(day(TODAY.plusDays(1), null, 0)), service.calendar("Hyderabad", "Kurnool", TODAY.plusDays(1), TODAY.plusDays(1)));
+        assertEquals(List.of(day(TODAY, null, 0)), service.calendar("Kurnool", "Hyderabad", TODAY, TODAY));
+    }
+
+    @Test
+    void pastDaysAreNeverAddedAndAreDroppedOnceTheyGoBy() {
+        service.add(schedule("old", "r2", "b2", TODAY.minusDays(1)));
+        assertEquals(List.of(day(TODAY.minusDays(1), null, 0)), service.calendar("Hyderabad", "Kurnool", TODAY.minusDays(1), TODAY.minusDays(1)));
+        assertEquals(3, service.dayCount());
+
+        // The first query of a later day drops everything before it, once
+        service.pruneBefore(TODAY.plusDays(1));
+        assertEquals(1, service.dayCount());
+        service.add(schedule("s5", "r1", "b1", TODAY.plusDays(1)));
+        service.pruneBefore(TODAY.plusDays(1));
+        assertEquals(2, service.dayCount());
+        service.pruneBefore(TODAY.plusDays(3));
+        assertEquals(0, service.dayCount());
+    }
+
+    private static Map<String, Object> day(LocalDate date, Double cheapest, int trips) {
+        Map<String, Object> day = new HashMap<>();
+        day.put("date", date.toString());
+        day.put("cheapestFare", cheapest);
+        day.put("trips", trips);
+        return day;
+    }
+
+    private static Route route(String id, String busId, String from, List<String> stops, String to) {
+        Route route = new Route();
+        route.setId(id);
+        route.setBusId(busId);
+        route.setFrom(from);
+        route.setStops(stops);
+        route.setTo(to);
+        return route;
+    }
+
+    private static TripSchedule schedule(String id, String routeId, String busId, LocalDate date) {
+        TripSchedule schedule = new TripSchedule();
+        schedule.setId(id);
+        schedule.setRouteId(routeId);
+        schedule.setBusId(busId);
+        schedule.setDate(date);
+        return schedule;
+    }
+}
@@ -0,0 +1,168 @@
+package com.OnlineBusBooking.OnlineBus.service;
+
+import com.OnlineBusBooking.OnlineBus.model.IdempotencyRecord;
+import com.OnlineBusBooking.OnlineBus.repository.IdempotencyRecordRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.security.Principal;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class IdempotencyStoreTest {
+
+    private static final Principal ALICE = () -> "alice@example.com";
+    private static final Principal BOB = () -> "bob@example.com";
+
+    @Test
+    void replaysStoredResponsesPerKey() {
+        IdempotencyStore store = store(mock(IdempotencyRecordRepository.class), false);
+
+        AtomicInteger runs = new AtomicInteger();
+        Map<String, Object> request = Map.of("seat", "L1");
+        ResponseEntity<String> first = store.execute("book", "k1", ALICE, request, () -> ResponseEntity.ok("booked " + runs.incrementAndGet()));
+        ResponseEntity<String> retry = store.execute("book", "k1", ALICE, Map.of("seat", "L1"), () -> ResponseEntity.ok("booked " + runs.incrementAndGet()));
+
+        assertEquals(1, runs.get());
+        assertEquals(first.getBody(), retry.getBody());
+        assertEquals("true", retry.getHeaders().getFirst("Idempotent-Replayed"));
+
+        // Same key, different request: rejected without running
+        assertEquals(422, store.execute("book", "k1", ALICE, Map.of("seat", "L2"), () -> ResponseEntity.ok("x")).getStatusCode().value());
+        // Keys are scoped per endpoint and per principal, absent keys always run, and server errors are not remembered
+        store.execute("checkout", "k1", ALICE, request, () -> ResponseEntity.ok("booked " + runs.incrementAndGet()));
+        store.execute("book", "k1", BOB, request, () -> ResponseEntity.ok("booked " + runs.incrementAndGet()));
+        store.execute("book", null, ALICE, request, () -> ResponseEntity.ok("booked " + runs.incrementAndGet()));
+        store.execute("book", "k2", ALICE, request, () -> ResponseEntity.internalServerError().body("down " + runs.incrementAndGet()));
+        store.execute("book", "k2", ALICE, request, () -> ResponseEntity.ok("booked " + runs.incrementAndGet()));
+        assertEquals(6, runs.get());
+    }
+
+    @Test
+    void fingerprintIgnoresMapOrder() {
+        IdempotencyStore store = store(mock(IdempotencyRecordRepository.class), false);
+        Map<String, Object> ordered = new LinkedHashMap<>();
+        ordered.put("busId", "b1");
+        ordered.put("seat", "L1");
+        store.execute("book", "k1", ALICE, ordered, () -> ResponseEntity.ok("booked"));
+
+        ResponseEntity<String> retry = store.execute("book", "k1", ALICE, new TreeMap<>(Map.of("seat", "L1", "busId", "b1")),
+                () -> ResponseEntity.ok("again"));
+        assertEquals("booked", retry.getBody());
+    }
+
+    @Test
+    void concurrentRetryWaitsForTheFirstResponse() throws Exception {
+        IdempotencyStore store = store(mock(IdempotencyRecordRepository.class), false);
+        AtomicInteger runs = new AtomicInteger();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch finish = new CountDownLatch(1);
+
+        CompletableFuture<ResponseEntity<String>> first = CompletableFuture.supplyAsync(() ->
+                store.execute("checkout", "k1", ALICE, Map.of("seat", "L1"), () -> {
+                    started.countDown();
+                    await(finish);
+                    return ResponseEntity.ok("booked " + runs.incrementAndGet());
+                }));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        CompletableFuture<ResponseEntity<String>> retry = CompletableFuture.supplyAsync(() ->
+                store.execute("checkout", "k1", ALICE, Map.of("seat", "L1"), () -> ResponseEntity.ok("booked " + runs.incrementAndGet())));
+
+        Thread.sleep(50);
+        assertFalse(retry.isDone());
+        finish.countDown();
+        assertEquals("booked 1", first.get(5, TimeUnit.SECONDS).getBody());
+        assertEquals("booked 1", retry.get(5, TimeUnit.SECONDS).getBody());
+        assertEquals("true", retry.get().getHeaders().getFirst("Idempotent-Replayed"));
+        assertEquals(1, runs.get());
+    }
+
+    @Test
+    void persistedKeysClaimByInsertAndReplayAcrossInstances() {
+        IdempotencyRecordRepository records = mock(IdempotencyRecordRepository.class);
+        AtomicInteger runs = new AtomicInteger();
+
+        // First use: claimed with an in-flight insert, then stored with the response
+        IdempotencyStore first = store(records, true);
+        first.execute("checkout", "k1", ALICE, Map.of("seat", "L1"), () -> ResponseEntity.ok("booked " + runs.incrementAndGet()));
+        ArgumentCaptor<IdempotencyRecord> claimed = ArgumentCaptor.forClass(IdempotencyRecord.class);
+        verify(records).insert(claimed.capture());
+        assertEquals(IdempotencyStore.IN_FLIGHT, claimed.getValue().getStatus());
+        ArgumentCaptor<IdempotencyRecord> saved = ArgumentCaptor.forClass(IdempotencyRecord.class);
+        verify(records).save(saved.capture());
+        assertEquals("checkout:alice@example.com:k1", saved.getValue().getId());
+        assertEquals(200, saved.getValue().getStatus());
+
+        // A second instance loses the insert to the first
+        when(records.insert(any(IdempotencyRecord.class))).thenThrow(new DuplicateKeyException("k1"));
+        IdempotencyStore other = store(records, true);
+
+        // Finished there: the stored response is replayed here without running
+        when(records.findById("checkout:alice@example.com:k1")).thenReturn(Optional.of(saved.getValue()));
+        ResponseEntity<String> replayed = other.execute("checkout", "k1", ALICE, Map.of("seat", "L1"), () -> ResponseEntity.ok("booked " + runs.incrementAndGet()));
+        assertEquals("booked 1", replayed.getBody());
+        assertEquals("true", replayed.getHeaders().getFirst("Idempotent-Replayed"));
+
+        // Still running there: 409, and the key is not cached here so a later retry sees the result
+        IdempotencyRecord inFlight = new IdempotencyRecord();
+        inFlight.setId("checkout:alice@example.com:k2");
+        inFlight.setFingerprint(saved.getValue().getFingerprint());
+        inFlight.setStatus(IdempotencyStore.IN_FLIGHT);
+        when(records.findById("checkout:alice@example.com:k2")).thenReturn(Optional.of(inFlight));
+        ResponseEntity<String> busy = other.execute("checkout", "k2", ALICE, Map.of("seat", "L1"), () -> ResponseEntity.ok("booked " + runs.incrementAndGet()));
+        assertEquals(409, busy.getStatusCode().value());
+        inFlight.setStatus(200);
+        inFlight.setBody("booked elsewhere");
+        assertEquals("booked elsewhere", other.execute("checkout", "k2", ALICE, Map.of("seat", "L1"), () -> ResponseEntity.ok("x")).getBody());
+        assertEquals(1, runs.get());
+    }
+
+    @Test
+    void persistedServerErrorsReleaseTheKey() {
+        IdempotencyRecordRepository records = mock(IdempotencyRecordRepository.class);
+        IdempotencyStore store = store(records, true);
+        store.execute("checkout", "k1", ALICE, Map.of("seat", "L1"), () -> ResponseEntity.internalServerError().body("down"));
+        verify(records).deleteById("checkout:alice@example.com:k1");
+        verify(records, never()).save(any(IdempotencyRecord.class));
+    }
+
+    private static IdempotencyStore store(IdempotencyRecordRepository records, boolean persist) {
+        IdempotencyStore store = new IdempotencyStore();
+        ReflectionTestUtils.setField(store, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(store, "idempotencyRecordRepository", records);
+        ReflectionTestUtils.setField(store, "objectMapper", new ObjectMapper());
+        ReflectionTestUtils.setField(store, "maxSize", 100L);
+        ReflectionTestUtils.setField(store, "ttlMinutes", 60L);
+        ReflectionTestUtils.setField(store, "persist", persist);
+        store.init();
+        return store;
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.OnlineBusBooking.OnlineBus.service;
+
+import com.OnlineBusBooking.OnlineBus.model.Route;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RouteStopIndexBenchmarkTest {
+
+    private static final int MATCHING_ROUTES = 10;
+
+    // Per-query latency for growing networks; the matching set is fixed so latency must stay flat (run with -Pbenchmark)
+    @Test
+    @Tag("benchmark")
+    void searchLatencyIsFlatFrom100To100kRoutes() {
+        long smallest = -1;
+        for (int size : new int[]{100, 1_000, 10_000, 100_000}) {
+            RouteStopIndex index = buildNetwork(size);
+
+            for (int i = 0; i < 20_000; i++) index.findRoutes("origin", "destination");
+
+            int queries = 50_000;
+            long start = System.nanoTime();
+            int found = 0;
+            for (int i = 0; i < queries; i++) found += index.findRoutes("origin", "destination").size();
+            long nsPerQuery = (System.nanoTime() - start) / queries;
+
+            assertEquals(MATCHING_ROUTES * queries, found);
+            System.out.printf("RouteStopIndex: %,7d routes -> %,6d ns/query%n", size, nsPerQuery);
+            if (smallest < 0) smallest = nsPerQuery;
+            // 1000x the routes may cost cache misses, but nothing near linear growth
+            assertTrue(nsPerQuery <= Math.max(smallest * 10, smallest + 5_000),
+                    size + " routes: " + nsPerQuery + " ns vs " + smallest + " ns at 100 routes");
+        }
+    }
+
+    private static RouteStopIndex buildNetwork(int size) {
+        Random random = new Random(42);
+        int cities = Math.max(50, size / 4);
+        RouteStopIndex index = new RouteStopIndex();
+        for (int i = 0; i < size; i++) {
+            List<String> stops = new ArrayList<>();
+            for (int s = 0; s < 4; s++) stops.add("city-" + random.nextInt(cities));
+            String from = i < MATCHING_ROUTES ? "Origin" : "city-" + random.nextInt(cities);
+            String to = i < MATCHING_ROUTES ? "Destination" : "city-" + random.nextInt(cities);
+            index.index(route("route-" + i, from, stops, to));
+        }
+        return index;
+    }
+
+    private static Route route(String id, String from, List<String> stops, String to) {
+        Route route = new Route();
+        route.setId(id);
+        route.setFrom(from);
+        route.setStops(stops);
+        route.setTo(to);
+        return route;
+    }
+}
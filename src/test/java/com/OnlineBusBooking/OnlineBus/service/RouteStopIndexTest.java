@@ -0,0 +1,64 @@
+package com.OnlineBusBooking.OnlineBus.service;
+
+import com.OnlineBusBooking.OnlineBus.model.Route;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RouteStopIndexTest {
+
+    @Test
+    void findRoutesMatchesOnlyOrderedStops() {
+        RouteStopIndex index = new RouteStopIndex();
+        index.index(route("r1", "Hyderabad", List.of("Kurnool", "Anantapur"), "Bangalore"));
+        index.index(route("r2", "Bangalore", List.of("Kurnool"), "Hyderabad"));
+
+        assertEquals(List.of("r1"), index.findRoutes("hyderabad", "KURNOOL").stream().map(m -> m.route().getId()).toList());
+        assertEquals(List.of("r2"), index.findRoutes("Kurnool", "Hyderabad").stream().map(m -> m.route().getId()).toList());
+
+        index.remove("r1");
+        assertTrue(index.findRoutes("Hyderabad", "Kurnool").isEmpty());
+    }
+
+    @Test
+    void stopVariantsNormalizeToTheRouteSpelling() {
+        Route route = route("r1", "Hyderabad", List.of("Kurnool Bus Stand"), "Bangalore");
+        RouteStopIndex index = new RouteStopIndex();
+        index.index(route);
+
+        assertEquals(RouteStopIndex.normalize("Kurnool Bus Stand"), RouteStopIndex.normalize("  kurnool   BUS stand "));
+        assertEquals(List.of("r1"), index.findRoutes(" HYDERABAD ", "kurnool  bus stand").stream().map(m -> m.route().getId()).toList());
+        assertEquals("Kurnool Bus Stand", RouteStopIndex.canonicalStop(route, "kurnool\tbus  STAND "));
+        assertEquals("Elsewhere", RouteStopIndex.canonicalStop(route, " Elsewhere "));
+        assertNull(RouteStopIndex.canonicalStop(route, "  "));
+    }
+
+    @Test
+    void suggestStopsRanksPrefixesAndToleratesTypos() {
+        RouteStopIndex index = new RouteStopIndex();
+        index.index(route("r1", "Hyderabad", List.of("Kurnool"), "Bangalore"));
+        index.index(route("r2", "Hyderabad", List.of("Kurnool"), "Chennai"));
+        index.index(route("r3", "Hubli", List.of(), "Hosur"));
+
+        assertEquals(List.of("Hyderabad", "Hosur", "Hubli"), index.suggestStops("h", 10));
+        assertEquals(List.of("Hyderabad"), index.suggestStops("hyde", 10));
+        assertEquals(List.of("Hyderabad"), index.suggestStops("Hydrabad", 10));
+        assertEquals(List.of("Bangalore"), index.suggestStops("banglore", 10));
+
+        index.remove("r3");
+        assertEquals(List.of("Hyderabad"), index.suggestStops("h", 10));
+    }
+
+    private static Route route(String id, String from, List<String> stops, String to) {
+        Route route = new Route();
+        route.setId(id);
+        route.setFrom(from);
+        route.setStops(stops);
+        route.setTo(to);
+        return route;
+    }
+}
@@ -0,0 +1,174 @@
+package com.OnlineBusBooking.OnlineBus.service;
+
+import com.OnlineBusBooking.OnlineBus.model.Bus;
+import com.OnlineBusBooking.OnlineBus.model.Route;
+import com.OnlineBusBooking.OnlineBus.model.TripSchedule;
+import com.OnlineBusBooking.OnlineBus.repository.BusRepository;
+import com.OnlineBusBooking.OnlineBus.repository.SeatLayoutRepository;
+import com.OnlineBusBooking.OnlineBus.repository.TripScheduleRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyIterable;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class SearchResultCacheTest {
+
+    private static final LocalDate DATE = LocalDate.of(2026, 1, 10);
+
+    private SearchResultCache cache;
+
+    @BeforeEach
+    void setUp() {
+        cache = new SearchResultCache();
+        ReflectionTestUtils.setField(cache, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(cache, "maxSize", 1000L);
+        ReflectionTestUtils.setField(cache, "ttlSeconds", 300L);
+        cache.init();
+    }
+
+    @Test
+    void aLoadOverlappingAnInvalidationIsNotStored() {
+        // The bus is edited while the search is being built: the caller gets the result, the cache does not keep it
+        SearchResultCache.CachedSearch loaded = cache.getEntry("Origin", "Destination", DATE, () -> {
+            cache.invalidateBus("b1");
+            return entry("r1", "b1");
+        });
+        assertEquals(Set.of("b1"), loaded.busIds());
+        assertNull(cache.getIfPresent("origin", "destination", DATE));
+
+        long stale = cache.generation();
+        cache.invalidateRoute("r9", null);
+        cache.put("origin", "destination", DATE, entry("r1", "b1"), stale);
+        assertNull(cache.getIfPresent("origin", "destination", DATE));
+
+        cache.put(" ORIGIN ", "destination", DATE, entry("r1", "b1"), cache.generation());
+        assertNotNull(cache.getIfPresent("origin", "destination", DATE));
+    }
+
+    @Test
+    void aStreamedSearchOverlappingAnInvalidationIsNotCached() {
+        Route route = new Route();
+        route.setId("route-0");
+        route.setBusId("bus-0");
+        route.setFrom("Origin");
+        route.setStops(List.of());
+        route.setTo("Destination");
+        RouteStopIndex index = new RouteStopIndex();
+        index.index(route);
+        TripSchedule schedule = schedule("route-0", "bus-0", DATE);
+        schedule.setId("trip-0");
+        TripScheduleRepository schedules = mock(TripScheduleRepository.class);
+        when(schedules.findByRouteIdInAndDate(any(), any())).thenReturn(List.of(schedule));
+        Bus bus = new Bus();
+        bus.setId("bus-0");
+        BusRepository buses = mock(BusRepository.class);
+        when(buses.findAllById(anyIterable())).thenReturn(List.of(bus));
+        BusSearchService service = searchService(index, schedules, buses);
+
+        // The bus is edited while the streamed search is still joining: its result must not be cached
+        service.stream("origin", "destination", DATE, 1, batch -> cache.invalidateBus("bus-0"));
+        assertNull(cache.getIfPresent("origin", "destination", DATE));
+
+        service.stream("origin", "destination", DATE, 1, batch -> {});
+        List<Map<String, Object>> cached = cache.getIfPresent("origin", "destination", DATE);
+        assertEquals(1, cached.size());
+        assertThrows(UnsupportedOperationException.class, () -> cached.get(0).put("busName", "changed"));
+    }
+
+    @Test
+    void routeChangesDropSearchesThatUsedItOrThatItsNewPathServes() {
+        store("Hyderabad", "Kurnool", DATE, entry("r1", "b1"));
+        store("Kurnool", "Bangalore", DATE, entry("r2", "b2"));
+        store("Bangalore", "Kurnool", DATE, entry("r3", "b3"));
+        store("Chennai", "Madurai", DATE, entry("r4", "b4"));
+
+        cache.invalidateRoute("r1", null);
+        assertNull(cache.getIfPresent("hyderabad", "kurnool", DATE));
+        assertNotNull(cache.getIfPresent("kurnool", "bangalore", DATE));
+
+        // A new path through Kurnool → Bangalore can now serve that search, but not the reverse one
+        cache.invalidateRoute("r9", List.of("hyderabad", "kurnool", "bangalore"));
+        assertNull(cache.getIfPresent("kurnool", "bangalore", DATE));
+        assertNotNull(cache.getIfPresent("bangalore", "kurnool", DATE));
+        assertNotNull(cache.getIfPresent("chennai", "madurai", DATE));
+    }
+
+    @Test
+    void scheduleChangesOnlyDropThatDatesSearchesOverItsRouteOrBus() {
+        store("Hyderabad", "Kurnool", DATE, entry("r1", "b1"));
+        store("Hyderabad", "Kurnool", DATE.plusDays(1), entry("r1", "b1"));
+        store("Kurnool", "Bangalore", DATE, entry("r2", "b2"));
+        store("Chennai", "Madurai", DATE, entry("r4", "b4"));
+
+        cache.invalidateSchedule(null);
+        cache.invalidateSchedule(schedule("r1", "b-other", DATE));
+        assertNull(cache.getIfPresent("hyderabad", "kurnool", DATE));
+        assertNotNull(cache.getIfPresent("hyderabad", "kurnool", DATE.plusDays(1)));
+
+        // Matched by bus when the schedule has moved to another route
+        cache.invalidateSchedule(schedule("r-other", "b2", DATE));
+        assertNull(cache.getIfPresent("kurnool", "bangalore", DATE));
+        assertNotNull(cache.getIfPresent("chennai", "madurai", DATE));
+    }
+
+    @Test
+    void busChangesDropEverySearchThatShowsTheBus() {
+        store("Hyderabad", "Kurnool", DATE, new SearchResultCache.CachedSearch(List.of(), Set.of("r1"), Set.of("b1", "b2")));
+        store("Kurnool", "Bangalore", DATE.plusDays(3), entry("r2", "b2"));
+        store("Chennai", "Madurai", DATE, entry("r4", "b4"));
+
+        cache.invalidateBus("b2");
+        assertNull(cache.getIfPresent("hyderabad", "kurnool", DATE));
+        assertNull(cache.getIfPresent("kurnool", "bangalore", DATE.plusDays(3)));
+        assertNotNull(cache.getIfPresent("chennai", "madurai", DATE));
+    }
+
+    private void store(String from, String to, LocalDate date, SearchResultCache.CachedSearch entry) {
+        cache.put(from, to, date, entry, cache.generation());
+    }
+
+    private static SearchResultCache.CachedSearch entry(String routeId, String busId) {
+        return new SearchResultCache.CachedSearch(List.of(Map.of("busId", busId)), Set.of(routeId), Set.of(busId));
+    }
+
+    private static TripSchedule schedule(String routeId, String busId, LocalDate date) {
+        TripSchedule schedule = new TripSchedule();
+        schedule.setRouteId(routeId);
+        schedule.setBusId(busId);
+        schedule.setDate(date);
+        return schedule;
+    }
+
+    private BusSearchService searchService(RouteStopIndex index, TripScheduleRepository schedules, BusRepository buses) {
+        BusFareService fares = new BusFareService();
+        ReflectionTestUtils.setField(fares, "seatLayoutRepository", mock(SeatLayoutRepository.class));
+        ConnectionSearchService connections = new ConnectionSearchService();
+        ReflectionTestUtils.setField(connections, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(connections, "maxDates", 60L);
+        ReflectionTestUtils.setField(connections, "ttlMinutes", 30L);
+        connections.init();
+
+        BusSearchService service = new BusSearchService();
+        ReflectionTestUtils.setField(service, "routeIndex", index);
+        ReflectionTestUtils.setField(service, "tripScheduleRepository", schedules);
+        ReflectionTestUtils.setField(service, "busRepository", buses);
+        ReflectionTestUtils.setField(service, "busFareService", fares);
+        ReflectionTestUtils.setField(service, "searchResultCache", cache);
+        ReflectionTestUtils.setField(service, "connectionSearchService", connections);
+        return service;
+    }
+}
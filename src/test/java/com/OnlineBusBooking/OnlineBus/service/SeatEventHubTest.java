@@ -0,0 +1,114 @@
+package com.OnlineBusBooking.OnlineBus.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class SeatEventHubTest {
+
+    private static final LocalDate DATE = LocalDate.of(2026, 1, 10);
+
+    private final SeatInventory inventory = mock(SeatInventory.class);
+    private final SimpleMeterRegistry meters = new SimpleMeterRegistry();
+    private SeatEventHub hub;
+
+    @BeforeEach
+    void setUp() {
+        when(inventory.seatStates(any(), any(), any(), any(), any())).thenReturn(Map.of("L1", "booked"));
+        hub = new SeatEventHub();
+        ReflectionTestUtils.setField(hub, "seatInventory", inventory);
+        ReflectionTestUtils.setField(hub, "objectMapper", new ObjectMapper().registerModule(new JavaTimeModule()));
+        ReflectionTestUtils.setField(hub, "meterRegistry", meters);
+        ReflectionTestUtils.setField(hub, "bufferSize", 8);
+        ReflectionTestUtils.setField(hub, "senderThreads", 1);
+        ReflectionTestUtils.setField(hub, "timeoutMinutes", 30L);
+        ReflectionTestUtils.setField(hub, "heartbeatSeconds", 3600L);
+        hub.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        hub.shutdown();
+    }
+
+    @Test
+    void changesFanOutOncePerLegToEveryViewerOfTheTrip() throws Exception {
+        SseEmitter first = hub.subscribe("b1", DATE, "Hyderabad", "Kurnool");
+        SseEmitter second = hub.subscribe("b1", DATE, " HYDERABAD ", "kurnool");
+        SseEmitter otherLeg = hub.subscribe("b1", DATE, "Kurnool", "Bangalore");
+        SseEmitter otherTrip = hub.subscribe("b2", DATE, "Hyderabad", "Kurnool");
+        assertEquals(4, subscribers());
+
+        hub.seatsChanged("b1", DATE, Set.of("L1"));
+        drain();
+
+        // One lookup per searched leg, however many viewers share it
+        verify(inventory, times(1)).seatStates(eq("b1"), eq(DATE), eq("hyderabad"), eq("kurnool"), any());
+        verify(inventory, times(1)).seatStates(eq("b1"), eq(DATE), eq("kurnool"), eq("bangalore"), any());
+        assertEquals(1, events(first));
+        assertEquals(1, events(second));
+        assertEquals(1, events(otherLeg));
+        assertEquals(0, events(otherTrip));
+    }
+
+    @Test
+    void closedStreamsAreRemovedFromTheirChannel() throws Exception {
+        SseEmitter closedByContainer = hub.subscribe("b1", DATE, "Hyderabad", "Kurnool");
+        SseEmitter goneClient = hub.subscribe("b1", DATE, "Hyderabad", "Kurnool");
+        SseEmitter open = hub.subscribe("b1", DATE, "Kurnool", "Bangalore");
+
+        // The container completes one stream; the other fails on its next send
+        ((Runnable) ReflectionTestUtils.getField(closedByContainer, "completionCallback")).run();
+        assertEquals(2, subscribers());
+        goneClient.complete();
+        hub.seatsChanged("b1", DATE, Set.of("L1"));
+        drain();
+        assertEquals(1, subscribers());
+        assertEquals(1, events(open));
+
+        // The emptied leg is gone: the next change only looks up the leg still being watched
+        hub.seatsChanged("b1", DATE, Set.of("L1"));
+        drain();
+        verify(inventory, times(1)).seatStates(eq("b1"), eq(DATE), eq("hyderabad"), eq("kurnool"), any());
+        verify(inventory, times(2)).seatStates(eq("b1"), eq(DATE), eq("kurnool"), eq("bangalore"), any());
+        assertEquals(2, events(open));
+    }
+
+    private double subscribers() {
+        return meters.get("seat.events.subscribers").gauge().value();
+    }
+
+    // Waits for the single sender thread to deliver what is queued
+    private void drain() throws Exception {
+        ExecutorService senders = (ExecutorService) ReflectionTestUtils.getField(hub, "senders");
+        senders.submit(() -> {}).get(5, TimeUnit.SECONDS);
+    }
+
+    // Emitters outside a container keep what was sent until they are attached to a response
+    @SuppressWarnings("unchecked")
+    private static long events(SseEmitter emitter) {
+        Set<ResponseBodyEmitter.DataWithMediaType> sent =
+                (Set<ResponseBodyEmitter.DataWithMediaType>) ReflectionTestUtils.getField(emitter, "earlySendAttempts");
+        return sent.stream().filter(part -> String.valueOf(part.getData()).contains("event:seats")).count();
+    }
+}
@@ -0,0 +1,236 @@
+package com.OnlineBusBooking.OnlineBus.service;
+
+import com.OnlineBusBooking.OnlineBus.model.Booking;
+import com.OnlineBusBooking.OnlineBus.model.Route;
+import com.OnlineBusBooking.OnlineBus.model.SeatLayout;
+import com.OnlineBusBooking.OnlineBus.repository.BookingRepository;
+import com.OnlineBusBooking.OnlineBus.repository.RouteRepository;
+import com.OnlineBusBooking.OnlineBus.repository.SeatLayoutRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+class SeatInventoryTest {
+
+    private static final LocalDate DATE = LocalDate.of(2026, 1, 10);
+
+    @Test
+    void sellsOneSeatForNonOverlappingLegs() {
+        Route route = new Route();
+        route.setId("r1");
+        route.setBusId("b1");
+        route.setFrom("Hyderabad");
+        route.setStops(List.of("Kurnool", "Anantapur"));
+        route.setTo("Bangalore");
+
+        RouteRepository routes = mock(RouteRepository.class);
+        when(routes.findByBusId("b1")).thenReturn(List.of(route));
+        BookingRepository bookings = mock(BookingRepository.class);
+        when(bookings.findSeatLegsByBusIdAndTravelDate("b1", DATE))
+                .thenReturn(List.of(booking("L1", "Hyderabad", "Kurnool"), booking("L2", null, null)));
+
+        SeatInventory inventory = inventory(routes, bookings);
+
+        assertEquals(List.of("L2"), inventory.occupiedSeats("b1", DATE, "Kurnool", "Bangalore"));
+        assertEquals(2, inventory.occupiedSeats("b1", DATE, null, null).size());
+
+        // Kurnool → Bangalore fits after Hyderabad → Kurnool; the overlapping party is rejected whole
+        assertTrue(inventory.reserve(List.of(booking("L1", "Kurnool", "Bangalore"))).isEmpty());
+        assertEquals(List.of("L1"), inventory.reserve(List.of(
+                booking("L3", "Kurnool", "Anantapur"), booking("L1", "Anantapur", "Bangalore"))));
+        assertTrue(inventory.occupiedSeats("b1", DATE, "Kurnool", "Anantapur").contains("L1"));
+        assertFalse(inventory.occupiedSeats("b1", DATE, null, null).contains("L3"));
+
+        assertFalse(inventory.isValidLeg("b1", DATE, "Bangalore", "Kurnool"));
+        long version = inventory.version("b1", DATE);
+        assertEquals(version, inventory.occupancy("b1", DATE, "Kurnool", "Bangalore").version());
+        inventory.release(List.of(booking("L1", "Kurnool", "Bangalore")));
+        assertTrue(inventory.version("b1", DATE) > version);
+        assertEquals(List.of(), inventory.reserve(List.of(booking("L1", "Anantapur", "Bangalore"))));
+    }
+
+    @Test
+    void holdsBlockOtherClaimsAndConvertIntoBookings() {
+        Route route = new Route();
+        route.setBusId("b1");
+        route.setFrom("Hyderabad");
+        route.setStops(List.of("Kurnool"));
+        route.setTo("Bangalore");
+        RouteRepository routes = mock(RouteRepository.class);
+        when(routes.findByBusId("b1")).thenReturn(List.of(route));
+        BookingRepository bookings = mock(BookingRepository.class);
+        when(bookings.findSeatLegsByBusIdAndTravelDate("b1", DATE)).thenReturn(List.of());
+        SeatInventory inventory = inventory(routes, bookings);
+        SeatHoldService holds = (SeatHoldService) ReflectionTestUtils.getField(inventory, "seatHoldService");
+
+        SeatHoldService.HoldResult held = holds.hold(List.of(booking("L1", "Hyderabad", "Kurnool"), booking("L2", null, null)), "alice");
+        assertEquals(List.of("L1", "L2"), inventory.heldSeats("b1", DATE, null, null));
+        assertEquals(List.of(), inventory.occupiedSeats("b1", DATE, null, null));
+        assertEquals(List.of("L1"), holds.hold(List.of(booking("L1", null, null)), "bob").conflictingSeats());
+        assertEquals(List.of("L1"), inventory.reserve(List.of(booking("L1", "Hyderabad", "Kurnool"))));
+
+        // Only the owner can release the hold or book against it
+        String holdId = held.hold().id();
+        assertFalse(holds.release(holdId, "bob"));
+        List<Booking> party = List.of(booking("L1", "Hyderabad", "Kurnool"));
+        assertEquals(List.of(), holds.matchingLegs(holdId, "bob", party));
+
+        // A reload keeps active holds; the owner's claim converts the booked leg and the rest is released
+        inventory.invalidateAll();
+        assertEquals(List.of("L1", "L2"), inventory.heldSeats("b1", DATE, null, null));
+        List<Booking> legs = holds.matchingLegs(holdId, "alice", party);
+        assertEquals(1, legs.size());
+        assertTrue(inventory.reserve(party, legs).isEmpty());
+        holds.complete(holdId, legs);
+        assertEquals(List.of(), inventory.heldSeats("b1", DATE, null, null));
+        assertEquals(List.of("L1"), inventory.occupiedSeats("b1", DATE, null, null));
+        assertEquals(0, holds.size());
+    }
+
+    @Test
+    void invalidatingOneBusKeepsTheOtherBusesTrips() {
+        RouteRepository routes = mock(RouteRepository.class);
+        when(routes.findByBusId(any())).thenReturn(List.of());
+        BookingRepository bookings = mock(BookingRepository.class);
+        when(bookings.findSeatLegsByBusIdAndTravelDate(any(), any())).thenReturn(List.of());
+        SeatInventory inventory = inventory(routes, bookings);
+        for (String busId : List.of("b1", "b2", "b10")) {
+            inventory.occupiedSeats(busId, DATE, null, null);
+            inventory.occupiedSeats(busId, DATE.plusDays(1), null, null);
+        }
+
+        inventory.invalidateBus("b1");
+        inventory.invalidateBus(null);
+        assertEquals(4, inventory.size());
+    }
+
+    @Test
+    void aRestartedInventoryNeverReissuesAnEarlierETag() {
+        Route route = new Route();
+        route.setBusId("b1");
+        route.setFrom("Hyderabad");
+        route.setTo("Bangalore");
+        RouteRepository routes = mock(RouteRepository.class);
+        when(routes.findByBusId("b1")).thenReturn(List.of(route));
+        BookingRepository bookings = mock(BookingRepository.class);
+        when(bookings.findSeatLegsByBusIdAndTravelDate("b1", DATE)).thenReturn(List.of());
+
+        // Same trips and the same history: the counters line up, the tags must not
+        Set<String> issued = new HashSet<>();
+        long firstVersion = 0;
+        for (int restart = 0; restart < 3; restart++) {
+            SeatInventory inventory = inventory(routes, bookings);
+            TripSnapshotService snapshots = new TripSnapshotService();
+            ReflectionTestUtils.setField(snapshots, "seatInventory", inventory);
+            if (restart == 0) firstVersion = inventory.version("b1", DATE);
+            assertEquals(firstVersion, inventory.version("b1", DATE));
+            assertTrue(issued.add(snapshots.etag("b1", DATE)));
+            inventory.reserve(List.of(booking("L1", null, null)));
+            assertTrue(issued.add(snapshots.etag("b1", DATE)));
+        }
+    }
+
+    // Footprint and query cost of 10k cached trips (run with -Pbenchmark)
+    @Test
+    @Tag("benchmark")
+    void memoryPer10kActiveTrips() {
+        Route route = new Route();
+        route.setBusId("b1");
+        route.setFrom("Hyderabad");
+        route.setStops(List.of("Jadcherla", "Kurnool", "Dhone", "Anantapur", "Penukonda"));
+        route.setTo("Bangalore");
+        RouteRepository routes = mock(RouteRepository.class, withSettings().stubOnly());
+        when(routes.findByBusId(any())).thenReturn(List.of(route));
+        SeatLayout layout = new SeatLayout();
+        List<SeatLayout.Seat> seats = new ArrayList<>();
+        for (int i = 1; i <= 40; i++) {
+            SeatLayout.Seat seat = new SeatLayout.Seat();
+            seat.setNumber("S" + i);
+            seats.add(seat);
+        }
+        layout.setSeats(seats);
+        SeatLayoutRepository layouts = mock(SeatLayoutRepository.class, withSettings().stubOnly());
+        when(layouts.findByBusId(any())).thenReturn(Optional.of(layout));
+        BookingRepository bookings = mock(BookingRepository.class, withSettings().stubOnly());
+        when(bookings.findSeatLegsByBusIdAndTravelDate(any(), any()))
+                .thenReturn(List.of(booking("S1", "Hyderabad", "Kurnool"), booking("S7", null, null)));
+        SeatInventory inventory = inventory(routes, bookings, layouts);
+
+        int trips = 10_000;
+        Runtime runtime = Runtime.getRuntime();
+        System.gc();
+        long before = runtime.totalMemory() - runtime.freeMemory();
+        for (int i = 0; i < trips; i++) inventory.occupiedSeats("b" + (i % 500), DATE.plusDays(i / 500), null, null);
+        System.gc();
+        long after = runtime.totalMemory() - runtime.freeMemory();
+        assertEquals(trips, inventory.size());
+        // One 64-bit segment mask per seat, no hold masks until something is held
+        assertEquals(trips * 40L * Long.BYTES, inventory.bitmapBytes());
+
+        long start = System.nanoTime();
+        int queries = 200_000;
+        int booked = 0;
+        for (int i = 0; i < queries; i++) {
+            booked += inventory.occupiedSeats("b" + (i % 500), DATE.plusDays((i % trips) / 500), "Kurnool", "Anantapur").size();
+        }
+        long queryNs = (System.nanoTime() - start) / queries;
+        // Only S7 (whole route) overlaps Kurnool → Anantapur; S1 gets off at Kurnool
+        assertEquals(queries, booked);
+        assertEquals(trips, inventory.size());
+        System.out.printf("SeatInventory: %,d trips x 40 seats -> bitmaps %,d KB, heap ~%,d KB; booked-seats query %,d ns%n",
+                trips, inventory.bitmapBytes() / 1024, Math.max(after - before, 0) / 1024, queryNs);
+    }
+
+    private static SeatInventory inventory(RouteRepository routes, BookingRepository bookings) {
+        return inventory(routes, bookings, mock(SeatLayoutRepository.class));
+    }
+
+    private static SeatInventory inventory(RouteRepository routes, BookingRepository bookings, SeatLayoutRepository layouts) {
+        SeatInventory inventory = new SeatInventory();
+        ReflectionTestUtils.setField(inventory, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(inventory, "idleMinutes", 30L);
+        ReflectionTestUtils.setField(inventory, "maxTrips", 100_000L);
+        inventory.init();
+        SeatHoldService holds = new SeatHoldService();
+        ReflectionTestUtils.setField(holds, "seatInventory", inventory);
+        ReflectionTestUtils.setField(holds, "holdMinutes", 10L);
+        ReflectionTestUtils.setField(holds, "tickMillis", 1000L);
+        holds.init();
+        ReflectionTestUtils.setField(inventory, "routeRepository", routes);
+        ReflectionTestUtils.setField(inventory, "bookingRepository", bookings);
+        SeatLayoutCache layoutCache = new SeatLayoutCache();
+        ReflectionTestUtils.setField(layoutCache, "seatLayoutRepository", layouts);
+        ReflectionTestUtils.setField(layoutCache, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(layoutCache, "maxSize", 1000L);
+        layoutCache.init();
+        ReflectionTestUtils.setField(inventory, "seatLayoutCache", layoutCache);
+        ReflectionTestUtils.setField(inventory, "seatHoldService", holds);
+        return inventory;
+    }
+
+    private static Booking booking(String seat, String from, String to) {
+        Booking b = new Booking();
+        b.setBusId("b1");
+        b.setTravelDate(DATE);
+        b.setSeatNumber(seat);
+        b.setPassengerFrom(from);
+        b.setPassengerTo(to);
+        return b;
+    }
+}
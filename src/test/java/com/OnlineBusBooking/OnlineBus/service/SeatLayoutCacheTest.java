@@ -0,0 +1,101 @@
+package com.OnlineBusBooking.OnlineBus.service;
+
+import com.OnlineBusBooking.OnlineBus.model.SeatLayout;
+import com.OnlineBusBooking.OnlineBus.repository.SeatLayoutRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class SeatLayoutCacheTest {
+
+    private final SeatLayoutRepository layouts = mock(SeatLayoutRepository.class);
+
+    @Test
+    void indexesSeatsOnceAndCachesMissingLayouts() {
+        when(layouts.findByBusId("b1")).thenReturn(Optional.of(layout("b1")));
+        when(layouts.findByBusId("b2")).thenReturn(Optional.empty());
+        SeatLayoutCache cache = cache();
+
+        SeatLayoutCache.IndexedLayout indexed = cache.get("b1").orElseThrow();
+        assertEquals(new SeatLayoutCache.SeatInfo(1, "U1", "sleeper", "upper", 900), indexed.seat("u1"));
+        assertNull(indexed.seat("Z9"));
+        assertEquals(List.of("L1", "L2"), indexed.deck("lower").stream().map(SeatLayoutCache.SeatInfo::number).toList());
+        // The duplicate "l1" is skipped: three distinct seats
+        assertEquals(3, indexed.seats().size());
+        assertTrue(cache.get("b2").isEmpty());
+        assertTrue(cache.get(null).isEmpty());
+
+        cache.get("b1");
+        cache.get("b2");
+        verify(layouts, times(1)).findByBusId("b1");
+        verify(layouts, times(1)).findByBusId("b2");
+        cache.invalidate("b1");
+        cache.get("b1");
+        verify(layouts, times(2)).findByBusId("b1");
+    }
+
+    @Test
+    void callersCannotChangeACachedLayout() {
+        SeatLayoutCache cache = cache();
+        SeatLayout saved = layout("b1");
+        cache.put(saved);
+
+        // The saved object the controller returns, and every copy handed out, are detached from the cache
+        saved.getSeats().get(0).setPrice(1);
+        SeatLayout handedOut = cache.get("b1").orElseThrow().layout();
+        assertEquals(500, handedOut.getSeats().get(0).getPrice());
+        handedOut.getSeats().get(0).setPrice(2);
+        handedOut.getSeats().clear();
+        SeatLayout again = cache.get("b1").orElseThrow().layout();
+        assertEquals(4, again.getSeats().size());
+        assertEquals(500, again.getSeats().get(0).getPrice());
+
+        SeatLayoutCache.IndexedLayout indexed = cache.get("b1").orElseThrow();
+        assertThrows(UnsupportedOperationException.class, () -> indexed.seats().clear());
+        assertThrows(UnsupportedOperationException.class, () -> indexed.deck("lower").clear());
+    }
+
+    private SeatLayoutCache cache() {
+        SeatLayoutCache cache = new SeatLayoutCache();
+        ReflectionTestUtils.setField(cache, "seatLayoutRepository", layouts);
+        ReflectionTestUtils.setField(cache, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(cache, "maxSize", 100L);
+        cache.init();
+        return cache;
+    }
+
+    private static SeatLayout layout(String busId) {
+        SeatLayout layout = new SeatLayout();
+        layout.setId("layout-" + busId);
+        layout.setBusId(busId);
+        List<SeatLayout.Seat> seats = new ArrayList<>();
+        seats.add(seat("L1", "seater", "lower", 500));
+        seats.add(seat("U1", "sleeper", "upper", 900));
+        seats.add(seat("L2", "seater", "lower", 500));
+        seats.add(seat("l1", "seater", "lower", 450));
+        layout.setSeats(seats);
+        return layout;
+    }
+
+    private static SeatLayout.Seat seat(String number, String type, String deck, int price) {
+        SeatLayout.Seat seat = new SeatLayout.Seat();
+        seat.setNumber(number);
+        seat.setType(type);
+        seat.setDeck(deck);
+        seat.setPrice(price);
+        return seat;
+    }
+}
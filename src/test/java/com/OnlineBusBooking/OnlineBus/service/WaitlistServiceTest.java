@@ -0,0 +1,257 @@
+package com.OnlineBusBooking.OnlineBus.service;
+
+import com.OnlineBusBooking.OnlineBus.model.Booking;
+import com.OnlineBusBooking.OnlineBus.model.Bus;
+import com.OnlineBusBooking.OnlineBus.model.Route;
+import com.OnlineBusBooking.OnlineBus.model.SeatLayout;
+import com.OnlineBusBooking.OnlineBus.model.WaitlistEntry;
+import com.OnlineBusBooking.OnlineBus.repository.BookingRepository;
+import com.OnlineBusBooking.OnlineBus.repository.BusRepository;
+import com.OnlineBusBooking.OnlineBus.repository.RouteRepository;
+import com.OnlineBusBooking.OnlineBus.repository.SeatLayoutRepository;
+import com.OnlineBusBooking.OnlineBus.repository.WaitlistRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class WaitlistServiceTest {
+
+    private static final LocalDate DATE = LocalDate.now().plusDays(7);
+
+    private final WaitlistRepository waitlist = mock(WaitlistRepository.class);
+    private SeatInventory inventory;
+    private SeatHoldService holds;
+
+    @BeforeEach
+    void setUp() {
+        Route route = new Route();
+        route.setBusId("b1");
+        route.setFrom("Hyderabad");
+        route.setStops(List.of("Kurnool"));
+        route.setTo("Bangalore");
+        RouteRepository routes = mock(RouteRepository.class);
+        when(routes.findByBusId("b1")).thenReturn(List.of(route));
+        BookingRepository bookings = mock(BookingRepository.class);
+        when(bookings.findSeatLegsByBusIdAndTravelDate("b1", DATE)).thenReturn(List.of());
+        SeatLayout layout = new SeatLayout();
+        layout.setBusId("b1");
+        List<SeatLayout.Seat> seats = new ArrayList<>();
+        for (String number : List.of("L1", "L2")) {
+            SeatLayout.Seat seat = new SeatLayout.Seat();
+            seat.setNumber(number);
+            seat.setType("sleeper");
+            seat.setPrice(800);
+            seats.add(seat);
+        }
+        layout.setSeats(seats);
+        SeatLayoutRepository layouts = mock(SeatLayoutRepository.class);
+        when(layouts.findByBusId("b1")).thenReturn(Optional.of(layout));
+
+        SeatLayoutCache layoutCache = new SeatLayoutCache();
+        ReflectionTestUtils.setField(layoutCache, "seatLayoutRepository", layouts);
+        ReflectionTestUtils.setField(layoutCache, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(layoutCache, "maxSize", 1000L);
+        layoutCache.init();
+        inventory = new SeatInventory();
+        ReflectionTestUtils.setField(inventory, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(inventory, "idleMinutes", 30L);
+        ReflectionTestUtils.setField(inventory, "maxTrips", 1000L);
+        ReflectionTestUtils.setField(inventory, "routeRepository", routes);
+        ReflectionTestUtils.setField(inventory, "bookingRepository", bookings);
+        ReflectionTestUtils.setField(inventory, "seatLayoutCache", layoutCache);
+        inventory.init();
+        holds = new SeatHoldService();
+        ReflectionTestUtils.setField(holds, "seatInventory", inventory);
+        ReflectionTestUtils.setField(holds, "holdMinutes", 10L);
+        ReflectionTestUtils.setField(holds, "tickMillis", 1000L);
+        holds.init();
+        ReflectionTestUtils.setField(inventory, "seatHoldService", holds);
+
+        when(waitlist.save(any(WaitlistEntry.class))).thenAnswer(call -> {
+            WaitlistEntry entry = call.getArgument(0);
+            if (entry.getId() == null) entry.setId(UUID.randomUUID().toString());
+            return entry;
+        });
+        when(waitlist.findByStatusOrderByCreatedAtAsc(any())).thenReturn(List.of());
+    }
+
+    @Test
+    void freedSeatsGoToTheHighestPriorityThenEarliestEntry() throws Exception {
+        assertEquals(List.of(), inventory.reserve(List.of(booking("L1"), booking("L2"))));
+        WaitlistService service = service();
+        WaitlistEntry low = join(service, "low@example.com", 0);
+        WaitlistEntry firstHigh = join(service, "first@example.com", 2);
+        WaitlistEntry secondHigh = join(service, "second@example.com", 2);
+
+        inventory.release(List.of(booking("L1")));
+        drain(service);
+        assertEquals(WaitlistEntry.OFFERED, firstHigh.getStatus());
+        assertEquals("L1", firstHigh.getSeatNumber());
+        assertEquals(WaitlistEntry.WAITING, secondHigh.getStatus());
+        assertEquals(WaitlistEntry.WAITING, low.getStatus());
+
+        inventory.release(List.of(booking("L2")));
+        drain(service);
+        assertEquals(WaitlistEntry.OFFERED, secondHigh.getStatus());
+        assertEquals(WaitlistEntry.WAITING, low.getStatus());
+    }
+
+    @Test
+    void bookedOffersCloseAndLapsedOffersPromoteTheNextEntry() throws Exception {
+        assertEquals(List.of(), inventory.reserve(List.of(booking("L1"), booking("L2"))));
+        WaitlistService service = service();
+        WaitlistEntry first = join(service, "first@example.com", 0);
+        WaitlistEntry second = join(service, "second@example.com", 0);
+        WaitlistEntry third = join(service, "third@example.com", 0);
+        inventory.release(List.of(booking("L1"), booking("L2")));
+        drain(service);
+        assertEquals(WaitlistEntry.OFFERED, first.getStatus());
+        assertEquals(WaitlistEntry.OFFERED, second.getStatus());
+
+        // The first books the held seat: OFFERED → BOOKED, nobody else is offered anything
+        List<Booking> party = List.of(booking(first.getSeatNumber()));
+        List<Booking> legs = holds.matchingLegs(first.getHoldId(), "first@example.com", party);
+        assertEquals(List.of(), inventory.reserve(party, legs));
+        holds.complete(first.getHoldId(), legs);
+        drain(service);
+        assertEquals(WaitlistEntry.BOOKED, first.getStatus());
+        assertEquals(WaitlistEntry.WAITING, third.getStatus());
+
+        // The second lets the offer lapse: OFFERED → EXPIRED, and the seat is offered to the third
+        ReflectionTestUtils.invokeMethod(holds, "expire", second.getHoldId());
+        drain(service);
+        assertEquals(WaitlistEntry.EXPIRED, second.getStatus());
+        assertEquals(WaitlistEntry.OFFERED, third.getStatus());
+        assertEquals(second.getSeatNumber(), third.getSeatNumber());
+    }
+
+    @Test
+    void openOffersAreHeldAgainAfterARestart() throws Exception {
+        WaitlistEntry open = new WaitlistEntry();
+        open.setId("w1");
+        open.setBusId("b1");
+        open.setTravelDate(DATE);
+        open.setSeatType("sleeper");
+        open.setCustomerEmail("first@example.com");
+        open.setStatus(WaitlistEntry.OFFERED);
+        open.setSeatNumber("L1");
+        open.setHoldId("lost-on-restart");
+        open.setOfferedUntil(new Date(System.currentTimeMillis() + TimeUnit.MINUTES.toMillis(5)));
+        when(waitlist.findByStatusOrderByCreatedAtAsc(WaitlistEntry.OFFERED)).thenReturn(List.of(open));
+
+        WaitlistService service = service();
+        drain(service);
+        assertEquals(WaitlistEntry.OFFERED, open.getStatus());
+        assertNotEquals("lost-on-restart", open.getHoldId());
+        assertNotNull(holds.matchingLegs(open.getHoldId(), "first@example.com", List.of(booking("L1"))).stream().findFirst().orElse(null));
+        assertEquals(List.of("L1"), inventory.heldSeats("b1", DATE, null, null));
+    }
+
+    @Test
+    void entriesForTripsThatHaveLeftAreExpired() throws Exception {
+        WaitlistEntry leftYesterday = entry("w1", LocalDate.now().minusDays(1), WaitlistEntry.WAITING);
+        WaitlistEntry upcoming = entry("w2", DATE, WaitlistEntry.WAITING);
+        WaitlistEntry offeredYesterday = entry("w3", LocalDate.now().minusDays(1), WaitlistEntry.OFFERED);
+        offeredYesterday.setSeatNumber("L1");
+        offeredYesterday.setOfferedUntil(new Date(System.currentTimeMillis() + TimeUnit.MINUTES.toMillis(5)));
+        when(waitlist.findByStatusOrderByCreatedAtAsc(WaitlistEntry.WAITING)).thenReturn(List.of(leftYesterday, upcoming));
+        when(waitlist.findByStatusOrderByCreatedAtAsc(WaitlistEntry.OFFERED)).thenReturn(List.of(offeredYesterday));
+        assertEquals(List.of(), inventory.reserve(List.of(booking("L1"), booking("L2"))));
+
+        // Restored: only the upcoming entry is queued again, and nothing is held for the old offer
+        WaitlistService service = service();
+        drain(service);
+        assertEquals(WaitlistEntry.EXPIRED, leftYesterday.getStatus());
+        assertEquals(WaitlistEntry.EXPIRED, offeredYesterday.getStatus());
+        assertEquals(WaitlistEntry.WAITING, upcoming.getStatus());
+        assertEquals(0, holds.size());
+
+        // The tick after the trip leaves expires it and drops its queues; a seat freed later offers nothing
+        ExecutorService worker = (ExecutorService) ReflectionTestUtils.getField(service, "worker");
+        worker.submit(() -> service.expireDeparted(DATE.plusDays(1))).get(5, TimeUnit.SECONDS);
+        assertEquals(WaitlistEntry.EXPIRED, upcoming.getStatus());
+        assertTrue(((Map<?, ?>) ReflectionTestUtils.getField(service, "waiting")).isEmpty());
+        inventory.release(List.of(booking("L1")));
+        drain(service);
+        assertEquals(0, holds.size());
+    }
+
+    private static WaitlistEntry entry(String id, LocalDate travelDate, String status) {
+        WaitlistEntry entry = new WaitlistEntry();
+        entry.setId(id);
+        entry.setBusId("b1");
+        entry.setTravelDate(travelDate);
+        entry.setSeatType("sleeper");
+        entry.setCustomerEmail(id + "@example.com");
+        entry.setStatus(status);
+        return entry;
+    }
+
+    private WaitlistService service() {
+        BusRepository buses = mock(BusRepository.class);
+        Bus bus = new Bus();
+        bus.setId("b1");
+        bus.setBusName("Night Rider");
+        when(buses.findById("b1")).thenReturn(Optional.of(bus));
+        SeatLayoutCache layoutCache = (SeatLayoutCache) ReflectionTestUtils.getField(inventory, "seatLayoutCache");
+
+        WaitlistService service = new WaitlistService();
+        ReflectionTestUtils.setField(service, "waitlistRepository", waitlist);
+        ReflectionTestUtils.setField(service, "busRepository", buses);
+        ReflectionTestUtils.setField(service, "seatInventory", inventory);
+        ReflectionTestUtils.setField(service, "seatHoldService", holds);
+        ReflectionTestUtils.setField(service, "seatLayoutCache", layoutCache);
+        ReflectionTestUtils.setField(service, "emailService", mock(EmailService.class));
+        ReflectionTestUtils.setField(service, "ordering", "priority");
+        ReflectionTestUtils.setField(service, "priorityLevels", 3);
+        ReflectionTestUtils.setField(service, "offerMinutes", 30L);
+        ReflectionTestUtils.setField(service, "expiryCheckMinutes", 60L);
+        service.init();
+        return service;
+    }
+
+    private static WaitlistEntry join(WaitlistService service, String email, int priority) {
+        WaitlistEntry request = new WaitlistEntry();
+        request.setBusId("b1");
+        request.setTravelDate(DATE);
+        request.setSeatType("sleeper");
+        request.setCustomerEmail(email);
+        request.setPriority(priority);
+        WaitlistService.JoinResult result = service.join(request);
+        assertNotNull(result.entry(), result.error());
+        return result.entry();
+    }
+
+    // Waits for the offers thread to finish what the seat and hold events queued
+    private static void drain(WaitlistService service) throws Exception {
+        ExecutorService worker = (ExecutorService) ReflectionTestUtils.getField(service, "worker");
+        worker.submit(() -> {}).get(5, TimeUnit.SECONDS);
+    }
+
+    private static Booking booking(String seat) {
+        Booking b = new Booking();
+        b.setBusId("b1");
+        b.setTravelDate(DATE);
+        b.setSeatNumber(seat);
+        return b;
+    }
+}
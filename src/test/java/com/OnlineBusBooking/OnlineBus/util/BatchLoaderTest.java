@@ -0,0 +1,37 @@
+package com.OnlineBusBooking.OnlineBus.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class BatchLoaderTest {
+
+    @Test
+    void primedKeysAreFetchedInOneBatchAndMissesAreRemembered() {
+        List<Set<String>> calls = new ArrayList<>();
+        BatchLoader<String, String> loader = new BatchLoader<>(keys -> {
+            calls.add(Set.copyOf(keys));
+            Map<String, String> found = new HashMap<>();
+            keys.stream().filter(k -> !k.startsWith("missing")).forEach(k -> found.put(k, k.toUpperCase()));
+            return found;
+        });
+
+        loader.prime(List.of("a", "b", "a", "missing"));
+        assertEquals(Optional.of("A"), loader.get("a"));
+        assertEquals(Optional.of("B"), loader.get("b"));
+        assertEquals(Optional.empty(), loader.get("missing"));
+        assertEquals(List.of(Set.of("a", "b", "missing")), calls);
+
+        // Only the new key goes to the next batch
+        assertEquals(Map.of("a", "A", "c", "C"), loader.getAll(List.of("a", "c", "missing")));
+        assertEquals(Set.of("c"), calls.get(1));
+        assertEquals(2, loader.batches());
+    }
+}
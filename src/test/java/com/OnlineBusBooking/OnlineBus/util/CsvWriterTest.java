@@ -0,0 +1,27 @@
+package com.OnlineBusBooking.OnlineBus.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class CsvWriterTest {
+
+    @Test
+    void quotesSpecialFieldsAndNeutralisesFormulas() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (CsvWriter csv = new CsvWriter(out, 10)) {
+            csv.row("id", "name", "note");
+            csv.row("b1", "Rao, K", "said \"hi\"");
+            csv.row(null, "=SUM(A1:A2)", -12.5);
+            csv.row("\t=1+2", "\r@cmd", "+91 98480");
+        }
+        assertEquals("id,name,note\r\n"
+                + "b1,\"Rao, K\",\"said \"\"hi\"\"\"\r\n"
+                + ",'=SUM(A1:A2),-12.5\r\n"
+                + "'\t=1+2,\"'\r@cmd\",'+91 98480\r\n", out.toString(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,43 @@
+package com.OnlineBusBooking.OnlineBus.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class HashedTimingWheelTest {
+
+    @Test
+    void expiresDueTimersAcrossRotationsAndSkipsCancelled() {
+        HashedTimingWheel<String> wheel = new HashedTimingWheel<>(1000, 8, 0);
+        wheel.schedule("soon", 2_500, 0);
+        wheel.schedule("next-rotation", 11_000, 0);   // same bucket as tick 3, one rotation later
+        wheel.schedule("cancelled", 1_000, 0).cancel();
+
+        List<String> fired = new ArrayList<>();
+        wheel.advance(2_999, fired::add);
+        assertEquals(List.of(), fired);
+        wheel.advance(3_000, fired::add);
+        assertEquals(List.of("soon"), fired);
+        wheel.advance(10_999, fired::add);
+        assertEquals(List.of("soon"), fired);
+
+        // A long pause still visits every bucket once
+        wheel.advance(600_000, fired::add);
+        assertEquals(List.of("soon", "next-rotation"), fired);
+        assertEquals(0, wheel.pending());
+
+        // Ten-minute holds spread over a minute on a 512-slot wheel: none fires early, all fire on time
+        HashedTimingWheel<Integer> holds = new HashedTimingWheel<>(1000, 512, 0);
+        int timers = 100_000;
+        for (int i = 0; i < timers; i++) holds.schedule(i, 600_000, i % 60_000);
+        int[] expired = {0};
+        for (long now = 1_000; now < 600_000; now += 1_000) holds.advance(now, t -> expired[0]++);
+        assertEquals(0, expired[0]);
+        for (long now = 600_000; now <= 660_000; now += 1_000) holds.advance(now, t -> expired[0]++);
+        assertEquals(timers, expired[0]);
+        assertEquals(0, holds.pending());
+    }
+}
@@ -0,0 +1,112 @@
+package com.OnlineBusBooking.OnlineBus.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class SearchResultPagerTest {
+
+    // s2 and s3 leave at the same time: the schedule id breaks the tie
+    private static final List<Map<String, Object>> ROWS = List.of(
+            row("s3", "08:00", 650.0, "AC Sleeper"),
+            row("s1", "06:30", 900.0, "AC Seater"),
+            row("s5", "22:15", 500.0, "Non-AC Sleeper"),
+            row("s2", "08:00", 700.0, "AC Sleeper"),
+            row("s4", "13:45", 0.0, "Seater"));
+
+    @Test
+    void cursorsWalkEveryRowOnceInOrder() {
+        assertEquals(List.of("s1", "s2", "s3", "s4", "s5"), walk("departure", 2));
+        assertEquals(List.of("s4", "s5", "s3", "s2", "s1"), walk("fare", 2));
+
+        // Page boundaries: full pages carry a cursor, the last one does not, and limit == rows needs no second page
+        Map<String, Object> first = SearchResultPager.page(shuffled(), criteria("departure", 2, null));
+        assertEquals(2, ids(first).size());
+        assertEquals(5, first.get("total"));
+        assertNotNull(first.get("nextCursor"));
+        Map<String, Object> whole = SearchResultPager.page(shuffled(), criteria("departure", 5, null));
+        assertEquals(5, ids(whole).size());
+        assertNull(whole.get("nextCursor"));
+        Map<String, Object> past = SearchResultPager.page(shuffled(), criteria("departure", 5, cursorAfter("23:59", "s9")));
+        assertEquals(List.of(), ids(past));
+        assertNull(past.get("nextCursor"));
+    }
+
+    @Test
+    void filtersApplyBeforePagingAndLimitsAreClamped() {
+        SearchResultPager.Criteria acMorning = new SearchResultPager.Criteria("ac", LocalTime.of(6, 0), LocalTime.of(12, 0),
+                800.0, "departure", 10, null);
+        Map<String, Object> page = SearchResultPager.page(ROWS, acMorning);
+        assertEquals(List.of("s2", "s3"), ids(page));
+        assertEquals(2, page.get("total"));
+
+        assertEquals(1, criteria("departure", 0, null).limit());
+        assertEquals(SearchResultPager.MAX_LIMIT, criteria("departure", 10_000, null).limit());
+        assertEquals("departure", criteria("price", 10, null).sort());
+    }
+
+    @Test
+    void tamperedCursorsAreRejected() {
+        for (String cursor : List.of("%%not-base64%%", encode("no separator"), encode("cheap|s1"))) {
+            assertThrows(IllegalArgumentException.class, () -> SearchResultPager.page(ROWS, criteria("fare", 2, cursor)));
+        }
+        // A departure cursor replayed against the fare sort is not a number either
+        String departureCursor = (String) SearchResultPager.page(ROWS, criteria("departure", 2, null)).get("nextCursor");
+        assertThrows(IllegalArgumentException.class, () -> SearchResultPager.page(ROWS, criteria("fare", 2, departureCursor)));
+    }
+
+    private static List<String> walk(String sort, int limit) {
+        List<String> seen = new ArrayList<>();
+        String cursor = null;
+        do {
+            Map<String, Object> page = SearchResultPager.page(shuffled(), criteria(sort, limit, cursor));
+            seen.addAll(ids(page));
+            cursor = (String) page.get("nextCursor");
+        } while (cursor != null);
+        return seen;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<String> ids(Map<String, Object> page) {
+        return ((List<Map<String, Object>>) page.get("items")).stream().map(r -> (String) r.get("scheduleId")).toList();
+    }
+
+    private static List<Map<String, Object>> shuffled() {
+        List<Map<String, Object>> rows = new ArrayList<>(ROWS);
+        Collections.shuffle(rows);
+        return rows;
+    }
+
+    private static SearchResultPager.Criteria criteria(String sort, int limit, String cursor) {
+        return new SearchResultPager.Criteria(null, null, null, null, sort, limit, cursor);
+    }
+
+    private static String cursorAfter(String departure, String scheduleId) {
+        return encode(departure + "|" + scheduleId);
+    }
+
+    private static String encode(String raw) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static Map<String, Object> row(String scheduleId, String departure, double fare, String busType) {
+        Map<String, Object> row = new HashMap<>();
+        row.put("scheduleId", scheduleId);
+        row.put("departureTime", departure);
+        row.put("estimatedFare", fare);
+        row.put("busType", busType);
+        return row;
+    }
+}
@@ -0,0 +1,71 @@
+package com.OnlineBusBooking.OnlineBus.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class StopNameTrieTest {
+
+    @Test
+    void prefixesRankByDistanceThenRoutesServed() {
+        StopNameTrie trie = new StopNameTrie();
+        trie.add("Hyderabad");
+        trie.add(" hyderabad ");
+        trie.add("Hubli");
+        trie.add("Hosur");
+        trie.add("Hosur");
+        trie.add("Hosur");
+        trie.add("  ");
+
+        // First spelling is kept; weight counts every route, whatever its case or spacing
+        assertEquals(List.of(new StopNameTrie.Suggestion("Hosur", 0, 3), new StopNameTrie.Suggestion("Hyderabad", 0, 2),
+                new StopNameTrie.Suggestion("Hubli", 0, 1)), trie.suggest("H", 10, 0));
+        assertEquals(List.of("Hosur", "Hyderabad"), names(trie.suggest("h", 2, 0)));
+        assertEquals(List.of(), trie.suggest(" ", 10, 2));
+        assertEquals(List.of(), trie.suggest("h", 0, 0));
+    }
+
+    @Test
+    void typosWithinTheEditBudgetStillMatch() {
+        StopNameTrie trie = new StopNameTrie();
+        trie.add("Bangalore");
+        trie.add("Bengaluru");
+        trie.add("Bengaluru");
+
+        assertEquals(List.of(), trie.suggest("banglore", 10, 0));
+        assertEquals(List.of(new StopNameTrie.Suggestion("Bangalore", 1, 1)), trie.suggest("banglore", 10, 1));
+        // An exact prefix beats a near miss, even one served by more routes
+        assertEquals(List.of("Bangalore", "Bengaluru"), names(trie.suggest("bang", 10, 1)));
+
+        assertEquals(0, StopNameTrie.defaultMaxEdits("hyd"));
+        assertEquals(1, StopNameTrie.defaultMaxEdits(" hyder "));
+        assertEquals(2, StopNameTrie.defaultMaxEdits("hyderab"));
+    }
+
+    @Test
+    void namesDisappearWhenTheLastRouteGoes() {
+        StopNameTrie trie = new StopNameTrie();
+        trie.add("Kurnool");
+        trie.add("Kurnool");
+        trie.add("Kurnool Bus Stand");
+
+        trie.remove("kurnool");
+        assertEquals(List.of(new StopNameTrie.Suggestion("Kurnool", 0, 1), new StopNameTrie.Suggestion("Kurnool Bus Stand", 0, 1)),
+                trie.suggest("kur", 10, 0));
+        trie.remove("Kurnool");
+        assertEquals(List.of("Kurnool Bus Stand"), names(trie.suggest("kur", 10, 0)));
+        // Removing a name that is not there, or a prefix of one, changes nothing
+        trie.remove("Kurn");
+        trie.remove("Nellore");
+        assertEquals(List.of("Kurnool Bus Stand"), names(trie.suggest("kur", 10, 0)));
+
+        trie.clear();
+        assertEquals(List.of(), trie.suggest("kur", 10, 2));
+    }
+
+    private static List<String> names(List<StopNameTrie.Suggestion> suggestions) {
+        return suggestions.stream().map(StopNameTrie.Suggestion::name).toList();
+    }
+}